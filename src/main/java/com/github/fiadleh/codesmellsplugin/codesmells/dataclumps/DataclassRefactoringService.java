@@ -2,15 +2,24 @@ package com.github.fiadleh.codesmellsplugin.codesmells.dataclumps;
 
 import com.github.fiadleh.codesmellsplugin.services.CodesmellTimer;
 import com.github.fiadleh.codesmellsplugin.services.PsiGroup;
+import com.github.fiadleh.codesmellsplugin.util.ChunkedWriteCommand;
 import com.github.fiadleh.codesmellsplugin.util.PsiUtils;
-import com.intellij.openapi.command.WriteCommandAction;
+import com.github.fiadleh.codesmellsplugin.util.ReferenceRewriter;
+import com.intellij.concurrency.JobLauncher;
+import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.Messages;
 import com.intellij.psi.*;
 import com.intellij.psi.codeStyle.JavaCodeStyleManager;
 import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.search.searches.OverridingMethodsSearch;
 import com.intellij.psi.search.searches.ReferencesSearch;
+import com.intellij.psi.util.PsiModificationTracker;
 import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.psi.util.PsiUtil;
 import com.intellij.util.IncorrectOperationException;
@@ -18,6 +27,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Responsible for executing refactoring actions for data clumps instances
@@ -41,16 +51,11 @@ public class DataclassRefactoringService {
      * @param currentDataClump      current data clumps instance
      * @return                      textual information
      */
-    private static ArrayList<String> prepareElementsText(PsiGroup currentDataClump) {
-        final boolean isParameterDataclump = currentDataClump.getElement(0) instanceof PsiParameter;
+    static ArrayList<String> prepareElementsText(PsiGroup currentDataClump) {
         ArrayList<String> elementsText = new ArrayList<>();
 
-        for (PsiElement elem : currentDataClump.getElements()) {
-            if (isParameterDataclump) {
-                elementsText.add(((PsiParameter) elem).getType().getCanonicalText() + " " + ((PsiParameter) elem).getName());
-            } else {
-                elementsText.add(((PsiField) elem).getType().getCanonicalText() + " " + ((PsiField) elem).getName());
-            }
+        for (int i = 0; i < currentDataClump.size(); i++) {
+            elementsText.add(currentDataClump.getElementTypeText(i) + " " + currentDataClump.getElementName(i));
         }
 
         return elementsText;
@@ -61,8 +66,8 @@ public class DataclassRefactoringService {
      * @param currentDataClump      current data clumps instance
      * @return                      textual information
      */
-    private static ArrayList<String> prepareFilesText(PsiGroup currentDataClump) {
-        final boolean isParameterDataclump = currentDataClump.getElement(0) instanceof PsiParameter;
+    static ArrayList<String> prepareFilesText(PsiGroup currentDataClump) {
+        final boolean isParameterDataclump = currentDataClump.isParameterGroup();
         ArrayList<String> filesText = new ArrayList<>();
 
         for (PsiElement elem : currentDataClump.getConnections()) {
@@ -80,7 +85,8 @@ public class DataclassRefactoringService {
     }
 
     /**
-     * The first called method to start the refactoring process.
+     * The first called method to start the refactoring process. The existing parameter object, the usages and
+     * the conflicts are searched in a background task, only the dialogs and the final write run on the EDT.
      *
      * @param currentProject
      * @param currentDataClump
@@ -88,17 +94,85 @@ public class DataclassRefactoringService {
     public static void refactor(@NotNull Project currentProject, @NotNull PsiGroup currentDataClump) {
         PsiUtils.log(LOGGER_NAME, "refactor: ");
         project = currentProject;
+
+        new Task.Backgroundable(currentProject, "Preparing data clumps refactoring", true) {
+            private RefactoringPreparation preparation;
+
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                preparation = prepare(currentProject, currentDataClump, indicator);
+            }
+
+            @Override
+            public void onSuccess() {
+                refactor(currentProject, currentDataClump, preparation);
+            }
+        }.queue();
+    }
+
+    /**
+     * Collects everything needed before showing the refactoring dialog. Runs in a background thread.
+     *
+     * @param currentProject
+     * @param currentDataClump
+     * @param indicator
+     * @return the prepared information
+     */
+    private static RefactoringPreparation prepare(Project currentProject, PsiGroup currentDataClump, ProgressIndicator indicator) {
+        RefactoringPreparation preparation = ReadAction.compute(() -> {
+            indicator.setText("Searching an existing parameter object");
+            RefactoringPreparation result = new RefactoringPreparation();
+            result.modificationCount = PsiModificationTracker.SERVICE.getInstance(currentProject).getModificationCount();
+            result.elementsText = prepareElementsText(currentDataClump);
+            result.filesText = prepareFilesText(currentDataClump);
+            SmartPointerManager pointerManager = SmartPointerManager.getInstance(currentProject);
+            PsiDirectory directory = currentDataClump.getConnections().get(0).getContainingFile().getContainingDirectory();
+            result.directory = directory == null ? null : pointerManager.createSmartPsiElementPointer(directory);
+            PsiClass alreadyExtractedClass = PsiUtils.findParameterObject(currentProject, currentDataClump.getElements());
+            result.alreadyExtractedClass = alreadyExtractedClass == null ? null : pointerManager.createSmartPsiElementPointer(alreadyExtractedClass);
+            result.conflicts = findOverridingConflicts(currentDataClump, indicator);
+            return result;
+        });
+
+        indicator.setText("Searching data clumps usages");
+        preparation.usages = findUsages(currentProject, Collections.singletonList(
+                new DataclumpExtraction(currentDataClump, "", null, null)));
+
+        ReadAction.run(() -> preparation.conflicts.addAll(findUsageConflicts(currentDataClump, preparation.usages)));
+        return preparation;
+    }
+
+    /**
+     * Shows the dialogs and applies the refactoring with the prepared information. Runs on the EDT.
+     *
+     * @param currentProject
+     * @param currentDataClump
+     * @param preparation
+     */
+    private static void refactor(Project currentProject, PsiGroup currentDataClump, RefactoringPreparation preparation) {
+        project = currentProject;
+        if (!preparation.conflicts.isEmpty()) {
+            int conflictsResult = Messages.showYesNoDialog(project,
+                    "The following usages can not be refactored automatically:\n" + String.join("\n", preparation.conflicts) + "\nDo you want to continue?",
+                    "Data Clumps Refactoring Conflicts", Messages.getWarningIcon());
+            if (conflictsResult != Messages.YES) {
+                return;
+            }
+        }
+
+        PsiDirectory directory = preparation.directory == null ? null : preparation.directory.getElement();
+        if (directory == null || !currentDataClump.isValid()) {
+            Messages.showMessageDialog(project, "The data clumps instance has been changed, please run the inspection again.",
+                    "Data Clumps Refactoring Info", Messages.getInformationIcon());
+            return;
+        }
+
         // create a new class name out of its variables
         String className = PsiUtils.generateClassNameFromVariables(currentDataClump.getElements());
-        String qualifiedName = "";
-
-        final boolean isParameterDataclump = currentDataClump.getElement(0) instanceof PsiParameter;
-        ArrayList<String> elementsText = prepareElementsText(currentDataClump);
-        ArrayList<String> filesText = prepareFilesText(currentDataClump);
         int useExistingClassResult = 2;
 
-        PsiClass alreadyExtractedClass = PsiUtils.findParameterObject(project, currentDataClump.getElements());
-        if (alreadyExtractedClass != null) {
+        PsiClass alreadyExtractedClass = preparation.alreadyExtractedClass == null ? null : preparation.alreadyExtractedClass.getElement();
+        if (alreadyExtractedClass != null && alreadyExtractedClass.isValid()) {
             // show an info box
             useExistingClassResult = Messages.showOkCancelDialog(project,
                     "There is already a class with all required variables (" + alreadyExtractedClass.getQualifiedName() + "), Do you want to replace the duplicate variables with it? ",
@@ -110,33 +184,25 @@ public class DataclassRefactoringService {
 
         if (useExistingClass) {
             className = alreadyExtractedClass.getName();
-            qualifiedName = alreadyExtractedClass.getQualifiedName();
         }
         // create a refactoring dialog to choose new class name
         String nameCheckMessage = "Please choose a name for the new class:";
 
         while (!nameCheckMessage.equals("OK") && !useExistingClass) {
-            DataclumpRefactoringDialog dataclumpsRefactoringDialog = new DataclumpRefactoringDialog(className, nameCheckMessage, elementsText, filesText);
+            DataclumpRefactoringDialog dataclumpsRefactoringDialog = new DataclumpRefactoringDialog(className, nameCheckMessage, preparation.elementsText, preparation.filesText);
             if (dataclumpsRefactoringDialog.showAndGet()) {
                 // user pressed OK
                 className = dataclumpsRefactoringDialog.getNewClassName();
 
                 // check that creating a new class with this name is allowed
-                nameCheckMessage = PsiUtils.checkClassExists(currentDataClump.getConnections().get(0).getContainingFile().getContainingDirectory(), className);
-
+                nameCheckMessage = PsiUtils.checkClassExists(directory, className);
 
                 PsiUtils.log(LOGGER_NAME, "user pressed OK");
                 PsiUtils.log(LOGGER_NAME, "Name = " + className);
-                PsiUtils.log(LOGGER_NAME, "Directory = " + currentDataClump.getConnections().get(0).getContainingFile().getContainingDirectory().getText());
                 PsiUtils.log(LOGGER_NAME, "nameCheckMessage = " + nameCheckMessage);
 
             } else {
-                className = dataclumpsRefactoringDialog.getNewClassName();
-
                 PsiUtils.log(LOGGER_NAME, "DataClumpFix Cancel !!!!!!!!!!!!");
-                PsiUtils.log(LOGGER_NAME, "Name = " + className);
-                PsiUtils.log(LOGGER_NAME, "Directory = " + currentDataClump.getConnections().get(0).getContainingFile().getContainingDirectory().getText());
-
                 return;
             }
             if (!nameCheckMessage.equalsIgnoreCase("OK")) {
@@ -144,44 +210,101 @@ public class DataclassRefactoringService {
             }
         }
 
-        try {
-            // start timer
-            refactoringTimer.startTimer();
-
-            refactoringTimer.setClassName(className);
-            final PsiGroup finalDataClump = currentDataClump;
-            final String finalClassName = className;
-            final String finalClassQualifiedName = qualifiedName;
+        // the code may have been edited since the preparation or while the dialogs were shown
+        if (!currentDataClump.isValid() || !directory.isValid() || (useExistingClass && !alreadyExtractedClass.isValid())) {
+            Messages.showMessageDialog(project, "The data clumps instance has been changed, please run the inspection again.",
+                    "Data Clumps Refactoring Info", Messages.getInformationIcon());
+            return;
+        }
+        DataclumpExtraction extraction = new DataclumpExtraction(currentDataClump, className, directory,
+                useExistingClass ? alreadyExtractedClass : null);
+
+        Map<PsiElement, Collection<PsiReference>> usages = preparation.usages;
+        if (PsiModificationTracker.SERVICE.getInstance(project).getModificationCount() != preparation.modificationCount) {
+            PsiUtils.log(LOGGER_NAME, "the code has changed since the preparation, searching the usages again");
+            try {
+                usages = ProgressManager.getInstance().runProcessWithProgressSynchronously(
+                        () -> findUsages(currentProject, Collections.singletonList(extraction)),
+                        "Searching Data Clumps Usages", true, project);
+            } catch (ProcessCanceledException e) {
+                PsiUtils.log(LOGGER_NAME, "Searching the data clumps usages canceled");
+                return;
+            }
+        }
 
+        try {
+            applyExtractions(project, "Dataclump Refactoring Service: " + className, Collections.singletonList(extraction), usages);
+        } catch (PsiInvalidElementAccessException | IncorrectOperationException e) {
+            PsiUtils.log(LOGGER_NAME, "\n==> Exception: " + e.getMessage() + "\n");
+        }
+    }
 
-            WriteCommandAction.runWriteCommandAction(project, "Dataclump Refactoring Service: " + className, "0", () -> {
-                String newClassQualifiedName = finalClassQualifiedName;
+    /**
+     * Changing the signature of a method that overrides or is overridden by other methods breaks the hierarchy
+     *
+     * @param currentDataClump
+     * @param indicator
+     * @return a description of every conflicting method
+     */
+    private static List<String> findOverridingConflicts(PsiGroup currentDataClump, ProgressIndicator indicator) {
+        List<String> conflicts = new ArrayList<>();
+        if (!currentDataClump.isParameterGroup()) {
+            return conflicts;
+        }
+        for (PsiElement connection : currentDataClump.getConnections()) {
+            indicator.checkCanceled();
+            PsiMethod method = (PsiMethod) connection.getParent();
+            if (method.findSuperMethods().length > 0 || OverridingMethodsSearch.search(method).findFirst() != null) {
+                conflicts.add("Method " + method.getName() + " is part of a class hierarchy");
+            }
+        }
+        return conflicts;
+    }
 
-                //======== create a new class if required =========
-                if (!useExistingClass) {
-                    newClassQualifiedName = PsiUtils.extractVariablesClass(project, finalDataClump.getConnections().get(0).getContainingFile().getContainingDirectory(), finalClassName, finalDataClump.getElements());
+    /**
+     * Usages of the smelly methods that are not direct calls, like method references, can not be refactored
+     *
+     * @param currentDataClump
+     * @param usages
+     * @return a description of every conflicting usage
+     */
+    private static List<String> findUsageConflicts(PsiGroup currentDataClump, Map<PsiElement, Collection<PsiReference>> usages) {
+        List<String> conflicts = new ArrayList<>();
+        if (!currentDataClump.isParameterGroup()) {
+            // the field references are rewritten to getter and setter calls
+            for (Collection<PsiReference> refs : usages.values()) {
+                for (PsiReference ref : refs) {
+                    if (ref.getElement() instanceof PsiReferenceExpression && !ReferenceRewriter.canRewrite((PsiReferenceExpression) ref.getElement())) {
+                        conflicts.add(ref.getElement().getParent().getText() + " in file " + ref.getElement().getContainingFile().getName());
+                    }
                 }
-                if (isParameterDataclump) {
-                    //============== refactor the calls in all project classes =============
-                    preserveWholeObjectInMethodsCalls(finalDataClump, newClassQualifiedName);
-
-                    //============== add the new class to the signature and body of the smelly methods in the original class =============
-                    preserveWholeObjectInOriginalClasses(finalDataClump, finalClassName, newClassQualifiedName);
-                } else {
-                    //============== refactor the calls in all project classes =============
-                    refactorFieldCalls(finalDataClump, newClassQualifiedName);
-
-                    //============== delete the smelly fields from the affected classes =============
-                    removeSmellyFields(finalDataClump, newClassQualifiedName);
+            }
+            return conflicts;
+        }
+        for (Map.Entry<PsiElement, Collection<PsiReference>> entry : usages.entrySet()) {
+            for (PsiReference ref : entry.getValue()) {
+                if (!(ref.getElement().getParent() instanceof PsiMethodCallExpression)) {
+                    conflicts.add(ref.getElement().getText() + " in file " + ref.getElement().getContainingFile().getName());
                 }
-            });
-
-            // STOP TIMER AND PRINT THE RESULTS
-            refactoringTimer.stopTimer();
-            refactoringTimer.printMessage();
-        } catch (PsiInvalidElementAccessException | IncorrectOperationException e) {
-            PsiUtils.log(LOGGER_NAME, "\n==> Exception: " + e.getMessage() + "\n");
+            }
         }
+        return conflicts;
+    }
+
+    /**
+     * The information collected in the background before the refactoring dialog is shown
+     */
+    private static class RefactoringPreparation {
+        /**
+         * The PSI modification count before the preparation, the usages are searched again if it has changed
+         */
+        private long modificationCount;
+        private List<String> elementsText;
+        private List<String> filesText;
+        private SmartPsiElementPointer<PsiDirectory> directory;
+        private SmartPsiElementPointer<PsiClass> alreadyExtractedClass;
+        private List<String> conflicts;
+        private Map<PsiElement, Collection<PsiReference>> usages;
     }
 
     /**
@@ -191,8 +314,9 @@ public class DataclassRefactoringService {
      * @param currentDataClump
      * @param className
      * @param classQualifiedName
+     * @param touchedFiles          collects the changed files, their imports are added once at the end
      */
-    public static void preserveWholeObjectInOriginalClasses(PsiGroup currentDataClump, String className, String classQualifiedName) {
+    public static void preserveWholeObjectInOriginalClasses(PsiGroup currentDataClump, String className, String classQualifiedName, Set<PsiFile> touchedFiles) {
         Logger.getInstance("#DataclumpsInspection").warn("\nrefactorParameterListMethods: ");
         PsiElementFactory factory = JavaPsiFacade.getInstance(project).getElementFactory();
         for (PsiElement connection : currentDataClump.getConnections()) {
@@ -201,30 +325,32 @@ public class DataclassRefactoringService {
             PsiParameter[] parameters = currentPsiParameterList.getParameters();
             int paramCount = currentPsiParameterList.getParametersCount();
             List<Integer> smellyParametersIndices = new ArrayList<>();
-            List<PsiElement> smellyParameters = new ArrayList<>();
+            Set<PsiParameter> smellyParameters = new HashSet<>();
 
             for (int x = 0; x < paramCount; x++) {
-                int parameterIndexInDataclump = PsiUtils.getElementIndex(currentDataClump.getElements(), currentPsiParameterList.getParameter(x));
+                int parameterIndexInDataclump = currentDataClump.getElementIndex(currentPsiParameterList.getParameter(x));
 
                 if (parameterIndexInDataclump != -1) {
                     smellyParametersIndices.add(x);
-                    smellyParameters.add(parameters[x].getNameIdentifier());
+                    smellyParameters.add(parameters[x]);
                 }
             }
 
-            // 2. refactor the smelly parameters in method body
+            // 2. refactor the smelly parameters in method body, every reference is resolved once before the first change
             PsiMethod currentMethod = (PsiMethod) currentPsiParameterList.getParent();
-            ArrayList<PsiReferenceExpression> refs = new ArrayList<>(
-                    PsiTreeUtil.findChildrenOfType(currentMethod.getBody(), PsiReferenceExpression.class));
-            // reverse the list order to refactor the inner references first if one reference should be assigned to the other
-            Collections.reverse(refs);
-            for (PsiReferenceExpression ref : refs) {
-                int parameterIndexInDataclump = PsiUtils.getElementIndex(smellyParameters, ref);
-                if (parameterIndexInDataclump != -1) {
-                    // refactor this reference
-                    PsiUtils.refactorReferenceToSetterGetter(project, ref, "m" + className, ref.getText());
+            List<PsiReferenceExpression> refs = new ArrayList<>();
+            List<PsiParameter> refTargets = new ArrayList<>();
+            for (PsiReferenceExpression ref : PsiTreeUtil.findChildrenOfType(currentMethod.getBody(), PsiReferenceExpression.class)) {
+                PsiElement target = ref.resolve();
+                if (target instanceof PsiParameter && smellyParameters.contains(target)) {
+                    refs.add(ref);
+                    refTargets.add((PsiParameter) target);
                 }
-
+            }
+            // start from the last reference to refactor the inner references first if one reference should be assigned to the other
+            ReferenceRewriter rewriter = new ReferenceRewriter(project, "m" + className, false);
+            for (int i = refs.size() - 1; i >= 0; i--) {
+                rewriter.rewrite(refs.get(i), refTargets.get(i).getName());
             }
 
             // 3. Delete the smelly parameters from method signature
@@ -235,36 +361,8 @@ public class DataclassRefactoringService {
             currentPsiParameterList.addBefore(factory.createParameter(
                     "m" + className, factory.createTypeFromText(classQualifiedName, null)), currentPsiParameterList.getParameter(0));
 
-            // add an import for the new class if required
-            JavaCodeStyleManager.getInstance(project).shortenClassReferences(currentMethod.getContainingFile());
-        }
-    }
-
-    /**
-     * search for all calls of the smelly methods in all project classes and refactor them
-     * to use the new class name instead of the smelly parameters or fields
-     *
-     * @param currentDataClump
-     * @param className
-     */
-    public static void preserveWholeObjectInMethodsCalls(PsiGroup currentDataClump, String className) {
-
-
-        // go through all methods affected by this data clump instance
-        for (PsiElement connection : currentDataClump.getConnections()) {
-            // search for each call for the current method in this project
-            Collection<PsiReference> allReferences = ReferencesSearch.search(connection.getParent(), GlobalSearchScope.projectScope(project)).findAll();
-            PsiUtils.log(LOGGER_NAME, "allReferences: " + allReferences.size());
-
-
-            for (PsiReference ref : allReferences) {
-                // refactor the affected call to use the new class instead of the data clump variables
-                if (PsiTreeUtil.instanceOf(ref.getElement().getParent(), PsiMethodCallExpression.class)) {
-                    refactorCall(currentDataClump, className, (PsiParameterList) connection, (PsiMethodCallExpression) ref.getElement().getParent());
-                } else {
-                    PsiUtils.log(LOGGER_NAME, "       §§§§§§§§§§§§§   not a PsiMethodCallExpression: " + ref + " - file: " + ref.getElement().getContainingFile().getContainingDirectory() + ref.getElement().getContainingFile());
-                }
-            }
+            // remember the file to add an import for the new class if required
+            touchedFiles.add(currentMethod.getContainingFile());
         }
     }
 
@@ -274,12 +372,13 @@ public class DataclassRefactoringService {
      * @param className
      * @param paramList
      * @param call
+     * @param touchedFiles          collects the changed files, their imports are added once at the end
      */
-    private static void refactorCall(PsiGroup currentDataClump, String className, PsiParameterList paramList, PsiMethodCallExpression call) {
+    private static void refactorCall(PsiGroup currentDataClump, String className, PsiParameterList paramList, PsiMethodCallExpression call, Set<PsiFile> touchedFiles) {
         PsiElementFactory factory = JavaPsiFacade.getInstance(project).getElementFactory();
 
 
-        String[] constructorArguments = new String[currentDataClump.getElements().size()];
+        String[] constructorArguments = new String[currentDataClump.size()];
 
         PsiExpressionList expList = call.getArgumentList();
         PsiExpression[] parametersExpressions = expList.getExpressions();
@@ -288,7 +387,7 @@ public class DataclassRefactoringService {
         List<Integer> parameterIndexesToDelete = new ArrayList<>();
         // collect parameter values from the current call to be added to the constructor
         for (int x = 0; x < paramList.getParametersCount(); x++) {
-            int parameterIndexInDataclump = PsiUtils.getElementIndex(currentDataClump.getElements(), paramList.getParameter(x));
+            int parameterIndexInDataclump = currentDataClump.getElementIndex(paramList.getParameter(x));
 
             if (parameterIndexInDataclump != -1) {
                 constructorArguments[parameterIndexInDataclump] = call.getArgumentList().getExpressions()[x].getText();
@@ -309,41 +408,11 @@ public class DataclassRefactoringService {
             expList.add(factory.createExpressionFromText("new " + className + "(" + String.join(",", constructorArguments) + ")", null));
         }
 
-        // add an import for the new class if required
-        JavaCodeStyleManager.getInstance(project).shortenClassReferences(call.getContainingFile());
+        // remember the file to add an import for the new class if required
+        touchedFiles.add(call.getContainingFile());
         PsiUtils.log(LOGGER_NAME, "Refactored: " + call + " - file: " + call.getContainingFile().getContainingDirectory() + call.getContainingFile());
     }
 
-    /**
-     * Go through all fields affected by this data clump instance in every affected class and refactor them
-     *
-     * @param currentDataClump
-     * @param fullClassName
-     */
-    public static void refactorFieldCalls(PsiGroup currentDataClump, String fullClassName) {
-        PsiUtils.log(LOGGER_NAME, "------------------ refactorFieldCallsInProject -----------------");
-
-        // go through all fields affected by this data clump instance in every affected class
-        for (PsiElement field : currentDataClump.getElements()) {
-            for (PsiElement dataclumpClass : currentDataClump.getConnections()) {
-                for (PsiField currentField : ((PsiClass) dataclumpClass).getFields()) {
-                    if (((PsiField) field).getName().equals(currentField.getName())) {
-                        PsiUtils.log(LOGGER_NAME, "Refactor Field: " + currentField.getName() + " in class " + ((PsiClass) dataclumpClass).getName());
-
-                        // search for each call for the current method in this project
-                        Collection<PsiReference> allReferences = ReferencesSearch.search(currentField, GlobalSearchScope.projectScope(project)).findAll();
-                        PsiUtils.log(LOGGER_NAME, "allReferences: " + allReferences.size());
-                        String fieldName = currentField.getName();
-
-                        for (PsiReference ref : allReferences) {
-                            refactorOneFieldCall(fullClassName, ref, fieldName);
-                        }
-                    }
-                }
-            }
-        }
-    }
-
     /**
      * Refactor one call of one field
      *
@@ -355,22 +424,7 @@ public class DataclassRefactoringService {
         String className = fullClassName.substring(fullClassName.lastIndexOf('.') + 1);
         PsiClass refClass = PsiUtil.getTopLevelClass(ref.getElement());
         if (refClass !=null && refClass.getQualifiedName()!=null && !refClass.getQualifiedName().equals(fullClassName)) {
-            PsiUtils.refactorReferenceToSetterGetter(project, ref, "m" + className, fieldName);
-        }
-    }
-
-    /**
-     * Remove all fields affected by this data clump instance in all affected classes
-     *
-     * @param currentDataClump
-     * @param fullClassName
-     */
-    public static void removeSmellyFields(PsiGroup currentDataClump, String fullClassName) {
-        PsiUtils.log(LOGGER_NAME, "--- removeSmellyFields ---");
-
-        // go through all fields affected by this data clump instance in every affected class
-        for (PsiElement dataclumpClass : currentDataClump.getConnections()) {
-            removeSmellyFieldsFromOneClass(currentDataClump, fullClassName, dataclumpClass);
+            new ReferenceRewriter(project, "m" + className, true).rewrite(ref, fieldName);
         }
     }
 
@@ -380,38 +434,234 @@ public class DataclassRefactoringService {
      * @param currentDataClump
      * @param fullClassName
      * @param dataclumpClass
+     * @param touchedFiles          collects the changed files, their imports are added once at the end
      */
-    private static void removeSmellyFieldsFromOneClass(PsiGroup currentDataClump, String fullClassName, PsiElement dataclumpClass) {
+    public static void removeSmellyFieldsFromOneClass(PsiGroup currentDataClump, String fullClassName, PsiElement dataclumpClass, Set<PsiFile> touchedFiles) {
         PsiElementFactory factory = JavaPsiFacade.getInstance(project).getElementFactory();
         String className = fullClassName.substring(fullClassName.lastIndexOf('.') + 1);
-        String[] constructorsParams = new String[currentDataClump.getElements().size()];
+        String[] constructorsParams = new String[currentDataClump.size()];
         HashMap<String, String> fieldsValues = new HashMap<>();
-        for (PsiElement field : currentDataClump.getElements()) {
-            fieldsValues.put(((PsiField) field).getName(), PsiUtils.getDefaultValue(((PsiField) field).getType().getPresentableText()));
+        // the names and types are taken from the instance, the fields of the classes refactored before are already deleted
+        for (int i = 0; i < currentDataClump.size(); i++) {
+            fieldsValues.put(currentDataClump.getElementName(i), PsiUtils.getDefaultValue(currentDataClump.getElementTypeText(i)));
         }
         // remove the smelly fields
         for (PsiField currentField : ((PsiClass) dataclumpClass).getFields()) {
-            for (PsiElement field : currentDataClump.getElements()) {
-                if (((PsiField) field).getName().equals(currentField.getName())) {
-                    if (currentField.getInitializer() != null) {
-                        fieldsValues.put(((PsiField) field).getName(), currentField.getInitializer().getText());
-                    }
-                    currentField.delete();
+            if (currentDataClump.hasElement(currentField)) {
+                if (currentField.getInitializer() != null) {
+                    fieldsValues.put(currentField.getName(), currentField.getInitializer().getText());
                 }
+                currentField.delete();
             }
         }
         // add the new class field with the given values form other fields or the default values
-        int i = 0;
-        for (PsiElement field : currentDataClump.getElements()) {
-            constructorsParams[i] = fieldsValues.get(((PsiField) field).getName());
-            i++;
+        for (int i = 0; i < currentDataClump.size(); i++) {
+            constructorsParams[i] = fieldsValues.get(currentDataClump.getElementName(i));
         }
         PsiField field = factory.createFieldFromText("public " + fullClassName +
                 " m" + className + " = new " + fullClassName +
                 "(" + StringUtils.join(constructorsParams, ", ") + ");", null);
         dataclumpClass.add(field);
 
-        // add an import for the new class if required
-        JavaCodeStyleManager.getInstance(project).shortenClassReferences(dataclumpClass.getContainingFile());
+        // remember the file to add an import for the new class if required
+        touchedFiles.add(dataclumpClass.getContainingFile());
+    }
+
+    /**
+     * Returns the elements whose usages have to be refactored for the given data clumps instance,
+     * the smelly methods for parameters instances and the smelly fields in every class for fields instances
+     *
+     * @param currentDataClump
+     * @return a list of methods or fields
+     */
+    static List<PsiElement> getUsageTargets(PsiGroup currentDataClump) {
+        List<PsiElement> targets = new ArrayList<>();
+        final boolean isParameterDataclump = currentDataClump.isParameterGroup();
+
+        for (PsiElement connection : currentDataClump.getConnections()) {
+            if (isParameterDataclump) {
+                targets.add(connection.getParent());
+            } else {
+                for (int i = 0; i < currentDataClump.size(); i++) {
+                    PsiField currentField = ((PsiClass) connection).findFieldByName(currentDataClump.getElementName(i), false);
+                    if (currentField != null) {
+                        targets.add(currentField);
+                    }
+                }
+            }
+        }
+        return targets;
+    }
+
+    /**
+     * Searches the usages of all given extractions concurrently. Must be called in a background thread
+     * with a progress indicator, every search runs in its own read action.
+     *
+     * @param currentProject
+     * @param extractions
+     * @return the found references of every usage target
+     */
+    static Map<PsiElement, Collection<PsiReference>> findUsages(@NotNull Project currentProject, List<DataclumpExtraction> extractions) {
+        List<PsiElement> targets = ReadAction.compute(() -> {
+            List<PsiElement> results = new ArrayList<>();
+            for (DataclumpExtraction extraction : extractions) {
+                results.addAll(getUsageTargets(extraction.getDataClump()));
+            }
+            return results;
+        });
+
+        Map<PsiElement, Collection<PsiReference>> usages = new ConcurrentHashMap<>();
+        GlobalSearchScope searchScope = GlobalSearchScope.projectScope(currentProject);
+        boolean completed = JobLauncher.getInstance().invokeConcurrentlyUnderProgress(targets,
+                ProgressManager.getInstance().getProgressIndicator(),
+                target -> {
+                    usages.put(target, ReadAction.compute(() -> ReferencesSearch.search(target, searchScope).findAll()));
+                    return true;
+                });
+        if (!completed) {
+            throw new ProcessCanceledException();
+        }
+        PsiUtils.log(LOGGER_NAME, "usages searched for " + usages.size() + " targets");
+        return usages;
+    }
+
+    /**
+     * Applies the planned extractions in one undoable command. The new classes are created first, then the calls
+     * are refactored file by file and the imports of every changed file are added only once at the end.
+     * The changes are applied in short write actions with a progress bar, canceling it rolls all changes back.
+     *
+     * @param currentProject
+     * @param commandName       name of the undoable command
+     * @param extractions       the planned extractions
+     * @param usages            the references of every usage target, collected before the write action
+     * @return true if all changes have been applied, false if the user canceled them
+     */
+    static boolean applyExtractions(@NotNull Project currentProject, String commandName, List<DataclumpExtraction> extractions,
+                                    Map<PsiElement, Collection<PsiReference>> usages) {
+        project = currentProject;
+        refactoringTimer.startTimer();
+        refactoringTimer.setClassName(extractions.get(0).getClassName() + " (" + extractions.size() + " classes)");
+
+        ChunkedWriteCommand command = new ChunkedWriteCommand(project, commandName);
+        Set<PsiFile> touchedFiles = new LinkedHashSet<>();
+
+        //======== create the new classes =========
+        for (DataclumpExtraction extraction : extractions) {
+            command.add(() -> {
+                if (extraction.getExistingClass() != null) {
+                    extraction.setQualifiedName(extraction.getExistingClass().getQualifiedName());
+                } else {
+                    extraction.setQualifiedName(PsiUtils.extractVariablesClass(project, extraction.getDirectory(),
+                            extraction.getClassName(), extraction.getDataClump().getElements()));
+                }
+            });
+        }
+
+        //======== refactor the calls in all project classes, grouped per file =========
+        Map<PsiFile, List<UsageEdit>> editsPerFile = collectUsageEdits(extractions, usages);
+        for (List<UsageEdit> fileEdits : editsPerFile.values()) {
+            // start from the end of the file so nested calls are refactored before their outer calls
+            fileEdits.sort((edit1, edit2) -> Integer.compare(edit2.getOffset(), edit1.getOffset()));
+            for (UsageEdit edit : fileEdits) {
+                command.add(() -> edit.apply(touchedFiles));
+            }
+        }
+
+        //======== refactor the affected methods and classes themselves =========
+        for (DataclumpExtraction extraction : extractions) {
+            PsiGroup dataClump = extraction.getDataClump();
+            if (dataClump.isParameterGroup()) {
+                command.add(() -> preserveWholeObjectInOriginalClasses(dataClump, extraction.getClassName(), extraction.getQualifiedName(), touchedFiles));
+            } else {
+                for (PsiElement dataclumpClass : dataClump.getConnections()) {
+                    command.add(() -> removeSmellyFieldsFromOneClass(dataClump, extraction.getQualifiedName(), dataclumpClass, touchedFiles));
+                }
+            }
+        }
+
+        // add the imports for the new classes once per file, the touched files are known after all other changes
+        command.add(() -> {
+            for (PsiFile file : touchedFiles) {
+                command.add(() -> {
+                    if (file.isValid()) {
+                        JavaCodeStyleManager.getInstance(project).shortenClassReferences(file);
+                    }
+                });
+            }
+        });
+
+        boolean isCompleted = command.run();
+
+        refactoringTimer.stopTimer();
+        refactoringTimer.printMessage();
+        return isCompleted;
+    }
+
+    /**
+     * Collects one edit for every found reference of every extraction and groups them by their file
+     *
+     * @param extractions
+     * @param usages
+     * @return edits grouped per file
+     */
+    private static Map<PsiFile, List<UsageEdit>> collectUsageEdits(List<DataclumpExtraction> extractions,
+                                                                   Map<PsiElement, Collection<PsiReference>> usages) {
+        Map<PsiFile, List<UsageEdit>> editsPerFile = new LinkedHashMap<>();
+        for (DataclumpExtraction extraction : extractions) {
+            PsiGroup dataClump = extraction.getDataClump();
+            for (PsiElement target : getUsageTargets(dataClump)) {
+                for (PsiReference ref : usages.getOrDefault(target, Collections.emptyList())) {
+                    PsiElement refElement = ref.getElement();
+                    if (!refElement.isValid()) {
+                        continue;
+                    }
+                    editsPerFile.computeIfAbsent(refElement.getContainingFile(), file -> new ArrayList<>())
+                            .add(new UsageEdit(extraction, target, ref));
+                }
+            }
+        }
+        return editsPerFile;
+    }
+
+    /**
+     * One planned change of a call or a field reference
+     */
+    private static class UsageEdit {
+        private final DataclumpExtraction extraction;
+        private final PsiElement target;
+        private final PsiReference reference;
+        private final int offset;
+
+        UsageEdit(DataclumpExtraction extraction, PsiElement target, PsiReference reference) {
+            this.extraction = extraction;
+            this.target = target;
+            this.reference = reference;
+            this.offset = reference.getElement().getTextRange().getStartOffset();
+        }
+
+        int getOffset() {
+            return offset;
+        }
+
+        /**
+         * Refactor the referenced call or field access to use the new class
+         *
+         * @param touchedFiles
+         */
+        void apply(Set<PsiFile> touchedFiles) {
+            PsiElement refElement = reference.getElement();
+            if (!refElement.isValid()) {
+                PsiUtils.log(LOGGER_NAME, "skip invalid reference in file: " + refElement.getContainingFile());
+                return;
+            }
+            if (target instanceof PsiMethod) {
+                if (refElement.getParent() instanceof PsiMethodCallExpression) {
+                    refactorCall(extraction.getDataClump(), extraction.getQualifiedName(), ((PsiMethod) target).getParameterList(),
+                            (PsiMethodCallExpression) refElement.getParent(), touchedFiles);
+                }
+            } else {
+                refactorOneFieldCall(extraction.getQualifiedName(), reference, ((PsiField) target).getName());
+            }
+        }
     }
 }
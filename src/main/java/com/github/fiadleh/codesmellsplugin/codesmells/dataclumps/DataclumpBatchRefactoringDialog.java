@@ -0,0 +1,57 @@
+package com.github.fiadleh.codesmellsplugin.codesmells.dataclumps;
+
+import com.intellij.openapi.ui.DialogWrapper;
+import com.intellij.ui.components.JBList;
+import com.intellij.ui.components.JBScrollPane;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.List;
+
+/**
+ * Responsible for creating the preview dialog listing all planned data clumps extractions of a batch refactoring
+ *
+ * @author Firas Adleh
+ */
+public class DataclumpBatchRefactoringDialog extends DialogWrapper {
+    private final List<String> previewLines;
+
+    /**
+     * Constructor to initialize the values required for the dialog.
+     *
+     * @param previewLines  one line for every planned class and its occurrences
+     */
+    public DataclumpBatchRefactoringDialog(List<String> previewLines) {
+        super(true); // use current window as parent
+        setTitle("Extract All Data Clumps");
+        this.setOKButtonText("Refactor All");
+        this.previewLines = previewLines;
+
+        // init call  at the end of the constructor
+        init();
+    }
+
+    /**
+     * Creates a scrollable list with all planned extractions.
+     *
+     * @return      JComponent including all swing elements.
+     */
+    @Nullable
+    @Override
+    protected JComponent createCenterPanel() {
+        JPanel dialogPanel = new JPanel(new BorderLayout());
+
+        JLabel label = new JLabel("The following classes will be extracted:");
+        label.setPreferredSize(new Dimension(500, 30));
+        dialogPanel.add(label, BorderLayout.NORTH);
+
+        // the list only renders the visible lines, so long previews stay responsive
+        JBList<String> previewList = new JBList<>(previewLines);
+        JBScrollPane scrollPane = new JBScrollPane(previewList);
+        scrollPane.setPreferredSize(new Dimension(800, 400));
+        dialogPanel.add(scrollPane, BorderLayout.CENTER);
+
+        return dialogPanel;
+    }
+}
@@ -0,0 +1,61 @@
+package com.github.fiadleh.codesmellsplugin.codesmells.dataclumps;
+
+import com.github.fiadleh.codesmellsplugin.services.PsiGroup;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiDirectory;
+
+/**
+ * One planned extraction of a data clumps instance to a new or an already existing class
+ *
+ * @author Firas Adleh
+ */
+class DataclumpExtraction {
+    private final PsiGroup dataClump;
+    private final String className;
+    private final PsiDirectory directory;
+    private final PsiClass existingClass;
+    private String qualifiedName;
+
+    /**
+     * @param dataClump         the data clumps instance to be extracted
+     * @param className         name of the new class or of the existing class
+     * @param directory         the directory to create the new class in
+     * @param existingClass     an already extracted class to be used instead of a new one, or null
+     */
+    DataclumpExtraction(PsiGroup dataClump, String className, PsiDirectory directory, PsiClass existingClass) {
+        this.dataClump = dataClump;
+        this.className = className;
+        this.directory = directory;
+        this.existingClass = existingClass;
+        this.qualifiedName = existingClass == null ? className : existingClass.getQualifiedName();
+    }
+
+    PsiGroup getDataClump() {
+        return dataClump;
+    }
+
+    String getClassName() {
+        return className;
+    }
+
+    PsiDirectory getDirectory() {
+        return directory;
+    }
+
+    PsiClass getExistingClass() {
+        return existingClass;
+    }
+
+    /**
+     * Returns the qualified name of the extracted class, known for new classes only after they have been created
+     *
+     * @return
+     */
+    String getQualifiedName() {
+        return qualifiedName;
+    }
+
+    void setQualifiedName(String qualifiedName) {
+        this.qualifiedName = qualifiedName;
+    }
+}
@@ -0,0 +1,232 @@
+package com.github.fiadleh.codesmellsplugin.codesmells.dataclumps;
+
+import com.github.fiadleh.codesmellsplugin.services.PsiGroup;
+import com.github.fiadleh.codesmellsplugin.util.PsiUtils;
+import com.intellij.codeInspection.LocalQuickFix;
+import com.intellij.codeInspection.ProblemDescriptor;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.*;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * Receives a detected data clumps instance and redirect the refactoring to DataclassRefactoringService.
+ * Each reported problem gets its own instance holding the reported element and a PsiGroup of its partners
+ * and the matched variables, so applying the fix does not need to run the detection again.
+ * A problem reported for all partners of an element holds the largest group of partners sharing the same variables.
+ * The partners are only found again when the fix is applied if the stored group has been changed since the detection.
+ *
+ * @author Firas Adleh
+ */
+public class DataclumpQuickFix implements LocalQuickFix {
+    /**
+     * An identifier used to mark the lines made by this class in log
+     */
+    private static final String LOGGER_NAME = "DataclumpsInspection";
+
+    /**
+     * The reported element, a parameter list or a class
+     */
+    private final SmartPsiElementPointer<PsiElement> sourcePointer;
+
+    /**
+     * The matched variables and the parameter lists or classes of this instance as they were at detection time,
+     * null if no partner shares variables with the reported element
+     */
+    private final PsiGroup group;
+
+    /**
+     * Create the payload of one reported data clumps instance
+     *
+     * @param source    the reported parameter list or class
+     * @param partners  the other parameter lists or classes of this instance
+     * @param variables the matched parameters or fields of the reported element
+     */
+    public DataclumpQuickFix(@NotNull PsiElement source, @NotNull List<? extends PsiElement> partners, @NotNull List<? extends PsiElement> variables) {
+        this.sourcePointer = SmartPointerManager.getInstance(source.getProject()).createSmartPsiElementPointer(source);
+
+        PsiGroup.Builder builder = new PsiGroup.Builder().addElements(variables);
+        builder.addConnection(source);
+        for (PsiElement partner : partners) {
+            builder.addConnection(partner);
+        }
+        this.group = builder.build();
+    }
+
+    /**
+     * Create the payload of a reported element from all its partners, the largest group of partners sharing the
+     * same variables is stored
+     *
+     * @param source              the reported parameter list or class
+     * @param variablesPerPartner the matched parameters or fields of the reported element by partner
+     */
+    public DataclumpQuickFix(@NotNull PsiElement source, @NotNull Map<? extends PsiElement, ? extends List<? extends PsiElement>> variablesPerPartner) {
+        this.sourcePointer = SmartPointerManager.getInstance(source.getProject()).createSmartPsiElementPointer(source);
+        this.group = createLargestGroup(source, variablesPerPartner);
+    }
+
+    /**
+     * Returns the signatures of the matched variables as they were at detection time
+     *
+     * @return a list of "type name" strings
+     */
+    public List<String> getSignatures() {
+        if (group == null) {
+            return Collections.emptyList();
+        }
+        List<String> signatures = new ArrayList<>(group.size());
+        for (int i = 0; i < group.size(); i++) {
+            signatures.add(group.getElementTypeText(i) + " " + group.getElementName(i));
+        }
+        return Collections.unmodifiableList(signatures);
+    }
+
+    /**
+     * Returns a name for this quick fix class
+     * required by testing using LightJavaCodeInsightFixtureTestCase
+     *
+     * @return Quick fix name.
+     */
+    @NotNull
+    @Override
+    public String getName() {
+        return DataclumpsInspection.QUICK_FIX_NAME;
+    }
+
+    @NotNull
+    @Override
+    public String getFamilyName() {
+        return DataclumpsInspection.QUICK_FIX_NAME;
+    }
+
+    /**
+     * The refactoring service starts its own write actions, finding the partners needs a read action only
+     */
+    @Override
+    public boolean startInWriteAction() {
+        return false;
+    }
+
+    /**
+     * This is called when starting the refactoring
+     *
+     * @param project           current project
+     * @param descriptor        information about the data clumps instance
+     */
+    @Override
+    public void applyFix(@NotNull Project project, @NotNull ProblemDescriptor descriptor) {
+        PsiGroup dataClumpsGroup = ReadAction.compute(this::restoreGroup);
+        if (dataClumpsGroup == null) {
+            // the stored instance is stale, find the partners of the reported element again
+            try {
+                dataClumpsGroup = ProgressManager.getInstance().runProcessWithProgressSynchronously(
+                        () -> ReadAction.compute(this::findGroup),
+                        "Searching Data Clumps Partners", true, project);
+            } catch (ProcessCanceledException e) {
+                PsiUtils.log(LOGGER_NAME, "Searching the data clump partners canceled");
+                return;
+            }
+        }
+        if (dataClumpsGroup == null) {
+            return;
+        }
+
+        // call the refactoring service for dataclumps
+        ApplicationManager.getApplication().invokeLater(
+                () -> DataclassRefactoringService.refactor(project, dataClumpsGroup));
+    }
+
+    /**
+     * Checks the instance stored at detection time. Returns null if the payload is empty
+     * or one of its elements has been deleted or changed since the detection.
+     *
+     * @return the data clumps instance or null
+     */
+    private PsiGroup restoreGroup() {
+        if (group == null || sourcePointer.getElement() == null || !group.isValid()) {
+            PsiUtils.log(LOGGER_NAME, "The data clump instance is empty or has been changed since the detection!");
+            return null;
+        }
+
+        // fields instances need at least one other class
+        if (!group.isParameterGroup() && group.getConnections().size() < 2) {
+            PsiUtils.log(LOGGER_NAME, "The other classes in this data clump instance could not found!");
+            return null;
+        }
+        return group;
+    }
+
+    /**
+     * Finds the partners of the reported element again and groups them by the variables they share with it
+     *
+     * @return the data clumps instance or null if the element has no partners anymore
+     */
+    private PsiGroup findGroup() {
+        PsiElement source = sourcePointer.getElement();
+        if (source == null) {
+            PsiUtils.log(LOGGER_NAME, "The data clump instance is not valid anymore!");
+            return null;
+        }
+
+        Map<PsiElement, List<? extends PsiElement>> variablesPerPartner = new LinkedHashMap<>();
+        for (PsiElement partner : DataclumpsInspection.getInstance(source.getProject()).findDataclumpPartners(source)) {
+            variablesPerPartner.put(partner, source instanceof PsiClass
+                    ? PsiUtils.getCommonFields((PsiClass) source, (PsiClass) partner)
+                    : PsiUtils.getCommonParameters((PsiParameterList) source, (PsiParameterList) partner));
+        }
+        PsiGroup largestGroup = createLargestGroup(source, variablesPerPartner);
+        if (largestGroup == null) {
+            PsiUtils.log(LOGGER_NAME, "The other elements in this data clump instance could not found!");
+        }
+        return largestGroup;
+    }
+
+    /**
+     * Groups the partners of the reported element by the variables they share with it.
+     * Returns the group with the most partners, or with the most variables if several groups have as many partners.
+     *
+     * @param source              the reported parameter list or class
+     * @param variablesPerPartner the matched parameters or fields of the reported element by partner
+     * @return the data clumps instance or null if no partner shares variables with the element
+     */
+    private static PsiGroup createLargestGroup(PsiElement source, Map<? extends PsiElement, ? extends List<? extends PsiElement>> variablesPerPartner) {
+        Map<String, List<PsiElement>> partnersPerVariables = new LinkedHashMap<>();
+        Map<String, List<? extends PsiElement>> commonVariables = new HashMap<>();
+        for (Map.Entry<? extends PsiElement, ? extends List<? extends PsiElement>> entry : variablesPerPartner.entrySet()) {
+            PsiElement partner = entry.getKey();
+            List<? extends PsiElement> variables = entry.getValue();
+            if (variables.isEmpty()) {
+                continue;
+            }
+            StringJoiner key = new StringJoiner(",");
+            variables.forEach(variable -> key.add(variable.getText()));
+            partnersPerVariables.computeIfAbsent(key.toString(), k -> new ArrayList<>()).add(partner);
+            commonVariables.put(key.toString(), variables);
+        }
+
+        String largestKey = null;
+        for (String key : partnersPerVariables.keySet()) {
+            if (largestKey == null
+                    || partnersPerVariables.get(key).size() > partnersPerVariables.get(largestKey).size()
+                    || (partnersPerVariables.get(key).size() == partnersPerVariables.get(largestKey).size()
+                    && commonVariables.get(key).size() > commonVariables.get(largestKey).size())) {
+                largestKey = key;
+            }
+        }
+        if (largestKey == null) {
+            return null;
+        }
+
+        PsiGroup.Builder builder = new PsiGroup.Builder().addElements(commonVariables.get(largestKey));
+        builder.addConnection(source);
+        for (PsiElement partner : partnersPerVariables.get(largestKey)) {
+            builder.addConnection(partner);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,252 @@
+package com.github.fiadleh.codesmellsplugin.codesmells.dataclumps;
+
+import com.github.fiadleh.codesmellsplugin.services.PsiGroup;
+import com.github.fiadleh.codesmellsplugin.util.CacheManager;
+import com.github.fiadleh.codesmellsplugin.util.PsiUtils;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.*;
+import com.intellij.psi.search.GlobalSearchScope;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * Extracts all data clumps instances of a scope at once. Every extraction is planned first, then the usages of all
+ * planned instances are searched concurrently and finally all changes are applied in one undoable command.
+ *
+ * @author Firas Adleh
+ */
+public class DataclumpsBatchRefactoring {
+    /**
+     * An identifier used to mark the lines made by this class in log
+     */
+    private static final String LOGGER_NAME = "DataclumpsRefactoring";
+
+    private DataclumpsBatchRefactoring() {
+    }
+
+    /**
+     * The first called method to extract all data clumps instances in the given scope.
+     * Must be called on the EDT, the planning and the search run in background threads with a progress bar.
+     *
+     * @param project
+     * @param scope     only instances whose elements are all inside this scope are extracted
+     */
+    public static void refactorAll(@NotNull Project project, @NotNull GlobalSearchScope scope) {
+        List<DataclumpExtraction> extractions;
+        Map<PsiElement, Collection<PsiReference>> usages;
+        try {
+            extractions = ProgressManager.getInstance().runProcessWithProgressSynchronously(
+                    () -> planExtractions(project, scope),
+                    "Searching Data Clumps", true, project);
+
+            if (extractions.isEmpty()) {
+                Messages.showMessageDialog(project, "No data clumps instances found in the selected scope.",
+                        "Data Clumps Refactoring Info", Messages.getInformationIcon());
+                return;
+            }
+
+            // one preview for all planned extractions
+            if (!new DataclumpBatchRefactoringDialog(createPreview(extractions)).showAndGet()) {
+                PsiUtils.log(LOGGER_NAME, "Batch refactoring canceled");
+                return;
+            }
+
+            usages = ProgressManager.getInstance().runProcessWithProgressSynchronously(
+                    () -> DataclassRefactoringService.findUsages(project, extractions),
+                    "Searching Data Clumps Usages", true, project);
+        } catch (ProcessCanceledException e) {
+            PsiUtils.log(LOGGER_NAME, "Batch refactoring canceled while searching");
+            return;
+        }
+
+        if (!DataclassRefactoringService.applyExtractions(project, "Extract All Data Clumps", extractions, usages)) {
+            PsiUtils.log(LOGGER_NAME, "Batch refactoring canceled while applying the changes");
+            return;
+        }
+
+        Messages.showMessageDialog(project, "Automatic refactoring done! " + extractions.size() + " data clumps instances have been extracted",
+                "Data Clumps Refactoring Info", Messages.getInformationIcon());
+    }
+
+    /**
+     * Plans one extraction for every data clumps instance in the scope. Every method or class takes part
+     * in one extraction only, partners sharing exactly the same variables are merged into one instance.
+     * Every class is planned in its own short read action, so write actions are not blocked during the whole scan.
+     *
+     * @param project
+     * @param scope
+     * @return the planned extractions
+     */
+    private static List<DataclumpExtraction> planExtractions(Project project, GlobalSearchScope scope) {
+        ProgressIndicator indicator = ProgressManager.getInstance().getProgressIndicator();
+        DataclumpsInspection inspection = DataclumpsInspection.getInstance(project);
+        List<DataclumpExtraction> extractions = new ArrayList<>();
+        Set<PsiElement> claimedElements = new HashSet<>();
+        Set<String> plannedNames = new HashSet<>();
+
+        List<PsiClass> allClasses = ReadAction.compute(() -> new ArrayList<>(CacheManager.getAllClasses(project)));
+        for (int i = 0; i < allClasses.size(); i++) {
+            PsiClass currentClass = allClasses.get(i);
+            if (indicator != null) {
+                indicator.checkCanceled();
+                indicator.setFraction((double) i / allClasses.size());
+            }
+            ReadAction.run(() -> {
+                if (!currentClass.isValid() || !isInScope(currentClass, scope)) {
+                    return;
+                }
+                if (indicator != null) {
+                    indicator.setText2(currentClass.getName());
+                }
+
+                planFieldsExtractions(project, scope, inspection, currentClass, extractions, claimedElements, plannedNames);
+
+                for (PsiMethod method : currentClass.getMethods()) {
+                    ProgressManager.checkCanceled();
+                    planParametersExtractions(project, scope, inspection, method, extractions, claimedElements, plannedNames);
+                }
+            });
+        }
+        PsiUtils.log(LOGGER_NAME, "planned extractions: " + extractions.size());
+        return extractions;
+    }
+
+    /**
+     * Plans the extractions of the fields data clumps instances of one class
+     */
+    private static void planFieldsExtractions(Project project, GlobalSearchScope scope, DataclumpsInspection inspection, PsiClass currentClass,
+                                              List<DataclumpExtraction> extractions, Set<PsiElement> claimedElements, Set<String> plannedNames) {
+        if (claimedElements.contains(currentClass)) {
+            return;
+        }
+
+        // group the partners by their common fields
+        Map<String, List<PsiClass>> partnersPerFields = new LinkedHashMap<>();
+        Map<String, List<PsiField>> commonFields = new HashMap<>();
+        for (PsiClass partner : inspection.checkFieldsDataclumps(currentClass, null)) {
+            if (claimedElements.contains(partner) || !isInScope(partner, scope)) {
+                continue;
+            }
+            List<PsiField> fields = PsiUtils.getCommonFields(currentClass, partner);
+            String key = createKey(fields);
+            partnersPerFields.computeIfAbsent(key, k -> new ArrayList<>()).add(partner);
+            commonFields.put(key, fields);
+        }
+
+        for (Map.Entry<String, List<PsiClass>> entry : partnersPerFields.entrySet()) {
+            if (claimedElements.contains(currentClass)) {
+                return;
+            }
+            PsiGroup.Builder builder = new PsiGroup.Builder().addElements(commonFields.get(entry.getKey()));
+            builder.addConnection(currentClass);
+            claimedElements.add(currentClass);
+            for (PsiClass partner : entry.getValue()) {
+                builder.addConnection(partner);
+                claimedElements.add(partner);
+            }
+            PsiGroup dataClump = builder.build();
+            extractions.add(createExtraction(project, dataClump, null, plannedNames));
+        }
+    }
+
+    /**
+     * Plans the extractions of the parameters data clumps instances of one method
+     */
+    private static void planParametersExtractions(Project project, GlobalSearchScope scope, DataclumpsInspection inspection, PsiMethod method,
+                                                  List<DataclumpExtraction> extractions, Set<PsiElement> claimedElements, Set<String> plannedNames) {
+        if (claimedElements.contains(method)) {
+            return;
+        }
+        PsiParameterList currentList = method.getParameterList();
+
+        // group the partners by their common parameters
+        Map<String, List<PsiParameterList>> partnersPerParameters = new LinkedHashMap<>();
+        Map<String, List<PsiParameter>> commonParameters = new HashMap<>();
+        for (PsiParameterList partner : inspection.findParameterDataclumps(method)) {
+            PsiMethod partnerMethod = (PsiMethod) partner.getParent();
+            if (claimedElements.contains(partnerMethod) || partnerMethod.equals(method) || !isInScope(partnerMethod, scope)) {
+                continue;
+            }
+            List<PsiParameter> parameters = PsiUtils.getCommonParameters(currentList, partner);
+            String key = createKey(parameters);
+            partnersPerParameters.computeIfAbsent(key, k -> new ArrayList<>()).add(partner);
+            commonParameters.put(key, parameters);
+        }
+
+        for (Map.Entry<String, List<PsiParameterList>> entry : partnersPerParameters.entrySet()) {
+            if (claimedElements.contains(method)) {
+                return;
+            }
+            PsiGroup.Builder builder = new PsiGroup.Builder().addElements(commonParameters.get(entry.getKey()));
+            builder.addConnection(currentList);
+            claimedElements.add(method);
+            for (PsiParameterList partner : entry.getValue()) {
+                builder.addConnection(partner);
+                claimedElements.add(partner.getParent());
+            }
+            PsiGroup dataClump = builder.build();
+            extractions.add(createExtraction(project, dataClump,
+                    PsiUtils.findParameterObject(project, dataClump.getElements()), plannedNames));
+        }
+    }
+
+    /**
+     * Creates an extraction with a class name that is not used by the project or another planned extraction
+     */
+    private static DataclumpExtraction createExtraction(Project project, PsiGroup dataClump, PsiClass existingClass, Set<String> plannedNames) {
+        PsiDirectory directory = dataClump.getConnections().get(0).getContainingFile().getContainingDirectory();
+        String baseName = PsiUtils.generateClassNameFromVariables(dataClump.getElements());
+        String className = baseName;
+
+        if (existingClass == null) {
+            int suffix = 2;
+            while (plannedNames.contains(directory + "." + className) || !"OK".equals(PsiUtils.checkClassExists(directory, className))) {
+                className = baseName + suffix;
+                suffix++;
+            }
+            plannedNames.add(directory + "." + className);
+        } else {
+            className = existingClass.getName();
+        }
+        PsiUtils.log(LOGGER_NAME, "plan extraction: " + className + " in project " + project.getName());
+        return new DataclumpExtraction(dataClump, className, directory, existingClass);
+    }
+
+    /**
+     * Creates a text line for every planned extraction to be shown in the preview
+     */
+    private static List<String> createPreview(List<DataclumpExtraction> extractions) {
+        List<String> lines = new ArrayList<>();
+        for (DataclumpExtraction extraction : extractions) {
+            String target = extraction.getExistingClass() == null ? "New class " + extraction.getClassName() : "Existing class " + extraction.getQualifiedName();
+            lines.add(target + ": " + String.join(", ", DataclassRefactoringService.prepareElementsText(extraction.getDataClump())));
+            for (String file : DataclassRefactoringService.prepareFilesText(extraction.getDataClump())) {
+                lines.add("        " + file);
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Makes a key out of the variables text, used to merge partners with the same variables
+     */
+    private static String createKey(List<? extends PsiElement> variables) {
+        StringJoiner key = new StringJoiner(",");
+        for (PsiElement variable : variables) {
+            key.add(variable.getText());
+        }
+        return key.toString();
+    }
+
+    private static boolean isInScope(PsiElement element, GlobalSearchScope scope) {
+        VirtualFile file = element.getContainingFile().getVirtualFile();
+        return file != null && scope.contains(file);
+    }
+}
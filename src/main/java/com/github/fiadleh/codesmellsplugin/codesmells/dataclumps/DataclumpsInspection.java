@@ -1,16 +1,23 @@
 package com.github.fiadleh.codesmellsplugin.codesmells.dataclumps;
 
 import com.github.fiadleh.codesmellsplugin.services.CodesmellTimer;
-import com.github.fiadleh.codesmellsplugin.services.PsiGroup;
 import com.github.fiadleh.codesmellsplugin.util.CacheManager;
+import com.github.fiadleh.codesmellsplugin.util.CandidateScope;
+import com.github.fiadleh.codesmellsplugin.util.DetectionExclusions;
+import com.github.fiadleh.codesmellsplugin.util.FieldClumpMiner;
+import com.github.fiadleh.codesmellsplugin.util.FileFeatures;
+import com.github.fiadleh.codesmellsplugin.util.OverlapCache;
+import com.github.fiadleh.codesmellsplugin.util.ParameterObjectIndex;
 import com.github.fiadleh.codesmellsplugin.util.PsiUtils;
+import com.github.fiadleh.codesmellsplugin.util.SignatureIndex;
 import com.intellij.codeInspection.*;
+import com.intellij.codeInspection.ex.InspectionToolWrapper;
 import com.intellij.codeInspection.util.InspectionMessage;
-import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.profile.codeInspection.InspectionProjectProfileManager;
 import com.intellij.psi.*;
-import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.ui.DocumentAdapter;
 import com.intellij.util.ui.JBUI;
 import org.jetbrains.annotations.NotNull;
@@ -24,6 +31,7 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.util.*;
 import java.util.List;
+import java.util.function.Supplier;
 
 /**
  * Main inspection class for data clumps. Responsible for starting checks and reporting found instances.
@@ -53,121 +61,101 @@ public class DataclumpsInspection extends LocalInspectionTool {
     private static final int MIN_VARIABLES_COUNT_DEFAULT = 2;
 
     /**
-     * Allow checking methods in the same class, default = true
+     * Short name of this inspection, used to find its options in the current inspection profile
      */
-    private static boolean includeMethodsInSameCLass = true;
+    private static final String SHORT_NAME = "Dataclumps";
+
+    /**
+     * Allow checking methods in the same class, default = true.
+     * The options are public fields so that they are saved with every inspection profile.
+     */
+    public boolean includeMethodsInSameCLass = true;
 
     /**
      * Force hierarchy independence for data clumps fields instances, default = false
      */
-    private static boolean checkHierarchyInFieldsInstances = false;
+    public boolean checkHierarchyInFieldsInstances = false;
 
     /**
      * Force hierarchy independence for data clumps parameters instances, default = false
      */
-    private static boolean checkHierarchyInParametersInstances = false;
+    public boolean checkHierarchyInParametersInstances = false;
 
     /**
      * The current minimum value, it can be changed in inspection preferences
      */
-    private static int minParametersCount = 3;
+    public int minParametersCount = 3;
 
     /**
      * The current minimum value, it can be changed in inspection preferences
      */
-    private static int minFieldsCount = 3;
-
+    public int minFieldsCount = 3;
 
     /**
-     * A flag for activating writing reported data clumps instances to an external XML file
+     * The modules searched for data clumps partners, default = whole project
      */
-    private static final boolean DEBUG_XML = false;
+    public CandidateScope candidateScope = CandidateScope.PROJECT;
 
     /**
-     * An external XML file containing reported data clumps instances
+     * Exclude files in test source roots, default = true.
+     * The exclusions are applied once the settings are committed, the caches are built again then.
      */
-    private static FileWriter outputFile = null;
+    public boolean excludeTestSources = true;
 
     /**
-     * An identifier used to mark the lines made by this class in log
+     * Exclude files in generated source roots or marked as generated by a plugin, default = true
      */
-    private static final String LOGGER_NAME = "DataclumpsInspection";
-
-    /**
-     * The refactoring class for data clumps parameters instances
-     */
-    private final ParameterDataClumpFix parameterDataclumpQuickFix = new ParameterDataClumpFix();
+    public boolean excludeGeneratedSources = true;
 
     /**
-     * The refactoring class for data clumps fields instances
+     * Comma separated glob patterns matched against the file path relative to the project directory
      */
-    private final FieldsDataClumpFix fieldsDataclumpQuickFix = new FieldsDataClumpFix();
+    public String excludedGlobs = DetectionExclusions.DEFAULT_EXCLUDED_GLOBS;
 
 
     /**
-     * A timer to measure the required time for searching
+     * A flag for activating writing reported data clumps instances to an external XML file
      */
-    private final CodesmellTimer detectionTimer = new CodesmellTimer("Dataclumps detection");
-
+    private static final boolean DEBUG_XML = false;
 
     /**
-     * adds another report problem to be detected by automatic inspection testing
-     * this value should be always false and turned true only by inspection testing
+     * An external XML file containing reported data clumps instances
      */
-    private static boolean isTestingReports = false;
+    private static FileWriter outputFile = null;
 
     /**
-     * Update the includeMethodsInSameCLass value
-     * called from the inspection configuration page
-     *
-     * @param includeMethodsInSameCLass new boolean value
+     * An identifier used to mark the lines made by this class in log
      */
-    public static void setIncludeMethodsInSameCLass(boolean includeMethodsInSameCLass) {
-        DataclumpsInspection.includeMethodsInSameCLass = includeMethodsInSameCLass;
-    }
+    private static final String LOGGER_NAME = "DataclumpsInspection";
 
     /**
-     * Update the checkHierarchyInFieldsInstances value
-     * called from the inspection configuration page
-     *
-     * @param checkHierarchyInFieldsInstances
+     * A timer to measure the required time for searching
      */
-    public static void setCheckHierarchyInFieldsInstances(boolean checkHierarchyInFieldsInstances) {
-        DataclumpsInspection.checkHierarchyInFieldsInstances = checkHierarchyInFieldsInstances;
-    }
+    private final CodesmellTimer detectionTimer = new CodesmellTimer("Dataclumps detection");
 
-    /**
-     * Update the checkHierarchyInParametersInstances value
-     * called from the inspection configuration page
-     *
-     * @param checkHierarchyInParametersInstances
-     */
-    public static void setCheckHierarchyInParametersInstances(boolean checkHierarchyInParametersInstances) {
-        DataclumpsInspection.checkHierarchyInParametersInstances = checkHierarchyInParametersInstances;
-    }
 
     /**
-     * Update the minParametersCount value
-     * called from the inspection configuration page
-     *
-     * @param minParametersCount
+     * adds another report problem to be detected by automatic inspection testing
+     * this value should be always false and turned true only by inspection testing
      */
-    public static void setMinParametersCount(int minParametersCount) {
-        DataclumpsInspection.minParametersCount = minParametersCount;
-    }
+    private static boolean isTestingReports = false;
 
     /**
-     * Update the minFieldsCount value
-     * called from the inspection configuration page
+     * Returns the data clumps inspection of the current inspection profile of the given project,
+     * used by the actions and quick fixes to detect data clumps with the options of the profile
      *
-     * @param minFieldsCount
+     * @param project
+     * @return
      */
-    public static void setMinFieldsCount(int minFieldsCount) {
-        DataclumpsInspection.minFieldsCount = minFieldsCount;
+    public static DataclumpsInspection getInstance(Project project) {
+        InspectionToolWrapper<?, ?> toolWrapper = InspectionProjectProfileManager.getInstance(project)
+                .getCurrentProfile().getInspectionTool(SHORT_NAME, project);
+        if (toolWrapper != null && toolWrapper.getTool() instanceof DataclumpsInspection) {
+            return (DataclumpsInspection) toolWrapper.getTool();
+        }
+        return new DataclumpsInspection();
     }
 
-
-
     /**
      * this is called only when testing inspections to catch all reported problems
      */
@@ -199,14 +187,21 @@ public class DataclumpsInspection extends LocalInspectionTool {
         final JCheckBox includeMethodsInSameCLassCB = new JCheckBox("Include methods in same cLass", includeMethodsInSameCLass);
         final JCheckBox checkHierarchyInFieldsInstancesCB = new JCheckBox("Classes in fields data clump instances must have different hierarchy", checkHierarchyInFieldsInstances);
         final JCheckBox checkHierarchyInParametersInstancesCB = new JCheckBox("Classes in parameters data clump instances must have different hierarchy", checkHierarchyInParametersInstances);
+        final JCheckBox excludeTestSourcesCB = new JCheckBox("Exclude test sources", excludeTestSources);
+        final JCheckBox excludeGeneratedSourcesCB = new JCheckBox("Exclude generated sources", excludeGeneratedSources);
+        JLabel labelExcludedGlobs = new JLabel("Excluded paths (glob): ");
+        final JTextField excludedGlobsTF = new JTextField(excludedGlobs, 20);
+        JLabel labelCandidateScope = new JLabel("Search partners in: ");
+        final JComboBox<CandidateScope> candidateScopeCB = new JComboBox<>(CandidateScope.values());
+        candidateScopeCB.setSelectedItem(candidateScope);
 
         minParametersCountTF.getDocument().addDocumentListener(new DocumentAdapter() {
             public void textChanged(@NotNull DocumentEvent event) {
                 if (!minParametersCountTF.getText().equals("")) {
-                    setMinParametersCount(Integer.parseInt(minParametersCountTF.getText()));
+                    minParametersCount = Integer.parseInt(minParametersCountTF.getText());
                 }
                 if (minParametersCount < MIN_VARIABLES_COUNT_DEFAULT) {
-                    setMinParametersCount(MIN_VARIABLES_COUNT_DEFAULT);
+                    minParametersCount = MIN_VARIABLES_COUNT_DEFAULT;
                 }
             }
         });
@@ -214,32 +209,33 @@ public class DataclumpsInspection extends LocalInspectionTool {
         minFieldsCountTF.getDocument().addDocumentListener(new DocumentAdapter() {
             public void textChanged(@NotNull DocumentEvent event) {
                 if (!minFieldsCountTF.getText().equals("")) {
-                    setMinFieldsCount(Integer.parseInt(minFieldsCountTF.getText()));
+                    minFieldsCount = Integer.parseInt(minFieldsCountTF.getText());
                 }
                 if (minFieldsCount < MIN_VARIABLES_COUNT_DEFAULT) {
-                    setMinFieldsCount(MIN_VARIABLES_COUNT_DEFAULT);
+                    minFieldsCount = MIN_VARIABLES_COUNT_DEFAULT;
                 }
             }
         });
 
-        includeMethodsInSameCLassCB.addItemListener(e -> {
-            setIncludeMethodsInSameCLass(false);
-            if (e.getStateChange() == ItemEvent.SELECTED) {
-                setIncludeMethodsInSameCLass(true);
-            }
-        });
+        includeMethodsInSameCLassCB.addItemListener(e -> includeMethodsInSameCLass = e.getStateChange() == ItemEvent.SELECTED);
 
-        checkHierarchyInFieldsInstancesCB.addItemListener(e -> {
-            setCheckHierarchyInFieldsInstances(false);
+        checkHierarchyInFieldsInstancesCB.addItemListener(e -> checkHierarchyInFieldsInstances = e.getStateChange() == ItemEvent.SELECTED);
+
+        checkHierarchyInParametersInstancesCB.addItemListener(e -> checkHierarchyInParametersInstances = e.getStateChange() == ItemEvent.SELECTED);
+
+        candidateScopeCB.addItemListener(e -> {
             if (e.getStateChange() == ItemEvent.SELECTED) {
-                setCheckHierarchyInFieldsInstances(true);
+                candidateScope = (CandidateScope) e.getItem();
             }
         });
 
-        checkHierarchyInParametersInstancesCB.addItemListener(e -> {
-            setCheckHierarchyInParametersInstances(false);
-            if (e.getStateChange() == ItemEvent.SELECTED) {
-                setCheckHierarchyInParametersInstances(true);
+        excludeTestSourcesCB.addItemListener(e -> excludeTestSources = e.getStateChange() == ItemEvent.SELECTED);
+
+        excludeGeneratedSourcesCB.addItemListener(e -> excludeGeneratedSources = e.getStateChange() == ItemEvent.SELECTED);
+
+        excludedGlobsTF.getDocument().addDocumentListener(new DocumentAdapter() {
+            public void textChanged(@NotNull DocumentEvent event) {
+                excludedGlobs = excludedGlobsTF.getText();
             }
         });
 
@@ -275,6 +271,32 @@ public class DataclumpsInspection extends LocalInspectionTool {
         constraints.gridwidth = 2;
         newPanel.add(checkHierarchyInParametersInstancesCB, constraints);
 
+        constraints.gridx = 0;
+        constraints.gridy = 5;
+        constraints.gridwidth = 1;
+        newPanel.add(labelCandidateScope, constraints);
+
+        constraints.gridx = 1;
+        newPanel.add(candidateScopeCB, constraints);
+
+        constraints.gridx = 0;
+        constraints.gridy = 6;
+        constraints.gridwidth = 2;
+        newPanel.add(excludeTestSourcesCB, constraints);
+
+        constraints.gridx = 0;
+        constraints.gridy = 7;
+        constraints.gridwidth = 2;
+        newPanel.add(excludeGeneratedSourcesCB, constraints);
+
+        constraints.gridx = 0;
+        constraints.gridy = 8;
+        constraints.gridwidth = 1;
+        newPanel.add(labelExcludedGlobs, constraints);
+
+        constraints.gridx = 1;
+        newPanel.add(excludedGlobsTF, constraints);
+
         return newPanel;
     }
 
@@ -319,6 +341,7 @@ public class DataclumpsInspection extends LocalInspectionTool {
         if (PsiUtils.isDebugMode()) {
             detectionTimer.stopTimer();
             detectionTimer.printMessage();
+            PsiUtils.log(LOGGER_NAME, "caches: " + CacheManager.getDiagnostics());
         }
 
         if (DEBUG_XML) {
@@ -342,14 +365,35 @@ public class DataclumpsInspection extends LocalInspectionTool {
     @NotNull
     @Override
     public PsiElementVisitor buildVisitor(@NotNull final ProblemsHolder holder, boolean isOnTheFly) {
+        VirtualFile virtualFile = holder.getFile().getVirtualFile();
+        if (virtualFile != null && DetectionExclusions.isExcluded(holder.getProject(), virtualFile)) {
+            // excluded files are not part of the detection
+            return PsiElementVisitor.EMPTY_VISITOR;
+        }
         return new JavaElementVisitor() {
 
-
+            /**
+             * The classes and methods are read from the shared features of the file instead of visiting every element
+             */
             @Override
-            public void visitClass(PsiClass currentClass) {
-                if (currentClass.getQualifiedName() != null && !CacheManager.getAllClassesQualifiedNames().contains(currentClass.getQualifiedName())) {
+            public void visitJavaFile(PsiJavaFile file) {
+                FileFeatures features = FileFeatures.getInstance(file);
+                for (PsiClass currentClass : features.getClasses()) {
+                    visitDataclumpsClass(currentClass);
+                }
+                for (FileFeatures.MethodFeatures method : features.getMethods()) {
+                    if (isCheckedMethod(method.getMethod())) {
+                        checkParameterDataclumps(method.getParameterList(), holder);
+                    }
+                }
+            }
+
+            private void visitDataclumpsClass(PsiClass currentClass) {
+                if (currentClass.getQualifiedName() != null && !CacheManager.isClassCached(currentClass.getQualifiedName())) {
                     CacheManager.addClassToCache(currentClass);
                 }
+                // keep the parameter object index up to date with the current fields of this class
+                ParameterObjectIndex.indexClass(currentClass);
 
                 // check fields in this class for data clumps
                 checkFieldsDataclumps(currentClass, holder);
@@ -357,32 +401,44 @@ public class DataclumpsInspection extends LocalInspectionTool {
                 detectionTimer.setClassName(currentClass.getName() + ", TextLength = " + currentClass.getTextLength() + ", Methods = " +
                         currentClass.getMethods().length + " ");
             }
+        };
+    }
 
-            @Override
-            public void visitReferenceExpression(PsiReferenceExpression psiReferenceExpression) {
-                //To avoid duplicate visitations
-            }
-
-            @Override
-            public void visitMethod(PsiMethod method) {
-
-                PsiParameterList list = method.getParameterList();
-                PsiClass currentClass = method.getContainingClass();
-
-                // exclude methods inherited from parent class
-                if (method.hasAnnotation("java.lang.Override")) {
-                    return;
-                }
-
-                if (list.getParametersCount() >= minParametersCount &&
-                        currentClass != null && !method.getName().equals(currentClass.getName()) // avoid constructors
-                ) {
-                    checkParameterDataclumps(list, holder);
+    /**
+     * Checks if the parameters of the given method should be searched for data clumps
+     *
+     * @param method
+     * @return false for overriding methods, constructors and short parameter lists
+     */
+    private boolean isCheckedMethod(PsiMethod method) {
+        PsiClass currentClass = method.getContainingClass();
+        if (method.getParameterList().getParametersCount() < minParametersCount ||
+                currentClass == null || method.getName().equals(currentClass.getName())) { // avoid constructors
+            return false;
+        }
 
-                }
+        // exclude methods inherited from parent class, the flag is read from the index and resolved only for files not indexed
+        return !SignatureIndex.isOverriding(method, false);
+    }
 
+    /**
+     * Searches for parameters data clumps instances of the given method without reporting them.
+     * Already extracted classes are not included in the results.
+     *
+     * @param method method to be checked
+     * @return a list of the other parameter lists containing data clumps
+     */
+    List<PsiParameterList> findParameterDataclumps(PsiMethod method) {
+        List<PsiParameterList> results = new ArrayList<>();
+        if (!isCheckedMethod(method)) {
+            return results;
+        }
+        for (PsiParameterList parameterList : checkParameterDataclumps(method.getParameterList(), null)) {
+            if (!((PsiMethod) parameterList.getParent()).isConstructor()) {
+                results.add(parameterList);
             }
-        };
+        }
+        return results;
     }
 
     /**
@@ -390,55 +446,176 @@ public class DataclumpsInspection extends LocalInspectionTool {
      * also reports the data clumps if a problem holder is passed
      *
      * @param currentClass class to be scanned
-     * @param holder       if not null, report all found data clumps as a problems
+     * @param holder       if not null, report all found data clumps as one problem on the class fields
      * @return a list of classes having the same group of fields as the given class
      */
-    private ArrayList<PsiClass> checkFieldsDataclumps(PsiClass currentClass, ProblemsHolder holder) {
+    ArrayList<PsiClass> checkFieldsDataclumps(PsiClass currentClass, ProblemsHolder holder) {
         ArrayList<PsiClass> dataclumpClasses = new ArrayList<>();
         String currentClassQualifiedName = currentClass.getQualifiedName();
         if (currentClassQualifiedName == null) {
             return dataclumpClasses;
         }
-        List<PsiClass> allClasses = new ArrayList<>(CacheManager.getAllClasses(currentClass.getProject()));
-        for (PsiClass c : allClasses) {
+
+        // use the mined clumps if they are ready, otherwise compare this class with its candidates
+        List<FieldClumpMiner.FieldClump> clumps = FieldClumpMiner.findClumps(currentClass, minFieldsCount);
+        if (clumps != null) {
+            return checkFieldClumps(currentClass, clumps, holder);
+        }
+
+        // the partners are reported together, the range covers the common fields of all of them
+        Set<String> moduleNames = candidateScope.getModuleNames(currentClass);
+        Set<PsiField> dataclumpFields = new HashSet<>();
+        Map<PsiElement, List<? extends PsiElement>> fieldsPerPartner = new LinkedHashMap<>();
+        int maxCommonFields = 0;
+        for (Map.Entry<PsiClass, Integer> overlap : getFieldsOverlaps(currentClass, moduleNames).entrySet()) {
+            PsiClass c = overlap.getKey();
             try {
-                if (
-                        c.isValid() &&
-                                PsiUtils.countCommonFields(currentClass, c) >= minFieldsCount &&
-                                !currentClassQualifiedName.equals(c.getQualifiedName()) &&
-                                (!checkHierarchyInFieldsInstances || !PsiUtils.hasCommonHierarchy(currentClass, c))
-                ) {
-
-                    List<PsiField> dataclumpFields = PsiUtils.getCommonFields(currentClass, c);
+                if (overlap.getValue() >= minFieldsCount &&
+                        (!checkHierarchyInFieldsInstances || !PsiUtils.hasCommonHierarchy(currentClass, c))) {
+                    List<PsiField> commonFields = PsiUtils.getCommonFields(currentClass, c);
                     dataclumpClasses.add(c);
+                    dataclumpFields.addAll(commonFields);
+                    fieldsPerPartner.put(c, commonFields);
+                    maxCommonFields = Math.max(maxCommonFields, commonFields.size());
+
+                    if (DEBUG_XML) {
+                        StringJoiner allFieldsText = new StringJoiner(" , ");
+                        commonFields.forEach(item -> allFieldsText.add(item.toString()));
+                        writeToXML("<Info type=\"Fields\" fields=\"" + allFieldsText + "\" location=\"" +
+                                currentClass.getContainingFile().getVirtualFile().getUrl() + "  &amp; " +
+                                c.getContainingFile().getVirtualFile().getUrl() +
+                                "\" ></Info>\n");
+                    }
+                }
+            } catch (PsiInvalidElementAccessException e) {
+                // ignore deleted classes
+            }
+        }
 
+        if (!dataclumpClasses.isEmpty()) {
+            registerFieldsProblem(currentClass, dataclumpFields, maxCommonFields, dataclumpClasses.size(), fieldsPerPartner, holder);
+        }
+        return dataclumpClasses;
+    }
 
-                    StringJoiner allFieldsText = new StringJoiner(" , ");
-                    dataclumpFields.forEach(item -> allFieldsText.add(item.toString()));
-
+    /**
+     * Reports the mined clumps of the given class as one problem with the number of other classes of all clumps.
+     * The other classes are only resolved if they are needed for the hierarchy check or the returned list,
+     * otherwise only the classes of the clump with the most partners are resolved for the quick fix.
+     *
+     * @param currentClass class to be reported
+     * @param clumps       the mined clumps of this class
+     * @param holder       if not null, report all found data clumps as one problem on the class fields
+     * @return a list of classes having a group of fields in common with the given class, empty if only reported
+     */
+    private ArrayList<PsiClass> checkFieldClumps(PsiClass currentClass, List<FieldClumpMiner.FieldClump> clumps, ProblemsHolder holder) {
+        ArrayList<PsiClass> dataclumpClasses = new ArrayList<>();
+        boolean isResolvingPartners = holder == null || checkHierarchyInFieldsInstances;
+        Set<String> moduleNames = candidateScope.getModuleNames(currentClass);
+        Set<String> partnerNames = new HashSet<>();
+        Set<PsiField> dataclumpFields = new HashSet<>();
+        Map<PsiElement, List<? extends PsiElement>> fieldsPerPartner = new LinkedHashMap<>();
+        FieldClumpMiner.FieldClump largestClump = null;
+        int largestClumpPartners = 0;
+        int maxCommonFields = 0;
+        for (FieldClumpMiner.FieldClump clump : clumps) {
+            List<PsiField> fields = clump.getFields(currentClass);
+            if (fields.size() < minFieldsCount) {
+                continue;
+            }
+            boolean hasPartner = false;
+            if (isResolvingPartners) {
+                for (PsiClass c : clump.getPartners(currentClass, moduleNames)) {
+                    if (!checkHierarchyInFieldsInstances || !PsiUtils.hasCommonHierarchy(currentClass, c)) {
+                        hasPartner = true;
+                        if (partnerNames.add(c.getQualifiedName())) {
+                            dataclumpClasses.add(c);
+                        }
+                        // a class in several clumps shares the fields of its largest clump
+                        fieldsPerPartner.merge(c, fields, (oldFields, newFields) -> newFields.size() > oldFields.size() ? newFields : oldFields);
+                    }
+                }
+            } else {
+                List<String> names = clump.getPartnerNames(currentClass, moduleNames);
+                hasPartner = !names.isEmpty();
+                partnerNames.addAll(names);
+                if (names.size() > largestClumpPartners) {
+                    largestClump = clump;
+                    largestClumpPartners = names.size();
+                }
+            }
+            if (hasPartner) {
+                dataclumpFields.addAll(fields);
+                maxCommonFields = Math.max(maxCommonFields, fields.size());
+            }
+        }
 
-                    registerProblem(holder,
-                            currentClass.getContainingFile(),
-                            new TextRange(dataclumpFields.get(0).getTextOffset() - dataclumpFields.get(0).getName().length() + 1,
-                                    dataclumpFields.get(dataclumpFields.size() - 1).getTextOffset() + dataclumpFields.get(dataclumpFields.size() - 1).getName().length()),
-                            PsiUtils.countCommonFields(currentClass, c) +
-                                    " Fields in file: " + c.getContainingFile().getVirtualFile().getUrl() +
-                                    " in class: " + currentClass.getName() +
-                                    ",Fields: " + allFieldsText);
+        if (!partnerNames.isEmpty()) {
+            if (largestClump != null && holder != null) {
+                List<PsiField> fields = largestClump.getFields(currentClass);
+                for (PsiClass c : largestClump.getPartners(currentClass, moduleNames)) {
+                    fieldsPerPartner.put(c, fields);
+                }
+            }
+            registerFieldsProblem(currentClass, dataclumpFields, maxCommonFields, partnerNames.size(), fieldsPerPartner, holder);
+        }
+        return dataclumpClasses;
+    }
 
+    /**
+     * Reports one problem over the given fields of a class
+     *
+     * @param currentClass     the reported class
+     * @param dataclumpFields  the fields shared with at least one other class
+     * @param maxCommonFields  the largest number of fields shared with one other class
+     * @param partnersCount    the number of classes sharing fields with this class
+     * @param fieldsPerPartner the shared fields by resolved partner class, used by the quick fix
+     * @param holder
+     */
+    private void registerFieldsProblem(PsiClass currentClass, Collection<PsiField> dataclumpFields, int maxCommonFields, int partnersCount,
+                                       Map<PsiElement, List<? extends PsiElement>> fieldsPerPartner, ProblemsHolder holder) {
+        int startOffset = Integer.MAX_VALUE;
+        int endOffset = 0;
+        for (PsiField field : dataclumpFields) {
+            startOffset = Math.min(startOffset, field.getTextOffset() - field.getName().length() + 1);
+            endOffset = Math.max(endOffset, field.getTextOffset() + field.getName().length());
+        }
+        registerProblem(holder,
+                currentClass.getContainingFile(),
+                new TextRange(startOffset, endOffset),
+                () -> maxCommonFields + " Fields shared with " + partnersCount + " classes in class: " + currentClass.getName(),
+                holder == null ? null : createQuickFixes(currentClass, fieldsPerPartner));
+    }
 
-                    writeToXML("<Info type=\"Fields\" fields=\"" + allFieldsText + "\" location=\"" +
-                            currentClass.getContainingFile().getVirtualFile().getUrl() + "  &amp; " +
-                            c.getContainingFile().getVirtualFile().getUrl() +
-                            "\" ></Info>\n");
+    /**
+     * Creates the quick fixes of a reported element holding the largest group of its partners
+     *
+     * @param source              the reported class or parameter list
+     * @param variablesPerPartner the shared fields or parameters by partner
+     * @return
+     */
+    private static LocalQuickFix[] createQuickFixes(PsiElement source, Map<PsiElement, List<? extends PsiElement>> variablesPerPartner) {
+        return new LocalQuickFix[]{new DataclumpQuickFix(source, variablesPerPartner)};
+    }
 
-                }
-            } catch (PsiInvalidElementAccessException e) {
-                // ignore deleted classes
+    /**
+     * Finds the other classes or parameter lists forming data clumps with the given reported element
+     *
+     * @param source a class or a parameter list
+     * @return
+     */
+    List<? extends PsiElement> findDataclumpPartners(PsiElement source) {
+        if (source instanceof PsiClass) {
+            return checkFieldsDataclumps((PsiClass) source, null);
+        }
+        if (source instanceof PsiParameterList && source.getParent() instanceof PsiMethod) {
+            List<PsiParameterList> results = new ArrayList<>();
+            for (PsiMethod method : findParameterPartners((PsiParameterList) source).keySet()) {
+                results.add(method.getParameterList());
             }
+            return results;
         }
-
-        return dataclumpClasses;
+        return Collections.emptyList();
     }
 
     /**
@@ -447,29 +624,23 @@ public class DataclumpsInspection extends LocalInspectionTool {
      * @param holder
      * @param psiElement
      * @param rangeInElement
-     * @param descriptionTemplate
+     * @param descriptionTemplate built only if the problem is reported, the partners are searched without a holder
+     * @param quickFixes          the quick fixes of this instance
      */
     private void registerProblem(ProblemsHolder holder,
                                  @NotNull PsiElement psiElement,
                                  @Nullable TextRange rangeInElement,
-                                 @NotNull @InspectionMessage String descriptionTemplate) {
+                                 @NotNull Supplier<@InspectionMessage String> descriptionTemplate,
+                                 @Nullable LocalQuickFix... quickFixes) {
 
         if (holder != null) {
-            // report either fields or parameters instance
-            if (rangeInElement != null) {
-                holder.registerProblem(psiElement,
-                        rangeInElement,
-                        descriptionTemplate,
-                        fieldsDataclumpQuickFix);
-            } else {
-                holder.registerProblem(psiElement,
-                        null,
-                        descriptionTemplate,
-                        parameterDataclumpQuickFix);
-            }
+            holder.registerProblem(psiElement,
+                    rangeInElement,
+                    descriptionTemplate.get(),
+                    quickFixes);
         }
 
-        registerProblemForTesting(holder, psiElement.getContainingFile());
+        registerProblemForTesting(holder, psiElement.getContainingFile(), quickFixes);
 
     }
 
@@ -488,65 +659,172 @@ public class DataclumpsInspection extends LocalInspectionTool {
         PsiClass currentClass = currentMethod.getContainingClass();
 
         // avoid checking inherited methods
-        if (!checkHierarchyInParametersInstances && currentMethod.findSuperMethods().length != 0) {
+        if (!checkHierarchyInParametersInstances && SignatureIndex.isOverriding(currentMethod, true)) {
             return dataclumpParametherLists;
         }
 
+        // all methods are reported together, the count of common parameters is only needed for the description
+        int maxCommonParameters = 0;
+        for (Map.Entry<PsiMethod, Integer> partner : findParameterPartners(currentList).entrySet()) {
+            PsiMethod fileMethod = partner.getKey();
+            dataclumpParametherLists.add(fileMethod.getParameterList());
+            maxCommonParameters = Math.max(maxCommonParameters, partner.getValue());
 
-        List<PsiClass> allClasses = new ArrayList<>(CacheManager.getAllClasses(currentClass.getProject()));
-        for (PsiClass c : allClasses) {
-
-
-            boolean isSameClass = isSameClass(currentClass, c);
-
-            if (!c.isValid()) {
-                continue;
+            if (DEBUG_XML) {
+                writeToXML("<Info type=\"Parameters\" method1=\"" + currentMethod.getName() + "\"  method2=\"" + fileMethod.getName() + "\" location=\"" + currentMethod.getContainingFile().getVirtualFile().getUrl() + "  &amp; " + fileMethod.getContainingFile().getVirtualFile().getUrl() + "\" ></Info>\n");
             }
+        }
 
-            for (PsiMethod fileMethod : c.getMethods()) {
-                if (
-                        checkMethod(currentList, currentMethod, isSameClass, fileMethod)
-                ) {
-
-                    dataclumpParametherLists.add(fileMethod.getParameterList());
-
+        if (!dataclumpParametherLists.isEmpty()) {
+            int finalMaxCommonParameters = maxCommonParameters;
+            int partnersCount = dataclumpParametherLists.size();
+            Map<PsiElement, List<? extends PsiElement>> parametersPerPartner = new LinkedHashMap<>();
+            if (holder != null) {
+                for (PsiParameterList partnerList : dataclumpParametherLists) {
+                    parametersPerPartner.put(partnerList, PsiUtils.getCommonParameters(currentList, partnerList));
+                }
+            }
+            registerProblem(holder,
+                    currentList,
+                    null,
+                    () -> finalMaxCommonParameters + " Parameters shared with " + partnersCount +
+                            " methods in method: " + currentMethod.getName(),
+                    holder == null ? null : createQuickFixes(currentList, parametersPerPartner));
+        }
 
-                    registerProblem(holder,
-                            currentList,
-                            null,
-                            "" + PsiUtils.countCommonParameters(currentList, fileMethod.getParameterList(), false) + " Parameters in " +
-                                    " file: " + fileMethod.getContainingFile().getVirtualFile().getUrl() +
-                                    " in class : " + Objects.requireNonNull(fileMethod.getContainingClass()).getQualifiedName() +
-                                    ", method: " + fileMethod.getName()
-                    );
+        // check the classes sharing fields with this parameter list, found by the index instead of checking all classes
+        Set<String> moduleNames = candidateScope.getModuleNames(currentList);
+        for (Map.Entry<PsiClass, Integer> candidate : ParameterObjectIndex.countCommonFields(currentClass.getProject(), currentList, moduleNames).entrySet()) {
+            if (candidate.getValue() >= minParametersCount) {
+                checkAlreadyExtractedClass(currentList, holder, dataclumpParametherLists, candidate.getKey());
+            }
+        }
 
+        return dataclumpParametherLists;
+    }
 
-                    writeToXML("<Info type=\"Parameters\" method1=\"" + currentMethod.getName() + "\"  method2=\"" + fileMethod.getName() + "\" location=\"" + currentMethod.getContainingFile().getVirtualFile().getUrl() + "  &amp; " + fileMethod.getContainingFile().getVirtualFile().getUrl() + "\" ></Info>\n");
+    /**
+     * Returns the methods having a parameters data clump with the given parameter list
+     *
+     * @param currentList
+     * @return the number of common parameters by method
+     */
+    private Map<PsiMethod, Integer> findParameterPartners(PsiParameterList currentList) {
+        Map<PsiMethod, Integer> results = new LinkedHashMap<>();
+        PsiMethod currentMethod = ((PsiMethod) currentList.getParent());
+        PsiClass currentClass = currentMethod.getContainingClass();
+        Set<String> moduleNames = candidateScope.getModuleNames(currentList);
+        for (Map.Entry<PsiMethod, Integer> overlap : getParametersOverlaps(currentList, moduleNames).entrySet()) {
+            PsiMethod fileMethod = overlap.getKey();
+            if (overlap.getValue() < minParametersCount) {
+                continue;
+            }
+            boolean isSameClass = isSameClass(currentClass, fileMethod.getContainingClass());
+            if (checkMethod(currentMethod, isSameClass, fileMethod)) {
+                results.put(fileMethod, overlap.getValue());
+            }
+        }
+        return results;
+    }
 
+    /**
+     * Returns the number of common fields of the given class with every class sharing at least two fields with it.
+     * The counts do not depend on the options, they are stored until the code changes.
+     *
+     * @param currentClass
+     * @param moduleNames   the modules to be searched, or null for all modules
+     * @return the number of common fields by class
+     */
+    private static Map<PsiClass, Integer> getFieldsOverlaps(PsiClass currentClass, Set<String> moduleNames) {
+        return OverlapCache.getFieldsOverlaps(currentClass, moduleNames, () -> {
+            Map<PsiClass, Integer> overlaps = new LinkedHashMap<>();
+            for (PsiClass c : getFieldsCandidates(currentClass, moduleNames)) {
+                try {
+                    if (!c.isValid() || Objects.equals(currentClass.getQualifiedName(), c.getQualifiedName())) {
+                        continue;
+                    }
+                    int count = PsiUtils.countCommonFields(currentClass, c);
+                    if (count >= OverlapCache.MIN_STORED_COUNT) {
+                        overlaps.put(c, count);
+                    }
+                } catch (PsiInvalidElementAccessException e) {
+                    // ignore deleted classes
                 }
             }
+            return overlaps;
+        });
+    }
 
-            checkAlreadyExtractedClass(currentList, holder, dataclumpParametherLists, c);
-        }
+    /**
+     * Returns the number of common parameters of the given parameter list with every method sharing at least two
+     * parameters with it. The counts do not depend on the options, they are stored until the code changes.
+     *
+     * @param currentList
+     * @param moduleNames the modules to be searched, or null for all modules
+     * @return the number of common parameters by method
+     */
+    private static Map<PsiMethod, Integer> getParametersOverlaps(PsiParameterList currentList, Set<String> moduleNames) {
+        PsiMethod currentMethod = ((PsiMethod) currentList.getParent());
+        return OverlapCache.getParametersOverlaps(currentMethod, moduleNames, () -> {
+            Map<PsiMethod, Integer> overlaps = new LinkedHashMap<>();
+            for (PsiMethod fileMethod : getParametersCandidates(currentList, moduleNames)) {
+                int count = PsiUtils.countCommonParameters(currentList, fileMethod.getParameterList(), false);
+                if (count >= OverlapCache.MIN_STORED_COUNT) {
+                    overlaps.put(fileMethod, count);
+                }
+            }
+            return overlaps;
+        });
+    }
 
-        return dataclumpParametherLists;
+    /**
+     * Returns the classes of the given modules that may have a fields data clump with the given class, found by the
+     * signature index or all classes of the modules if the index is not ready yet
+     *
+     * @param currentClass
+     * @param moduleNames   the modules to be searched, or null for all modules
+     * @return
+     */
+    private static List<PsiClass> getFieldsCandidates(PsiClass currentClass, Set<String> moduleNames) {
+        List<PsiClass> candidates = SignatureIndex.findFieldsCandidates(currentClass, OverlapCache.MIN_STORED_COUNT, moduleNames);
+        return candidates != null ? candidates : new ArrayList<>(CacheManager.getClasses(currentClass.getProject(), moduleNames));
     }
 
     /**
-     * Checks if the given method and parameter list have a data clumps instanc
+     * Returns the methods of the given modules that may have a parameters data clump with the given parameter list,
+     * found by the signature index or the methods of all classes of the modules if the index is not ready yet
      *
      * @param currentList
+     * @param moduleNames the modules to be searched, or null for all modules
+     * @return
+     */
+    private static List<PsiMethod> getParametersCandidates(PsiParameterList currentList, Set<String> moduleNames) {
+        List<PsiMethod> candidates = SignatureIndex.findParametersCandidates(currentList, OverlapCache.MIN_STORED_COUNT, moduleNames);
+        if (candidates != null) {
+            return candidates;
+        }
+        candidates = new ArrayList<>();
+        for (PsiClass c : new ArrayList<>(CacheManager.getClasses(currentList.getProject(), moduleNames))) {
+            if (c.isValid()) {
+                candidates.addAll(Arrays.asList(c.getMethods()));
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Checks if the given methods have a data clumps instance, the number of common parameters is checked before
+     *
      * @param currentMethod
      * @param isSameClass           currentList and currentMethod are in the same class
      * @param fileMethod
      * @return
      */
-    private boolean checkMethod(PsiParameterList currentList, PsiMethod currentMethod, boolean isSameClass, PsiMethod fileMethod) {
-        return (checkHierarchyInParametersInstances || fileMethod.findSuperMethods().length == 0) && // avoid inherited methods if checkHierarchyInParametersInstances is off
-                !(fileMethod.getName().equals(currentMethod.getName()) && isSameClass) && // avoid overloaded methods
-                !fileMethod.hasAnnotation("java.lang.Override") &&  // avoid overrided methods
-                !fileMethod.getName().equals(fileMethod.getContainingClass().getName()) && // avoid constructors
-                PsiUtils.countCommonParameters(currentList, fileMethod.getParameterList(), false) >= minParametersCount
+    private boolean checkMethod(PsiMethod currentMethod, boolean isSameClass, PsiMethod fileMethod) {
+        return !(fileMethod.getName().equals(currentMethod.getName()) && isSameClass) && // avoid overloaded methods
+                // avoid overrided methods, and inherited methods if checkHierarchyInParametersInstances is off
+                !SignatureIndex.isOverriding(fileMethod, !checkHierarchyInParametersInstances) &&
+                !fileMethod.getName().equals(fileMethod.getContainingClass().getName()) // avoid constructors
                 && (
                 (!checkHierarchyInParametersInstances && !isSameClass) ||
                         (includeMethodsInSameCLass && isSameClass) ||
@@ -564,7 +842,9 @@ public class DataclumpsInspection extends LocalInspectionTool {
      */
     private void checkAlreadyExtractedClass(PsiParameterList currentList, ProblemsHolder holder, List<PsiParameterList> dataclumpParametherLists, PsiClass c) {
         // check if there is already an extracted class with the same duplicated parameters
-        if (PsiUtils.countCommonFields(c, currentList) >= minParametersCount && c.getConstructors().length > 0 && c.isValid()) {
+        // the parameters are matched with the fields by type and name like they are counted
+        List<PsiParameter> commonParameters = c.isValid() ? PsiUtils.getParametersMatchingFields(c, currentList) : Collections.emptyList();
+        if (commonParameters.size() >= minParametersCount && c.getConstructors().length > 0) {
 
             // add the extracted class constructor as another connection to be used later to find common fields
             dataclumpParametherLists.add(c.getConstructors()[0].getParameterList());
@@ -573,9 +853,11 @@ public class DataclumpsInspection extends LocalInspectionTool {
             registerProblem(holder,
                     currentList,
                     null,
-                    "" + PsiUtils.countCommonFields(c, currentList) + " Fields in " +
+                    () -> commonParameters.size() + " Fields in " +
                             " file: " + Objects.requireNonNull(currentList).getContainingFile().getVirtualFile().getUrl() +
-                            " in already extracted class : " + Objects.requireNonNull(((PsiMethod) currentList.getParent()).getContainingClass()).getQualifiedName()
+                            " in already extracted class : " + Objects.requireNonNull(((PsiMethod) currentList.getParent()).getContainingClass()).getQualifiedName(),
+                    // the extracted class is found again by the refactoring service, so no partner is needed
+                    holder == null ? null : new DataclumpQuickFix(currentList, Collections.emptyList(), commonParameters)
             );
 
         }
@@ -586,10 +868,11 @@ public class DataclumpsInspection extends LocalInspectionTool {
      *
      * @param holder
      * @param currentElement
+     * @param quickFixes     the quick fixes of the reported instance, no quick fix is attached if it has none
      */
-    private void registerProblemForTesting(ProblemsHolder holder, PsiElement currentElement) {
+    private void registerProblemForTesting(ProblemsHolder holder, PsiElement currentElement, LocalQuickFix... quickFixes) {
         if (holder != null && isTestingReports) {
-            holder.registerProblem(currentElement, " Inspections testing", parameterDataclumpQuickFix);
+            holder.registerProblem(currentElement, " Inspections testing", quickFixes == null ? LocalQuickFix.EMPTY_ARRAY : quickFixes);
         }
     }
 
@@ -635,211 +918,4 @@ public class DataclumpsInspection extends LocalInspectionTool {
     }
 
 
-    /**
-     * Receives the detected data clumps parameters instance and redirect the refactoring to DataclassRefactoringService
-     */
-    private class ParameterDataClumpFix implements LocalQuickFix {
-        /**
-         * Returns a name for this quick fix class
-         * required by testing using LightJavaCodeInsightFixtureTestCase
-         *
-         * @return Quick fix name.
-         */
-        @NotNull
-        @Override
-        public String getName() {
-            return QUICK_FIX_NAME;
-        }
-
-        /**
-         * This is called when starting the refactoring
-         *
-         * @param project           current project
-         * @param descriptor        information about the data clumps instance
-         */
-        public void applyFix(@NotNull Project project, @NotNull ProblemDescriptor descriptor) {
-            PsiParameterList parameterList = (PsiParameterList) descriptor.getPsiElement();
-            PsiGroup dataClumpsGroup = new PsiGroup();
-            dataClumpsGroup.addConnection(parameterList);
-
-            // find other parameter lists for the given one
-            List<PsiParameterList> dataclumpPL = checkParameterDataclumps(parameterList, null);
-            if (dataclumpPL.isEmpty()) {
-                PsiUtils.log(LOGGER_NAME, "Parameter list Dataclump instances not found!");
-                return;
-            }
-
-            PsiUtils.log(LOGGER_NAME, "dataclumpPL ===== " + dataclumpPL.size());
-
-            // search for the common parameters between the methods
-            List<PsiParameter> dataclumpsParameters = null;
-
-            // search for the reported method in problem holder description and add them to dataclump group
-            for (PsiParameterList pl : dataclumpPL) {
-                if (descriptor.getDescriptionTemplate().contains(((PsiMethod) pl.getParent()).getName())) {
-                    PsiUtils.log(LOGGER_NAME, "addConnection !!!!!!!!");
-                    dataClumpsGroup.addConnection(pl);
-                }
-                if (dataclumpsParameters == null) {
-                    // search for the common parameters between the methods
-                    dataclumpsParameters = PsiUtils.getCommonParameters(parameterList, pl);
-                }
-            }
-
-            if (dataClumpsGroup.getConnections().isEmpty()) {
-                PsiUtils.log(LOGGER_NAME, "The other method in this dataclump instance could not found!");
-                PsiUtils.log(LOGGER_NAME, "dataClumpsGroup.getConnections().size() = " + dataClumpsGroup.getConnections().size());
-                PsiUtils.log(LOGGER_NAME, "descriptor.getDescriptionTemplate(): " + descriptor.getDescriptionTemplate());
-
-                return;
-            }
-
-            PsiUtils.log(LOGGER_NAME, "dataclumpsParameters = " + dataclumpsParameters);
-            // add parameters to dataclumps instance
-            for (PsiParameter param : Objects.requireNonNull(dataclumpsParameters)) {
-                dataClumpsGroup.addElement(param);
-            }
-
-            // call the refactoring service for dataclumps
-            ApplicationManager.getApplication().invokeLater(
-                    () -> DataclassRefactoringService.refactor(project, dataClumpsGroup));
-        }
-
-
-        @NotNull
-        public String getFamilyName() {
-            return QUICK_FIX_NAME;
-        }
-    }
-
-    /**
-     * Receives the detected data clumps fields instance and redirect the refactoring to DataclassRefactoringService
-     */
-    private class FieldsDataClumpFix implements LocalQuickFix {
-        /**
-         * Returns a name for this quick fix class
-         * required by testing using LightJavaCodeInsightFixtureTestCase
-         *
-         * @return Quick fix name.
-         */
-        @NotNull
-        @Override
-        public String getName() {
-            return QUICK_FIX_NAME;
-        }
-
-        /**
-         * This is called when starting the refactoring
-         *
-         * @param project           current project
-         * @param descriptor        information about the data clumps instance
-         */
-        public void applyFix(@NotNull Project project, @NotNull ProblemDescriptor descriptor) {
-            PsiUtils.log(LOGGER_NAME, "descriptor.getStartElement() = " + descriptor.getStartElement().getClass());
-            PsiUtils.log(LOGGER_NAME, "descriptor.getLineNumber() = " + descriptor.getLineNumber());
-            PsiFile currentFile = (PsiFile) descriptor.getPsiElement();
-            Collection<PsiClass> classesInFile = PsiTreeUtil.findChildrenOfType(currentFile, PsiClass.class);
-
-            PsiUtils.log(LOGGER_NAME, "currentFile.getTextRange() = " + currentFile.getTextRange().toString());
-            PsiUtils.log(LOGGER_NAME, "currentFile.getTextOffset() = " + currentFile.getTextOffset());
-            PsiClass currentClass = extractClassFromDescriptor(project, descriptor.getLineNumber(), currentFile, classesInFile);
-            if (currentClass == null) {
-                PsiUtils.log(LOGGER_NAME, "The Class of the fields data clump instance not found!");
-                return;
-            }
-
-
-            PsiGroup dataClumpsGroup = extractSmellyFields(descriptor, currentClass);
-
-            // find the other class of this dc instance
-            ArrayList<PsiClass> dataclumpClasses = checkFieldsDataclumps(currentClass, null);
-            if (dataclumpClasses.isEmpty()) {
-                PsiUtils.log(LOGGER_NAME, "The other classes of the fields data clump instance not found!");
-                return;
-            }
-
-            // search for the reported fields in classes
-            for (PsiClass dataclumpClass : dataclumpClasses) {
-                boolean fieldFound = false;
-                for (PsiElement elem : dataClumpsGroup.getElements()) {
-
-                    if (dataclumpClass.findFieldByName(((PsiField) elem).getName(), true) == null) {
-                        break;
-                    }
-
-                    fieldFound = true;
-
-                }
-                if (fieldFound) {
-                    dataClumpsGroup.addConnection(dataclumpClass);
-                    PsiUtils.log(LOGGER_NAME, "add dataclump Class: " + dataclumpClass.getName());
-                }
-            }
-            if (dataClumpsGroup.getConnections().size() < 2) {
-                PsiUtils.log(LOGGER_NAME, "The other classes in this data clump instance could not found!");
-                PsiUtils.log(LOGGER_NAME, "dataClumpsGroup.getConnections().size() = " + dataClumpsGroup.getConnections().size());
-                PsiUtils.log(LOGGER_NAME, "descriptor.getDescriptionTemplate(): " + descriptor.getDescriptionTemplate());
-
-                return;
-            }
-
-            // call the refactoring service for dataclumps
-            ApplicationManager.getApplication().invokeLater(
-                    () -> DataclassRefactoringService.refactor(project, dataClumpsGroup));
-        }
-
-        /**
-         * Extracts the smelly fields out of the problem descriptor and return the results as a PsiGroup
-         *
-         * @param descriptor            instance information
-         * @param currentClass
-         * @return
-         */
-        @NotNull
-        private PsiGroup extractSmellyFields(@NotNull ProblemDescriptor descriptor, PsiClass currentClass) {
-            PsiGroup dataClumpsGroup = new PsiGroup();
-            // add the current class to this instance, the other class/classes will be added later
-            dataClumpsGroup.addConnection(currentClass);
-
-            //extract the smelly fields out of the problem descriptor
-            for (PsiField currentField : currentClass.getFields()) {
-                if (descriptor.getDescriptionTemplate().contains(currentField.getName())) {
-                    dataClumpsGroup.addElement(currentField);
-
-                    PsiUtils.log(LOGGER_NAME, "Dataclump Field: " + currentField.getName());
-
-                }
-            }
-            return dataClumpsGroup;
-        }
-
-        /**
-         * Extracts the class out of the problem descriptor. Returns the found class or null.
-         *
-         * @param project
-         * @param descriptorLineNumber
-         * @param currentFile
-         * @param classesInFile
-         * @return
-         */
-        @Nullable
-        private PsiClass extractClassFromDescriptor(@NotNull Project project, int descriptorLineNumber, PsiFile currentFile, Collection<PsiClass> classesInFile) {
-            PsiClass currentClass = null;
-            for (PsiClass c : classesInFile) {
-                if (Objects.requireNonNull(PsiDocumentManager.getInstance(project).getDocument(currentFile)).getLineNumber(c.getTextOffset()) <= descriptorLineNumber) {
-                    currentClass = c;
-                } else {
-                    PsiUtils.log(LOGGER_NAME, "Class " + c.getName() + " with ???= " + Objects.requireNonNull(PsiDocumentManager.getInstance(project).getDocument(currentFile)).getLineNumber(c.getTextOffset()) + " doesn't include line number " + descriptorLineNumber);
-                }
-            }
-            return currentClass;
-        }
-
-
-        @NotNull
-        public String getFamilyName() {
-            return QUICK_FIX_NAME;
-        }
-    }
-
 }
@@ -0,0 +1,82 @@
+package com.github.fiadleh.codesmellsplugin.codesmells.dataclumps;
+
+import com.github.fiadleh.codesmellsplugin.util.ClumpGraphExporter;
+import com.github.fiadleh.codesmellsplugin.util.PsiUtils;
+import com.github.fiadleh.codesmellsplugin.util.SignatureIndex;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.fileChooser.FileChooserFactory;
+import com.intellij.openapi.fileChooser.FileSaverDescriptor;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileWrapper;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Menu action to export the graph of the field data clumps of the project to a GraphML or CSV file
+ *
+ * @author Firas Adleh
+ */
+public class ExportClumpGraphAction extends AnAction {
+    private static final String TITLE = "Export Data Clumps Graph";
+
+    /**
+     * An identifier used to mark the lines made by this class in log
+     */
+    private static final String LOGGER_NAME = "DataclumpsInspection";
+
+    @Override
+    public void actionPerformed(@NotNull AnActionEvent e) {
+        Project project = e.getProject();
+        if (project == null) {
+            return;
+        }
+        if (!SignatureIndex.isIndexReady()) {
+            SignatureIndex.warmUp(project);
+            Messages.showMessageDialog(project, "The project is still being indexed, please try again later.",
+                    TITLE, Messages.getInformationIcon());
+            return;
+        }
+
+        FileSaverDescriptor descriptor = new FileSaverDescriptor(TITLE,
+                "Classes as nodes and their common fields counts as edges", "graphml", "csv");
+        VirtualFileWrapper target = FileChooserFactory.getInstance().createSaveFileDialog(descriptor, project)
+                .save((VirtualFile) null, project.getName() + "-dataclumps.graphml");
+        if (target == null) {
+            return;
+        }
+        Path path = target.getFile().toPath();
+
+        // the graph is written in the background, the index is not read through the PSI
+        ProgressManager.getInstance().run(new Task.Backgroundable(project, TITLE, true) {
+            private int edgesCount = -1;
+
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                try {
+                    edgesCount = ClumpGraphExporter.export(project, path, indicator);
+                } catch (IOException exception) {
+                    PsiUtils.log(LOGGER_NAME, "Exporting the data clumps graph failed: " + exception.getMessage());
+                }
+            }
+
+            @Override
+            public void onSuccess() {
+                String message = edgesCount >= 0 ? edgesCount + " edges exported to " + path : "The graph could not be exported to " + path;
+                Messages.showMessageDialog(project, message, TITLE, Messages.getInformationIcon());
+            }
+        });
+    }
+
+    @Override
+    public void update(@NotNull AnActionEvent e) {
+        e.getPresentation().setEnabledAndVisible(e.getProject() != null);
+    }
+}
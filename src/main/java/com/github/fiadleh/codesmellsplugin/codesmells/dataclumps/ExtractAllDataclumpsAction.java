@@ -0,0 +1,29 @@
+package com.github.fiadleh.codesmellsplugin.codesmells.dataclumps;
+
+import com.github.fiadleh.codesmellsplugin.util.PsiUtils;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.project.Project;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Menu action to extract all data clumps instances of the selected directory, module or the whole project
+ *
+ * @author Firas Adleh
+ */
+public class ExtractAllDataclumpsAction extends AnAction {
+
+    @Override
+    public void actionPerformed(@NotNull AnActionEvent e) {
+        Project project = e.getProject();
+        if (project == null) {
+            return;
+        }
+        DataclumpsBatchRefactoring.refactorAll(project, PsiUtils.getSelectedScope(e, project));
+    }
+
+    @Override
+    public void update(@NotNull AnActionEvent e) {
+        e.getPresentation().setEnabledAndVisible(e.getProject() != null);
+    }
+}
@@ -0,0 +1,29 @@
+package com.github.fiadleh.codesmellsplugin.codesmells.globaldata;
+
+import com.github.fiadleh.codesmellsplugin.util.PsiUtils;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.project.Project;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Menu action to encapsulate all global data fields of the selected directory, module or the whole project
+ *
+ * @author Firas Adleh
+ */
+public class EncapsulateAllGlobalDataAction extends AnAction {
+
+    @Override
+    public void actionPerformed(@NotNull AnActionEvent e) {
+        Project project = e.getProject();
+        if (project == null) {
+            return;
+        }
+        GlobalDataRefactoringService.encapsulateAll(project, PsiUtils.getSelectedScope(e, project));
+    }
+
+    @Override
+    public void update(@NotNull AnActionEvent e) {
+        e.getPresentation().setEnabledAndVisible(e.getProject() != null);
+    }
+}
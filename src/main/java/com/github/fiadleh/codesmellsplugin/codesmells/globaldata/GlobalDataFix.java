@@ -1,21 +1,14 @@
 package com.github.fiadleh.codesmellsplugin.codesmells.globaldata;
 
-import com.github.fiadleh.codesmellsplugin.util.PsiUtils;
 import com.intellij.codeInspection.LocalQuickFix;
 import com.intellij.codeInspection.ProblemDescriptor;
-import com.intellij.openapi.application.ApplicationManager;
-import com.intellij.openapi.command.WriteCommandAction;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
-import com.intellij.openapi.ui.Messages;
-import com.intellij.psi.*;
-import com.intellij.psi.search.GlobalSearchScope;
-import com.intellij.psi.search.searches.ReferencesSearch;
-import com.intellij.psi.util.PsiUtil;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiField;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.Collection;
-import java.util.Objects;
+import java.util.Collections;
 
 /**
  * Receives the detected global data instance and refactor it
@@ -33,6 +26,33 @@ public class GlobalDataFix implements LocalQuickFix {
      */
     private static final Logger LOG = Logger.getInstance("#GlobalDataRefactoring");
 
+    /**
+     * The known usages of the field, shown in the quick fix name, or null if they are not counted yet
+     */
+    private final String usageText;
+
+    public GlobalDataFix() {
+        this(null);
+    }
+
+    /**
+     * @param usageText the counted reads and writes of the field
+     */
+    public GlobalDataFix(String usageText) {
+        this.usageText = usageText;
+    }
+
+    /**
+     * Returns the quick fix name with the number of usages to be refactored if they are known
+     *
+     * @return Quick fix name.
+     */
+    @NotNull
+    @Override
+    public String getName() {
+        return usageText == null ? QUICK_FIX_NAME : QUICK_FIX_NAME + " (" + usageText + ")";
+    }
+
 
     /**
      * This is called when starting the refactoring
@@ -41,50 +61,32 @@ public class GlobalDataFix implements LocalQuickFix {
      */
     public void applyFix(@NotNull Project project, @NotNull ProblemDescriptor descriptor) {
         // call the refactoring method for global data
-        ApplicationManager.getApplication().invokeLater(
-                () -> GlobalDataFix.refactor(project, descriptor.getPsiElement()));
+        GlobalDataFix.refactor(project, descriptor.getPsiElement());
     }
 
     /**
-     * The main refactoring method
+     * The search runs in a background task, so the fix does not need a write action
+     *
+     * @return false
+     */
+    @Override
+    public boolean startInWriteAction() {
+        return false;
+    }
+
+    /**
+     * The main refactoring method, the references are searched in the background and then
+     * the field is encapsulated and all its references are refactored
      * @param project
      * @param fieldPsiElement
      */
     public static void refactor(@NotNull Project project, @NotNull PsiElement fieldPsiElement) {
         LOG.warn(" ++ GlobalDataFix.refactor");
-        String className = Objects.requireNonNull(((PsiField) fieldPsiElement).getContainingClass()).getQualifiedName();
-        String fieldName = ((PsiField) fieldPsiElement).getName();
-        LOG.warn("Class: " + fieldPsiElement.getParent());
-        LOG.warn("fieldPsiElement: " + fieldPsiElement.getClass());
-        Collection<PsiReference> allReferences = ReferencesSearch.search(fieldPsiElement, GlobalSearchScope.projectScope(project)).findAll();
-        LOG.warn("allReferences: " + allReferences.size());
-
-
-        WriteCommandAction.runWriteCommandAction(project, "Global Data Refactoring Action: " + className, "0", () -> {
-            // create getter and setter methods for this field
-            PsiMethod getMethod = PsiUtils.createGetterSetterMethod(true, project, fieldName, ((PsiField) fieldPsiElement).getType(), false, false, true);
-            Objects.requireNonNull(((PsiField) fieldPsiElement).getContainingClass()).add(getMethod);
-            PsiMethod setMethod = PsiUtils.createGetterSetterMethod(false, project, fieldName, ((PsiField) fieldPsiElement).getType(), false, false, true);
-            Objects.requireNonNull(((PsiField) fieldPsiElement).getContainingClass()).add(setMethod);
-
-            // change field to private
-            Objects.requireNonNull(((PsiField) fieldPsiElement).getModifierList()).setModifierProperty(PsiModifier.PRIVATE, true);
-
-
-            // refactor all calls to this field
-            for (PsiReference ref : allReferences) {
-                // don't refactor calls in the same class
-                if (!Objects.equals(Objects.requireNonNull(PsiUtil.getTopLevelClass(ref.getElement())).getQualifiedName(), className)) {
-                    PsiUtils.refactorReferenceToSetterGetter(project, ref, className, fieldName);
-
-                }
-            }
-
-            // show an info box
-            ApplicationManager.getApplication().invokeLater(
-                    () -> Messages.showMessageDialog(project, "Automatic refactoring done! " + allReferences.size() + " references have been refactored", "Global Data Refactoring Info", Messages.getInformationIcon()));
-
-        });
+        if (!(fieldPsiElement instanceof PsiField)) {
+            LOG.warn("Not a field: " + fieldPsiElement.getClass());
+            return;
+        }
+        GlobalDataRefactoringService.encapsulate(project, Collections.singletonList((PsiField) fieldPsiElement));
     }
 
     @NotNull
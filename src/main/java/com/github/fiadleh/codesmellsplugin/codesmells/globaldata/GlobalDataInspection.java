@@ -1,14 +1,18 @@
 package com.github.fiadleh.codesmellsplugin.codesmells.globaldata;
 
 import com.github.fiadleh.codesmellsplugin.services.CodesmellTimer;
+import com.github.fiadleh.codesmellsplugin.util.FileFeatures;
+import com.github.fiadleh.codesmellsplugin.util.GlobalDataUsageIndex;
 import com.github.fiadleh.codesmellsplugin.util.PsiUtils;
 import com.intellij.codeInspection.LocalInspectionTool;
 import com.intellij.codeInspection.LocalInspectionToolSession;
+import com.intellij.codeInspection.ProblemHighlightType;
 import com.intellij.codeInspection.ProblemsHolder;
 import com.intellij.psi.*;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -67,18 +71,54 @@ public class GlobalDataInspection extends LocalInspectionTool {
             @NonNls
             private static final String DESCRIPTION_TEMPLATE = "Code Smell (Global Data) --------> : ";
 
+            /**
+             * The global fields are read from the shared features of the file instead of visiting every field
+             */
             @Override
-            public void visitField(PsiField field) {
-                if (Objects.requireNonNull(field.getModifierList()).hasExplicitModifier(PsiModifier.PUBLIC) && field.getModifierList().hasExplicitModifier(PsiModifier.STATIC)
-                        && !field.getModifierList().hasExplicitModifier(PsiModifier.FINAL)) {
+            public void visitJavaFile(PsiJavaFile file) {
+                List<PsiField> globalFields = FileFeatures.getInstance(file).getGlobalFields();
+                for (PsiField field : globalFields) {
+                    GlobalDataUsageIndex.registerField(field);
+                }
+                // update the usage counts of this file before reporting its fields
+                GlobalDataUsageIndex.indexFile(file);
+
+                for (PsiField field : globalFields) {
                     PsiUtils.log(CODE_SMELL_DISPLAY_NAME, "field: " + field + ", ModifierList= " + field.getModifierList() + ", parent=" + field.getParent());
                     if (field.getSourceElement() != null) {
-                        holder.registerProblem(field.getSourceElement(),
-                                DESCRIPTION_TEMPLATE + " in class(" + Objects.requireNonNull(field.getContainingClass()).getName() + "): ", globalDataFix);
+                        registerGlobalData(field, holder, DESCRIPTION_TEMPLATE + " in class(" + Objects.requireNonNull(field.getContainingClass()).getName() + "): ");
                     }
                 }
             }
 
         };
     }
-}
\ No newline at end of file
+
+    /**
+     * Reports a global data field. If its usages are already counted, fields that are never written are reported
+     * with a lower severity as effectively constant, the counts are shown in the description and the quick fix.
+     *
+     * @param field
+     * @param holder
+     * @param description
+     */
+    private void registerGlobalData(PsiField field, ProblemsHolder holder, String description) {
+        GlobalDataUsageIndex.FieldUsage usage = GlobalDataUsageIndex.getUsage(field);
+        if (usage == null) {
+            holder.registerProblem(Objects.requireNonNull(field.getSourceElement()), description, globalDataFix);
+            return;
+        }
+
+        String usageText = usage.getReads() + " reads, " + usage.getWrites() + " writes in " + usage.getFiles() + " files";
+        GlobalDataFix fix = new GlobalDataFix(usageText);
+        if (usage.getWrites() == 0) {
+            holder.registerProblem(Objects.requireNonNull(field.getSourceElement()),
+                    description + "effectively constant (" + usageText + "), it could be final",
+                    ProblemHighlightType.WEAK_WARNING, fix);
+        } else {
+            holder.registerProblem(Objects.requireNonNull(field.getSourceElement()),
+                    description + usageText,
+                    ProblemHighlightType.GENERIC_ERROR_OR_WARNING, fix);
+        }
+    }
+}
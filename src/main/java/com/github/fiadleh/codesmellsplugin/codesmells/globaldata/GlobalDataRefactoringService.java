@@ -0,0 +1,269 @@
+package com.github.fiadleh.codesmellsplugin.codesmells.globaldata;
+
+import com.github.fiadleh.codesmellsplugin.util.CacheManager;
+import com.github.fiadleh.codesmellsplugin.util.ChunkedWriteCommand;
+import com.github.fiadleh.codesmellsplugin.util.PsiUtils;
+import com.github.fiadleh.codesmellsplugin.util.ReferenceRewriter;
+import com.intellij.concurrency.JobLauncher;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.*;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.search.searches.ReferencesSearch;
+import com.intellij.psi.util.PsiUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Encapsulates many global data fields at once. The fields and their references are searched in a background task,
+ * then the accessors are added and the references are rewritten in short write actions of one undoable command.
+ *
+ * @author Firas Adleh
+ */
+public class GlobalDataRefactoringService {
+    /**
+     * An identifier used to mark the lines made by this class in log
+     */
+    private static final String LOGGER_NAME = "GlobalDataRefactoring";
+
+    /**
+     * Name of the undoable command
+     */
+    private static final String COMMAND_NAME = "Encapsulate Global Data";
+
+    private GlobalDataRefactoringService() {
+    }
+
+    /**
+     * Encapsulates all global data fields declared in the given scope
+     *
+     * @param project
+     * @param scope
+     */
+    public static void encapsulateAll(@NotNull Project project, @NotNull GlobalSearchScope scope) {
+        new EncapsulationTask(project, scope, Collections.emptyList()).queue();
+    }
+
+    /**
+     * Encapsulates the given global data fields only
+     *
+     * @param project
+     * @param fields
+     */
+    public static void encapsulate(@NotNull Project project, @NotNull List<PsiField> fields) {
+        List<SmartPsiElementPointer<PsiField>> pointers = new ArrayList<>();
+        for (PsiField field : fields) {
+            pointers.add(SmartPointerManager.getInstance(project).createSmartPsiElementPointer(field));
+        }
+        new EncapsulationTask(project, null, pointers).queue();
+    }
+
+    /**
+     * Finds all global data fields declared in the given scope
+     *
+     * @param project
+     * @param scope
+     * @param indicator
+     * @return
+     */
+    private static List<PsiField> findGlobalDataFields(Project project, GlobalSearchScope scope, ProgressIndicator indicator) {
+        List<PsiField> fields = new ArrayList<>();
+        for (PsiClass currentClass : new ArrayList<>(CacheManager.getAllClasses(project))) {
+            indicator.checkCanceled();
+            if (!currentClass.isValid()) {
+                continue;
+            }
+            VirtualFile file = currentClass.getContainingFile().getVirtualFile();
+            if (file == null || !scope.contains(file)) {
+                continue;
+            }
+            for (PsiField field : currentClass.getFields()) {
+                if (PsiUtils.isGlobalData(field)) {
+                    fields.add(field);
+                }
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Background task searching the fields and their references, the changes are applied when it succeeds
+     */
+    private static class EncapsulationTask extends Task.Backgroundable {
+        private final GlobalSearchScope scope;
+        private final List<SmartPsiElementPointer<PsiField>> fieldPointers;
+
+        /**
+         * The changes of every file, ready after the background search
+         */
+        private final Map<PsiFile, FileChanges> changesPerFile = new LinkedHashMap<>();
+
+        private int fieldsCount = 0;
+
+        /**
+         * @param project
+         * @param scope             the scope to search for fields, or null if the fields are given
+         * @param fieldPointers     the fields to be encapsulated if no scope is given
+         */
+        EncapsulationTask(@NotNull Project project, GlobalSearchScope scope, List<SmartPsiElementPointer<PsiField>> fieldPointers) {
+            super(project, "Searching global data", true);
+            this.scope = scope;
+            this.fieldPointers = fieldPointers;
+        }
+
+        @Override
+        public void run(@NotNull ProgressIndicator indicator) {
+            Project project = Objects.requireNonNull(getProject());
+            indicator.setText("Searching global data fields");
+            List<PsiField> fields = ReadAction.compute(() -> {
+                if (scope != null) {
+                    return findGlobalDataFields(project, scope, indicator);
+                }
+                List<PsiField> results = new ArrayList<>();
+                for (SmartPsiElementPointer<PsiField> pointer : fieldPointers) {
+                    PsiField field = pointer.getElement();
+                    if (field != null && field.getContainingClass() != null) {
+                        results.add(field);
+                    }
+                }
+                return results;
+            });
+
+            // search the references of all fields concurrently
+            indicator.setText("Searching global data references");
+            indicator.setIndeterminate(false);
+            Map<PsiField, Collection<PsiReference>> usages = new ConcurrentHashMap<>();
+            AtomicInteger done = new AtomicInteger();
+            GlobalSearchScope searchScope = GlobalSearchScope.projectScope(project);
+            boolean completed = JobLauncher.getInstance().invokeConcurrentlyUnderProgress(fields, indicator, field -> {
+                usages.put(field, ReadAction.compute(() -> ReferencesSearch.search(field, searchScope).findAll()));
+                indicator.setFraction((double) done.incrementAndGet() / fields.size());
+                return true;
+            });
+            if (!completed) {
+                throw new ProcessCanceledException();
+            }
+
+            ReadAction.run(() -> groupChangesPerFile(fields, usages));
+            fieldsCount = fields.size();
+            PsiUtils.log(LOGGER_NAME, "global data fields: " + fieldsCount + ", files: " + changesPerFile.size());
+        }
+
+        /**
+         * Collects the declarations to encapsulate and the references to rewrite of every file
+         */
+        private void groupChangesPerFile(List<PsiField> fields, Map<PsiField, Collection<PsiReference>> usages) {
+            for (PsiField field : fields) {
+                String className = Objects.requireNonNull(field.getContainingClass()).getQualifiedName();
+                changesPerFile.computeIfAbsent(field.getContainingFile(), file -> new FileChanges()).fields.add(field);
+
+                for (PsiReference ref : usages.getOrDefault(field, Collections.emptyList())) {
+                    PsiClass refClass = PsiUtil.getTopLevelClass(ref.getElement());
+                    // don't refactor calls in the same class
+                    if (refClass != null && !Objects.equals(refClass.getQualifiedName(), className)) {
+                        changesPerFile.computeIfAbsent(ref.getElement().getContainingFile(), file -> new FileChanges())
+                                .references.add(new ReferenceChange(ref, className, field.getName()));
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void onSuccess() {
+            Project project = Objects.requireNonNull(getProject());
+            int referencesCount = 0;
+
+            ChunkedWriteCommand command = new ChunkedWriteCommand(project, COMMAND_NAME);
+            for (FileChanges changes : changesPerFile.values()) {
+                referencesCount += changes.references.size();
+                changes.addTo(command);
+            }
+            if (!command.run()) {
+                PsiUtils.log(LOGGER_NAME, "encapsulation canceled, all changes have been rolled back");
+                return;
+            }
+
+            Messages.showMessageDialog(project, "Automatic refactoring done! " + fieldsCount + " fields have been encapsulated, "
+                            + referencesCount + " references in " + changesPerFile.size() + " files have been refactored",
+                    "Global Data Refactoring Info", Messages.getInformationIcon());
+        }
+    }
+
+    /**
+     * All changes required in one file
+     */
+    private static class FileChanges {
+        private final List<PsiField> fields = new ArrayList<>();
+        private final List<ReferenceChange> references = new ArrayList<>();
+
+        /**
+         * Adds one edit for every field and every reference of this file to the command
+         *
+         * @param command
+         */
+        void addTo(ChunkedWriteCommand command) {
+            for (PsiField field : fields) {
+                command.add(() -> {
+                    if (field.isValid()) {
+                        encapsulateField(field);
+                    }
+                });
+            }
+
+            // start from the end of the file to keep the offsets of the remaining references
+            references.sort((ref1, ref2) -> Integer.compare(ref2.offset, ref1.offset));
+            for (ReferenceChange change : references) {
+                command.add(() -> {
+                    if (change.reference.getElement().isValid()) {
+                        new ReferenceRewriter(change.reference.getElement().getProject(), change.className, false)
+                                .rewrite(change.reference, change.fieldName);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * One reference to be rewritten with a getter or a setter call
+     */
+    private static class ReferenceChange {
+        private final PsiReference reference;
+        private final String className;
+        private final String fieldName;
+        private final int offset;
+
+        ReferenceChange(PsiReference reference, String className, String fieldName) {
+            this.reference = reference;
+            this.className = className;
+            this.fieldName = fieldName;
+            this.offset = reference.getElement().getTextRange().getStartOffset();
+        }
+    }
+
+    /**
+     * Adds getter and setter methods for the field and makes it private
+     *
+     * @param field
+     */
+    static void encapsulateField(PsiField field) {
+        Project project = field.getProject();
+        PsiClass containingClass = Objects.requireNonNull(field.getContainingClass());
+
+        // create getter and setter methods for this field
+        PsiMethod getMethod = PsiUtils.createGetterSetterMethod(true, project, field.getName(), field.getType(), false, false, true);
+        containingClass.add(getMethod);
+        PsiMethod setMethod = PsiUtils.createGetterSetterMethod(false, project, field.getName(), field.getType(), false, false, true);
+        containingClass.add(setMethod);
+
+        // change field to private
+        Objects.requireNonNull(field.getModifierList()).setModifierProperty(PsiModifier.PRIVATE, true);
+    }
+}
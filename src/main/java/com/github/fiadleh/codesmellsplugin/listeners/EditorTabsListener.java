@@ -0,0 +1,26 @@
+package com.github.fiadleh.codesmellsplugin.listeners;
+
+import com.github.fiadleh.codesmellsplugin.util.WarmUpScheduler;
+import com.intellij.openapi.fileEditor.FileEditorManager;
+import com.intellij.openapi.fileEditor.FileEditorManagerEvent;
+import com.intellij.openapi.fileEditor.FileEditorManagerListener;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Listener to index the files of the open editors first while the caches are warmed up
+ *
+ * @author Firas Adleh
+ */
+public class EditorTabsListener implements FileEditorManagerListener {
+
+    @Override
+    public void fileOpened(@NotNull FileEditorManager source, @NotNull VirtualFile file) {
+        WarmUpScheduler.reprioritize();
+    }
+
+    @Override
+    public void selectionChanged(@NotNull FileEditorManagerEvent event) {
+        WarmUpScheduler.reprioritize();
+    }
+}
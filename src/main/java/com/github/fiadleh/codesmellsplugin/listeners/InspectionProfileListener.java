@@ -0,0 +1,49 @@
+package com.github.fiadleh.codesmellsplugin.listeners;
+
+import com.github.fiadleh.codesmellsplugin.codesmells.dataclumps.DataclumpsInspection;
+import com.github.fiadleh.codesmellsplugin.util.CacheManager;
+import com.github.fiadleh.codesmellsplugin.util.DetectionExclusions;
+import com.intellij.codeInspection.InspectionProfile;
+import com.intellij.openapi.project.Project;
+import com.intellij.profile.ProfileChangeAdapter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Listener to apply the detection exclusions of the inspection profile once the settings are committed,
+ * the caches are built again only if the exclusions have changed
+ *
+ * @author Firas Adleh
+ */
+public class InspectionProfileListener implements ProfileChangeAdapter {
+    private final Project project;
+
+    public InspectionProfileListener(@NotNull Project project) {
+        this.project = project;
+    }
+
+    @Override
+    public void profileChanged(@NotNull InspectionProfile profile) {
+        if (applyExclusions(project)) {
+            CacheManager.resetIsCacheReady();
+        }
+    }
+
+    @Override
+    public void profileActivated(@Nullable InspectionProfile oldProfile, @Nullable InspectionProfile profile) {
+        if (applyExclusions(project)) {
+            CacheManager.resetIsCacheReady();
+        }
+    }
+
+    /**
+     * Applies the exclusion options of the data clumps inspection in the current profile of the given project
+     *
+     * @param project
+     * @return true if the exclusions have changed
+     */
+    public static boolean applyExclusions(@NotNull Project project) {
+        DataclumpsInspection inspection = DataclumpsInspection.getInstance(project);
+        return DetectionExclusions.apply(inspection.excludeTestSources, inspection.excludeGeneratedSources, inspection.excludedGlobs);
+    }
+}
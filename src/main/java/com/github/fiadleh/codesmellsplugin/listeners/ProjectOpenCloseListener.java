@@ -2,6 +2,9 @@ package com.github.fiadleh.codesmellsplugin.listeners;
 
 
 import com.github.fiadleh.codesmellsplugin.util.CacheManager;
+import com.github.fiadleh.codesmellsplugin.util.ClumpGraphExporter;
+import com.github.fiadleh.codesmellsplugin.util.GlobalDataUsageIndex;
+import com.github.fiadleh.codesmellsplugin.util.SignatureIndex;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.application.ModalityState;
 import com.intellij.openapi.project.DumbService;
@@ -28,15 +31,42 @@ public class ProjectOpenCloseListener implements ProjectManagerListener {
             return;
         }
 
+        // the caches of the new project are built with the exclusions of its inspection profile
+        InspectionProfileListener.applyExclusions(project);
+
         // reset the cache to recreate it for the new project
         CacheManager.resetIsCacheReady();
 
+        // index the files changed outside the highlighted editors and remove the deleted ones
+        SourceChangesListener.install(project);
+
         // start creating cache after the project is completely loaded and indexed
         DumbService.getInstance(project).smartInvokeLater(
-                () ->
-                    CacheManager.createClassesListCache(project)
+                () -> {
+                    // load the stored signatures and index the changed files in the background, open editors first
+                    // export the clumps graph once the index is built if it has been requested on the command line
+                    ClumpGraphExporter.exportWhenIndexed(project, SignatureIndex.warmUp(project));
+                    CacheManager.createClassesListCache(project);
+                    // count the global data usages in the background
+                    GlobalDataUsageIndex.warmUp(project);
+                }
                 , ModalityState.any()
         );
 
     }
-}
\ No newline at end of file
+
+    /**
+     * Called when project is being closed
+     *
+     * @param project currently closed project
+     */
+    @Override
+    public void projectClosing(@NotNull Project project) {
+        if (ApplicationManager.getApplication().isUnitTestMode()) {
+            return;
+        }
+
+        // keep the signatures for the next start
+        SignatureIndex.save(project);
+    }
+}
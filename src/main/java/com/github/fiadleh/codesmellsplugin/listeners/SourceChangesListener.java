@@ -0,0 +1,172 @@
+package com.github.fiadleh.codesmellsplugin.listeners;
+
+import com.github.fiadleh.codesmellsplugin.util.GlobalDataUsageIndex;
+import com.github.fiadleh.codesmellsplugin.util.ParameterObjectIndex;
+import com.github.fiadleh.codesmellsplugin.util.SignatureIndex;
+import com.intellij.ide.highlighter.JavaFileType;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.fileTypes.FileTypeRegistry;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileDeleteEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileMoveEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
+import com.intellij.psi.*;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the code smells indexes up to date with the changes made outside the highlighted editors, like refactorings,
+ * VCS updates or files changed by other tools. The changed files are collected and indexed again in one background
+ * read action, the deleted files are removed from the indexes at once. Files added or changed by other tools are
+ * indexed here, so the partners of their data clumps are found without opening them.
+ *
+ * @author Firas Adleh
+ */
+public class SourceChangesListener extends PsiTreeChangeAdapter implements BulkFileListener {
+    private final Project project;
+
+    /**
+     * The changed files not indexed yet, a file stays here until it has been indexed
+     */
+    private final Set<VirtualFile> pendingFiles = ConcurrentHashMap.newKeySet();
+
+    private SourceChangesListener(Project project) {
+        this.project = project;
+    }
+
+    /**
+     * Starts listening to the PSI and VFS changes of the given project until it is closed
+     *
+     * @param project
+     */
+    public static void install(@NotNull Project project) {
+        SourceChangesListener listener = new SourceChangesListener(project);
+        PsiManager.getInstance(project).addPsiTreeChangeListener(listener, project);
+        project.getMessageBus().connect(project).subscribe(VirtualFileManager.VFS_CHANGES, listener);
+    }
+
+    /**
+     * The deleted files and directories are removed while they are still valid, the signatures of moved or
+     * renamed files are removed under their old urls
+     */
+    @Override
+    public void before(@NotNull List<? extends VFileEvent> events) {
+        for (VFileEvent event : events) {
+            VirtualFile virtualFile = event.getFile();
+            if (virtualFile == null || !(virtualFile.isDirectory() || isJavaFile(virtualFile))) {
+                continue;
+            }
+            if (event instanceof VFileDeleteEvent) {
+                pendingFiles.removeIf(file -> VfsUtilCore.isAncestor(virtualFile, file, false));
+                GlobalDataUsageIndex.removeFiles(virtualFile);
+                SignatureIndex.removeFiles(virtualFile);
+                ParameterObjectIndex.removeFiles(virtualFile);
+            } else if (isMoveOrRename(event)) {
+                SignatureIndex.removeFiles(virtualFile);
+                ParameterObjectIndex.removeFiles(virtualFile);
+            }
+        }
+    }
+
+    @Override
+    public void after(@NotNull List<? extends VFileEvent> events) {
+        for (VFileEvent event : events) {
+            VirtualFile virtualFile = event.getFile();
+            if (event instanceof VFileDeleteEvent || virtualFile == null || !virtualFile.isValid()) {
+                continue;
+            }
+            if (isJavaFile(virtualFile)) {
+                schedule(virtualFile);
+            } else if (virtualFile.isDirectory() && isMoveOrRename(event)) {
+                // the files of a moved directory have new urls
+                VfsUtilCore.iterateChildrenRecursively(virtualFile, null, file -> {
+                    if (!file.isDirectory() && isJavaFile(file)) {
+                        schedule(file);
+                    }
+                    return true;
+                });
+            }
+        }
+    }
+
+    @Override
+    public void childAdded(@NotNull PsiTreeChangeEvent event) {
+        schedule(event.getFile());
+    }
+
+    @Override
+    public void childRemoved(@NotNull PsiTreeChangeEvent event) {
+        schedule(event.getFile());
+    }
+
+    @Override
+    public void childReplaced(@NotNull PsiTreeChangeEvent event) {
+        schedule(event.getFile());
+    }
+
+    @Override
+    public void childMoved(@NotNull PsiTreeChangeEvent event) {
+        schedule(event.getFile());
+    }
+
+    @Override
+    public void childrenChanged(@NotNull PsiTreeChangeEvent event) {
+        schedule(event.getFile());
+    }
+
+    private void schedule(PsiFile file) {
+        if (file instanceof PsiJavaFile && file.getVirtualFile() != null) {
+            schedule(file.getVirtualFile());
+        }
+    }
+
+    private void schedule(VirtualFile virtualFile) {
+        pendingFiles.add(virtualFile);
+        // a running indexing of the pending files is replaced by the new one
+        ReadAction.nonBlocking(this::indexPendingFiles)
+                .inSmartMode(project)
+                .coalesceBy(this)
+                .expireWith(project)
+                .submit(AppExecutorUtil.getAppExecutorService());
+    }
+
+    /**
+     * Indexes all pending files, restarted after every write action until all of them have been indexed
+     */
+    private void indexPendingFiles() {
+        PsiManager psiManager = PsiManager.getInstance(project);
+        GlobalSearchScope projectScope = GlobalSearchScope.projectScope(project);
+        for (VirtualFile virtualFile : new ArrayList<>(pendingFiles)) {
+            ProgressManager.checkCanceled();
+            PsiFile file = virtualFile.isValid() && projectScope.contains(virtualFile) ? psiManager.findFile(virtualFile) : null;
+            if (file instanceof PsiJavaFile) {
+                // the signatures are indexed first, the data clumps partners of the file are highlighted again if needed
+                SignatureIndex.indexFile(file);
+                GlobalDataUsageIndex.indexFile(file);
+                ParameterObjectIndex.indexFile(file);
+            }
+            pendingFiles.remove(virtualFile);
+        }
+    }
+
+    private static boolean isMoveOrRename(VFileEvent event) {
+        return event instanceof VFileMoveEvent
+                || (event instanceof VFilePropertyChangeEvent && VirtualFile.PROP_NAME.equals(((VFilePropertyChangeEvent) event).getPropertyName()));
+    }
+
+    private static boolean isJavaFile(VirtualFile virtualFile) {
+        return FileTypeRegistry.getInstance().isFileOfType(virtualFile, JavaFileType.INSTANCE);
+    }
+}
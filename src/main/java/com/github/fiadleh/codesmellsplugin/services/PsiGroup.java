@@ -1,64 +1,322 @@
 package com.github.fiadleh.codesmellsplugin.services;
 
-import com.intellij.psi.PsiElement;
+import com.github.fiadleh.codesmellsplugin.util.PsiUtils;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.psi.*;
+import com.intellij.psi.util.PsiTreeUtil;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
+import java.io.Serializable;
+import java.util.*;
 
 /**
- * A container for the various PSI elements that form a code smell instance
+ * An immutable code smell instance made of the smelly variables and the classes or parameter lists connecting them.
+ * Every member is kept as a smart pointer together with a structural key, its file and its offset, so the instance
+ * survives changes between the detection and the fix, membership is a hash lookup of the key, and a serialized
+ * instance can be restored in a project. Instances are created with a Builder in a read action.
  *
  * @author Firas Adleh
  */
-public class PsiGroup {
+public final class PsiGroup implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     /**
      * Code smell elements that need to be refactored
      */
-    private final List<PsiElement> elements;
+    private final List<Member> elements;
 
     /**
      * Connections between the code smell elements
      */
-    private final List<PsiElement> connections;
+    private final List<Member> connections;
+
+    /**
+     * The position of every element by its structural key
+     */
+    private final Map<String, Integer> indexPerKey;
+
+    private final boolean isParameterGroup;
+
+    /**
+     * One element or connection of the instance
+     */
+    private static final class Member implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String key;
+        private final String name;
+        private final String typeText;
+        private final String fileUrl;
+        private final int offset;
+        private final Class<? extends PsiElement> psiClass;
+        private transient SmartPsiElementPointer<PsiElement> pointer;
+
+        Member(PsiElement element, String key) {
+            this.key = key;
+            this.name = element instanceof PsiNamedElement ? ((PsiNamedElement) element).getName() : null;
+            this.typeText = element instanceof PsiVariable ? ((PsiVariable) element).getType().getCanonicalText() : null;
+            VirtualFile file = element.getContainingFile() == null ? null : element.getContainingFile().getVirtualFile();
+            this.fileUrl = file == null ? null : file.getUrl();
+            this.offset = element.getTextRange() == null ? -1 : element.getTextRange().getStartOffset();
+            this.psiClass = getPsiInterface(element);
+            this.pointer = SmartPointerManager.getInstance(element.getProject()).createSmartPsiElementPointer(element);
+        }
+
+        PsiElement getElement() {
+            return pointer == null ? null : pointer.getElement();
+        }
 
-    public PsiGroup(PsiElement... elements) {
-        this.elements = new ArrayList<>();
-        this.connections = new ArrayList<>();
-        this.elements.addAll(Arrays.asList(elements));
+        /**
+         * Finds the element again by its file and offset after deserialization
+         */
+        void restore(Project project) {
+            if (pointer != null || fileUrl == null) {
+                return;
+            }
+            VirtualFile virtualFile = VirtualFileManager.getInstance().findFileByUrl(fileUrl);
+            PsiFile file = virtualFile == null ? null : PsiManager.getInstance(project).findFile(virtualFile);
+            PsiElement element = file == null ? null : PsiTreeUtil.findElementOfClassAtOffset(file, offset, psiClass, true);
+            if (element != null && key.equals(createKey(element))) {
+                pointer = SmartPointerManager.getInstance(project).createSmartPsiElementPointer(element);
+            }
+        }
     }
 
-    public boolean hasElement(PsiElement element) {
-        for (PsiElement elem:this.elements){
-            if(element.getText().equals(elem.getText())){
-                return true;
+    private PsiGroup(List<Member> elements, List<Member> connections) {
+        this.elements = Collections.unmodifiableList(elements);
+        this.connections = Collections.unmodifiableList(connections);
+        this.indexPerKey = new HashMap<>();
+        for (int i = 0; i < elements.size(); i++) {
+            indexPerKey.putIfAbsent(elements.get(i).key, i);
+        }
+        this.isParameterGroup = !elements.isEmpty() && PsiParameter.class.equals(elements.get(0).psiClass);
+    }
+
+    /**
+     * Collects the members of a new instance, elements with the key of an added element are ignored
+     */
+    public static final class Builder {
+        private final List<Member> elements = new ArrayList<>();
+        private final List<Member> connections = new ArrayList<>();
+        private final Set<String> elementKeys = new HashSet<>();
+
+        public Builder addElement(PsiElement element) {
+            String key = createKey(element);
+            if (elementKeys.add(key)) {
+                elements.add(new Member(element, key));
             }
+            return this;
+        }
+
+        public Builder addElements(Collection<? extends PsiElement> newElements) {
+            for (PsiElement element : newElements) {
+                addElement(element);
+            }
+            return this;
+        }
+
+        public Builder addConnection(PsiElement connection) {
+            connections.add(new Member(connection, createKey(connection)));
+            return this;
+        }
+
+        public PsiGroup build() {
+            return new PsiGroup(new ArrayList<>(elements), new ArrayList<>(connections));
         }
-        return false;
     }
 
-    public void addConnection(PsiElement connection) {
-        connections.add(connection);
+    /**
+     * The structural key of a member, variables are equal if their canonical types and names are equal, modifiers,
+     * annotations and formatting are ignored
+     *
+     * @param element
+     * @return
+     */
+    public static String createKey(PsiElement element) {
+        if (element instanceof PsiVariable) {
+            return PsiUtils.getVariableSignature(element);
+        }
+        if (element instanceof PsiClass) {
+            return "class " + ((PsiClass) element).getQualifiedName();
+        }
+        if (element instanceof PsiParameterList && element.getParent() instanceof PsiMethod) {
+            PsiMethod method = (PsiMethod) element.getParent();
+            PsiClass containingClass = method.getContainingClass();
+            return "method " + (containingClass == null ? "" : containingClass.getQualifiedName()) + "#" + method.getName() + element.getText();
+        }
+        return element.getText();
     }
 
-    public void addElement(PsiElement element) {
-        if (!this.hasElement(element)) {
-            this.elements.add(element);
+    private static Class<? extends PsiElement> getPsiInterface(PsiElement element) {
+        if (element instanceof PsiParameter) {
+            return PsiParameter.class;
+        }
+        if (element instanceof PsiField) {
+            return PsiField.class;
         }
+        if (element instanceof PsiClass) {
+            return PsiClass.class;
+        }
+        if (element instanceof PsiParameterList) {
+            return PsiParameterList.class;
+        }
+        return PsiElement.class;
     }
 
-    public List<PsiElement> getConnections() {
-        return connections;
+    /**
+     * Checks if a variable with the same type and name is an element of this instance
+     *
+     * @param element
+     * @return
+     */
+    public boolean hasElement(PsiElement element) {
+        return indexPerKey.containsKey(createKey(element));
+    }
+
+    /**
+     * Returns the position of the element with the same type and name as the given variable
+     *
+     * @param element
+     * @return the position or -1 if no element matches
+     */
+    public int getElementIndex(PsiElement element) {
+        return indexPerKey.getOrDefault(createKey(element), -1);
+    }
+
+    public int size() {
+        return elements.size();
+    }
+
+    /**
+     * Checks if the elements are parameters, otherwise they are fields
+     *
+     * @return
+     */
+    public boolean isParameterGroup() {
+        return isParameterGroup;
+    }
+
+    /**
+     * Returns the name an element had when the instance was created, available even if the element has been deleted
+     *
+     * @param index
+     * @return
+     */
+    public String getElementName(int index) {
+        return elements.get(index).name;
+    }
+
+    /**
+     * Returns the canonical type an element had when the instance was created
+     *
+     * @param index
+     * @return
+     */
+    public String getElementTypeText(int index) {
+        return elements.get(index).typeText;
     }
 
+    /**
+     * Returns the current elements, deleted elements are skipped
+     *
+     * @return
+     */
     public List<PsiElement> getElements() {
-        return this.elements;
+        return resolve(elements);
     }
 
+    /**
+     * Returns the current element at the given position
+     *
+     * @param index
+     * @return the element or null if it has been deleted
+     */
+    public PsiElement getElement(int index) {
+        return elements.get(index).getElement();
+    }
 
-    public PsiElement getElement(int index){
-        return this.elements.get(index);
+    /**
+     * Returns the current connections, deleted connections are skipped
+     *
+     * @return
+     */
+    public List<PsiElement> getConnections() {
+        return resolve(connections);
     }
 
+    /**
+     * Checks that the instance has elements and that all members still exist with the same types and names
+     *
+     * @return
+     */
+    public boolean isValid() {
+        if (elements.isEmpty()) {
+            return false;
+        }
+        for (Member member : elements) {
+            PsiElement element = member.getElement();
+            if (element == null || !member.key.equals(createKey(element))) {
+                return false;
+            }
+        }
+        for (Member member : connections) {
+            if (member.getElement() == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Creates the pointers of a deserialized instance, must be called in a read action before the members are used
+     *
+     * @param project
+     * @return this instance
+     */
+    public PsiGroup restore(Project project) {
+        for (Member member : elements) {
+            member.restore(project);
+        }
+        for (Member member : connections) {
+            member.restore(project);
+        }
+        return this;
+    }
 
+    private static List<PsiElement> resolve(List<Member> members) {
+        List<PsiElement> results = new ArrayList<>(members.size());
+        for (Member member : members) {
+            PsiElement element = member.getElement();
+            if (element != null) {
+                results.add(element);
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof PsiGroup)) {
+            return false;
+        }
+        PsiGroup other = (PsiGroup) o;
+        return indexPerKey.keySet().equals(other.indexPerKey.keySet()) && getConnectionKeys().equals(other.getConnectionKeys());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(indexPerKey.keySet(), getConnectionKeys());
+    }
+
+    private Set<String> getConnectionKeys() {
+        Set<String> keys = new HashSet<>();
+        for (Member member : connections) {
+            keys.add(member.key);
+        }
+        return keys;
+    }
 }
@@ -0,0 +1,133 @@
+package com.github.fiadleh.codesmellsplugin.toolwindow;
+
+import com.github.fiadleh.codesmellsplugin.util.FieldClumpMiner;
+import com.github.fiadleh.codesmellsplugin.util.GlobalDataUsageIndex;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.JavaPsiFacade;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.search.GlobalSearchScope;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * One row of the clump explorer, a data clump of fields or a global data field.
+ * Only names and counts are kept, the PSI elements are resolved when the row is opened.
+ *
+ * @author Firas Adleh
+ */
+class ClumpExplorerEntry {
+    /**
+     * Orders the entries from the smallest to the greatest size multiplied with the frequency
+     */
+    static final Comparator<ClumpExplorerEntry> BY_SCORE = Comparator.comparingLong(ClumpExplorerEntry::getScore)
+            .thenComparing(entry -> entry.key);
+
+    enum Kind {
+        DATA_CLUMP("Data clump"),
+        GLOBAL_DATA("Global data");
+
+        private final String displayName;
+
+        Kind(String displayName) {
+            this.displayName = displayName;
+        }
+
+        @Override
+        public String toString() {
+            return displayName;
+        }
+    }
+
+    /**
+     * Identifies the entry between two loads of the explorer
+     */
+    final String key;
+    final Kind kind;
+    final String variables;
+    final String locations;
+
+    /**
+     * The number of fields of a clump, or the number of read and write sites of a global field
+     */
+    final int size;
+
+    /**
+     * The number of classes of a clump, or the number of files using a global field
+     */
+    final int frequency;
+
+    /**
+     * The mined clump, null for global data
+     */
+    private final FieldClumpMiner.FieldClump clump;
+
+    private ClumpExplorerEntry(String key, Kind kind, String variables, String locations, int size, int frequency,
+                               FieldClumpMiner.FieldClump clump) {
+        this.key = key;
+        this.kind = kind;
+        this.variables = variables;
+        this.locations = locations;
+        this.size = size;
+        this.frequency = frequency;
+        this.clump = clump;
+    }
+
+    static ClumpExplorerEntry createClumpEntry(FieldClumpMiner.FieldClump clump) {
+        List<String> fieldKeys = clump.getFieldKeys();
+        fieldKeys.sort(null);
+        // the field keys hold the type as printed by PsiType.toString
+        String variables = String.join(", ", fieldKeys).replace("psitype:", "");
+        return new ClumpExplorerEntry("C:" + variables, Kind.DATA_CLUMP, variables, String.join(", ", clump.getClassNames()),
+                clump.getFieldsCount(), clump.getClassesCount(), clump);
+    }
+
+    static ClumpExplorerEntry createGlobalDataEntry(String qualifiedName, GlobalDataUsageIndex.FieldUsage usage) {
+        int separator = qualifiedName.lastIndexOf('.');
+        return new ClumpExplorerEntry("G:" + qualifiedName, Kind.GLOBAL_DATA, qualifiedName.substring(separator + 1),
+                qualifiedName.substring(0, Math.max(0, separator)), usage.getReads() + usage.getWrites(), usage.getFiles(), null);
+    }
+
+    long getScore() {
+        return (long) size * frequency;
+    }
+
+    boolean hasSameCounts(ClumpExplorerEntry other) {
+        return size == other.size && frequency == other.frequency && locations.equals(other.locations);
+    }
+
+    /**
+     * Finds the first class of a clump or the global field, must be called in a read action
+     *
+     * @param project
+     * @return the element or null if it does not exist anymore
+     */
+    PsiElement findTarget(Project project) {
+        if (clump != null) {
+            return clump.findFirstClass(project);
+        }
+        PsiClass containingClass = JavaPsiFacade.getInstance(project).findClass(locations, GlobalSearchScope.projectScope(project));
+        return containingClass == null ? null : containingClass.findFieldByName(variables, false);
+    }
+
+    boolean matches(String filter) {
+        return filter.isEmpty() || variables.toLowerCase().contains(filter) || locations.toLowerCase().contains(filter);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ClumpExplorerEntry && key.equals(((ClumpExplorerEntry) o).key);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(key);
+    }
+
+    @Override
+    public String toString() {
+        return getScore() + "  " + kind + ": " + variables + " (" + frequency + (kind == Kind.DATA_CLUMP ? " classes)" : " files)");
+    }
+}
@@ -0,0 +1,328 @@
+package com.github.fiadleh.codesmellsplugin.toolwindow;
+
+import com.github.fiadleh.codesmellsplugin.util.FieldClumpMiner;
+import com.github.fiadleh.codesmellsplugin.util.GlobalDataUsageIndex;
+import com.github.fiadleh.codesmellsplugin.util.TopNList;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.ComboBox;
+import com.intellij.pom.Navigatable;
+import com.intellij.psi.PsiElement;
+import com.intellij.ui.CollectionListModel;
+import com.intellij.ui.DocumentAdapter;
+import com.intellij.ui.JBSplitter;
+import com.intellij.ui.components.JBList;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.ui.components.JBTextField;
+import com.intellij.ui.table.JBTable;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.List;
+import java.util.*;
+
+/**
+ * Lists the mined data clumps and the used global data fields of the whole project out of the indexes,
+ * without inspecting the files. The filtered rows are shown in pages and the table only renders the visible rows,
+ * so the explorer stays responsive with a hundred thousand entries. The worst entries are kept in a bounded list
+ * updated with the changed entries of every load.
+ *
+ * @author Firas Adleh
+ */
+public class ClumpExplorerPanel extends JPanel implements Disposable {
+    private static final int PAGE_SIZE = 500;
+    private static final int WORST_ENTRIES_COUNT = 20;
+
+    /**
+     * Delay between two checks of the indexes for new results in milliseconds
+     */
+    private static final int REFRESH_DELAY = 3000;
+
+    private enum EntriesOrder {
+        SCORE("Size x frequency", ClumpExplorerEntry.BY_SCORE),
+        SIZE("Size", Comparator.<ClumpExplorerEntry>comparingInt(entry -> entry.size).thenComparing(ClumpExplorerEntry.BY_SCORE)),
+        FREQUENCY("Frequency", Comparator.<ClumpExplorerEntry>comparingInt(entry -> entry.frequency).thenComparing(ClumpExplorerEntry.BY_SCORE));
+
+        private final String displayName;
+        private final Comparator<ClumpExplorerEntry> comparator;
+
+        EntriesOrder(String displayName, Comparator<ClumpExplorerEntry> comparator) {
+            this.displayName = displayName;
+            this.comparator = comparator;
+        }
+
+        @Override
+        public String toString() {
+            return displayName;
+        }
+    }
+
+    private final Project project;
+
+    private Map<String, ClumpExplorerEntry> entriesByKey = new HashMap<>();
+    private final TopNList<ClumpExplorerEntry> worstEntries = new TopNList<>(WORST_ENTRIES_COUNT, ClumpExplorerEntry.BY_SCORE);
+    private List<ClumpExplorerEntry> filteredEntries = Collections.emptyList();
+    private int page = 0;
+
+    /**
+     * The versions of the indexes the shown entries have been loaded from
+     */
+    private int loadedClumpsVersion = -1;
+    private int loadedGlobalDataVersion = -1;
+
+    private final EntriesTableModel tableModel = new EntriesTableModel();
+    private final CollectionListModel<ClumpExplorerEntry> worstListModel = new CollectionListModel<>();
+    private final JBTextField filterTF = new JBTextField(20);
+    private final JSpinner minSizeSpinner = new JSpinner(new SpinnerNumberModel(0, 0, Integer.MAX_VALUE, 1));
+    private final JSpinner minFrequencySpinner = new JSpinner(new SpinnerNumberModel(0, 0, Integer.MAX_VALUE, 1));
+    private final ComboBox<EntriesOrder> sortCB = new ComboBox<>(EntriesOrder.values());
+    private final JLabel statusLabel = new JLabel("Loading...");
+    private final JButton previousButton = new JButton("<");
+    private final JButton nextButton = new JButton(">");
+    private final Timer refreshTimer;
+
+    public ClumpExplorerPanel(Project project) {
+        super(new BorderLayout());
+        this.project = project;
+
+        JPanel toolbar = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        toolbar.add(new JLabel("Filter: "));
+        toolbar.add(filterTF);
+        toolbar.add(new JLabel("Min size: "));
+        toolbar.add(minSizeSpinner);
+        toolbar.add(new JLabel("Min frequency: "));
+        toolbar.add(minFrequencySpinner);
+        toolbar.add(new JLabel("Sort by: "));
+        toolbar.add(sortCB);
+        toolbar.add(previousButton);
+        toolbar.add(statusLabel);
+        toolbar.add(nextButton);
+        add(toolbar, BorderLayout.NORTH);
+
+        JBTable table = new JBTable(tableModel);
+        table.getColumnModel().getColumn(0).setPreferredWidth(80);
+        table.getColumnModel().getColumn(1).setPreferredWidth(400);
+        table.getColumnModel().getColumn(2).setPreferredWidth(400);
+        JBList<ClumpExplorerEntry> worstList = new JBList<>(worstListModel);
+
+        JBSplitter splitter = new JBSplitter(false, 0.7f);
+        splitter.setFirstComponent(new JBScrollPane(table));
+        JPanel worstPanel = new JPanel(new BorderLayout());
+        worstPanel.add(new JLabel("Worst " + WORST_ENTRIES_COUNT + ":"), BorderLayout.NORTH);
+        worstPanel.add(new JBScrollPane(worstList), BorderLayout.CENTER);
+        splitter.setSecondComponent(worstPanel);
+        add(splitter, BorderLayout.CENTER);
+
+        filterTF.getDocument().addDocumentListener(new DocumentAdapter() {
+            @Override
+            protected void textChanged(@NotNull DocumentEvent e) {
+                applyFilter();
+            }
+        });
+        minSizeSpinner.addChangeListener(e -> applyFilter());
+        minFrequencySpinner.addChangeListener(e -> applyFilter());
+        sortCB.addItemListener(e -> applyFilter());
+        previousButton.addActionListener(e -> showPage(page - 1));
+        nextButton.addActionListener(e -> showPage(page + 1));
+
+        table.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int row = table.rowAtPoint(e.getPoint());
+                if (e.getClickCount() == 2 && row >= 0) {
+                    navigate(tableModel.getEntry(table.convertRowIndexToModel(row)));
+                }
+            }
+        });
+        worstList.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int index = worstList.locationToIndex(e.getPoint());
+                if (e.getClickCount() == 2 && index >= 0) {
+                    navigate(worstListModel.getElementAt(index));
+                }
+            }
+        });
+
+        refreshTimer = new Timer(REFRESH_DELAY, e -> loadIfChanged());
+        refreshTimer.start();
+        load();
+    }
+
+    /**
+     * Loads the entries again if the tool window is visible and the indexes have new results
+     */
+    private void loadIfChanged() {
+        if (isShowing() && (loadedClumpsVersion != FieldClumpMiner.getResultVersion()
+                || loadedGlobalDataVersion != GlobalDataUsageIndex.getModificationCount())) {
+            load();
+        }
+    }
+
+    /**
+     * Collects the entries in a background read action, the previous load is canceled if it is still running
+     */
+    private void load() {
+        int clumpsVersion = FieldClumpMiner.getResultVersion();
+        int globalDataVersion = GlobalDataUsageIndex.getModificationCount();
+        ReadAction.nonBlocking(this::collectEntries)
+                .expireWith(this)
+                .coalesceBy(this)
+                .finishOnUiThread(ModalityState.any(), entries -> {
+                    loadedClumpsVersion = clumpsVersion;
+                    loadedGlobalDataVersion = globalDataVersion;
+                    update(entries);
+                })
+                .submit(AppExecutorUtil.getAppExecutorService());
+    }
+
+    private List<ClumpExplorerEntry> collectEntries() {
+        List<ClumpExplorerEntry> entries = new ArrayList<>();
+        Collection<FieldClumpMiner.FieldClump> clumps = FieldClumpMiner.getAllClumps(project);
+        if (clumps != null) {
+            for (FieldClumpMiner.FieldClump clump : clumps) {
+                entries.add(ClumpExplorerEntry.createClumpEntry(clump));
+            }
+        }
+        Map<String, GlobalDataUsageIndex.FieldUsage> usages = GlobalDataUsageIndex.getAllUsages();
+        if (usages != null) {
+            for (Map.Entry<String, GlobalDataUsageIndex.FieldUsage> usage : usages.entrySet()) {
+                entries.add(ClumpExplorerEntry.createGlobalDataEntry(usage.getKey(), usage.getValue()));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Replaces the entries and updates the worst entries with the added and changed ones.
+     * The worst entries are only collected again from all entries if one of them has been removed or changed.
+     *
+     * @param entries
+     */
+    private void update(List<ClumpExplorerEntry> entries) {
+        Map<String, ClumpExplorerEntry> newEntriesByKey = new HashMap<>();
+        for (ClumpExplorerEntry entry : entries) {
+            newEntriesByKey.put(entry.key, entry);
+        }
+
+        boolean isWorstIncomplete = false;
+        for (ClumpExplorerEntry oldEntry : entriesByKey.values()) {
+            ClumpExplorerEntry newEntry = newEntriesByKey.get(oldEntry.key);
+            if ((newEntry == null || !newEntry.hasSameCounts(oldEntry)) && worstEntries.remove(oldEntry)) {
+                isWorstIncomplete = true;
+            }
+        }
+        if (isWorstIncomplete) {
+            worstEntries.clear();
+        }
+        for (ClumpExplorerEntry entry : newEntriesByKey.values()) {
+            ClumpExplorerEntry oldEntry = entriesByKey.get(entry.key);
+            if (isWorstIncomplete || oldEntry == null || !entry.hasSameCounts(oldEntry)) {
+                worstEntries.offer(entry);
+            }
+        }
+        entriesByKey = newEntriesByKey;
+        worstListModel.replaceAll(worstEntries.getSorted());
+        applyFilter();
+    }
+
+    /**
+     * Filters and sorts all entries and shows the first page
+     */
+    private void applyFilter() {
+        String filter = filterTF.getText().trim().toLowerCase();
+        int minSize = (Integer) minSizeSpinner.getValue();
+        int minFrequency = (Integer) minFrequencySpinner.getValue();
+        EntriesOrder sortOrder = (EntriesOrder) sortCB.getSelectedItem();
+
+        List<ClumpExplorerEntry> results = new ArrayList<>();
+        for (ClumpExplorerEntry entry : entriesByKey.values()) {
+            if (entry.size >= minSize && entry.frequency >= minFrequency && entry.matches(filter)) {
+                results.add(entry);
+            }
+        }
+        results.sort((sortOrder == null ? EntriesOrder.SCORE : sortOrder).comparator.reversed());
+        filteredEntries = results;
+        showPage(0);
+    }
+
+    private void showPage(int newPage) {
+        int pagesCount = Math.max(1, (filteredEntries.size() + PAGE_SIZE - 1) / PAGE_SIZE);
+        page = Math.max(0, Math.min(newPage, pagesCount - 1));
+        previousButton.setEnabled(page > 0);
+        nextButton.setEnabled(page < pagesCount - 1);
+        int first = page * PAGE_SIZE;
+        statusLabel.setText(filteredEntries.isEmpty() ? "No entries" :
+                (first + 1) + "-" + Math.min(first + PAGE_SIZE, filteredEntries.size()) + " of " + filteredEntries.size());
+        tableModel.fireTableDataChanged();
+    }
+
+    private void navigate(ClumpExplorerEntry entry) {
+        PsiElement target = ReadAction.compute(() -> entry.findTarget(project));
+        if (target instanceof Navigatable && ((Navigatable) target).canNavigate()) {
+            ((Navigatable) target).navigate(true);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        refreshTimer.stop();
+    }
+
+    /**
+     * The rows of the current page
+     */
+    private class EntriesTableModel extends AbstractTableModel {
+        private final String[] columnNames = {"Kind", "Variables", "Locations", "Size", "Frequency"};
+
+        ClumpExplorerEntry getEntry(int row) {
+            return filteredEntries.get(page * PAGE_SIZE + row);
+        }
+
+        @Override
+        public int getRowCount() {
+            return Math.max(0, Math.min(PAGE_SIZE, filteredEntries.size() - page * PAGE_SIZE));
+        }
+
+        @Override
+        public int getColumnCount() {
+            return columnNames.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return columnNames[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return column >= 3 ? Integer.class : String.class;
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            ClumpExplorerEntry entry = getEntry(row);
+            switch (column) {
+                case 0:
+                    return entry.kind.toString();
+                case 1:
+                    return entry.variables;
+                case 2:
+                    return entry.locations;
+                case 3:
+                    return entry.size;
+                default:
+                    return entry.frequency;
+            }
+        }
+    }
+}
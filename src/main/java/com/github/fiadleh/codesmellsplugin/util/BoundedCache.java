@@ -0,0 +1,352 @@
+package com.github.fiadleh.codesmellsplugin.util;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * A weight bounded cache with W-TinyLFU eviction. New entries enter a small LRU window, an entry leaving the window
+ * is only admitted to the main space if it has been used more often than the entry it would replace there.
+ * The main space is split into a probation and a protected segment, entries used again in probation are protected.
+ * The use frequencies are counted by a count-min sketch whose counters are halved periodically, so entries
+ * used often long ago do not stay forever.
+ *
+ * @author Firas Adleh
+ */
+public class BoundedCache<K, V> {
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    private final String name;
+    private final long maxWeight;
+    private final long windowMaxWeight;
+    private final long protectedMaxWeight;
+    private final ToIntBiFunction<K, V> weigher;
+
+    private final Map<K, Node<K, V>> entries = new HashMap<>();
+
+    /**
+     * The three segments ordered from the least to the most recently used entry
+     */
+    private final Map<K, Node<K, V>> window = new LinkedHashMap<>();
+    private final Map<K, Node<K, V>> probation = new LinkedHashMap<>();
+    private final Map<K, Node<K, V>> protectedSegment = new LinkedHashMap<>();
+
+    private long windowWeight = 0;
+    private long probationWeight = 0;
+    private long protectedWeight = 0;
+
+    private final FrequencySketch sketch;
+
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    private static class Node<K, V> {
+        private final K key;
+        private V value;
+        private int weight;
+        private int segment;
+
+        Node(K key, V value, int weight) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Create a cache bounded by the total weight of its entries
+     *
+     * @param name            the name of this cache in the diagnostics
+     * @param maxWeight       the maximum total weight of all entries
+     * @param expectedEntries the expected number of entries, used to size the frequency sketch
+     * @param weigher         the weight of one entry, for example its estimated size in bytes
+     */
+    public BoundedCache(String name, long maxWeight, int expectedEntries, ToIntBiFunction<K, V> weigher) {
+        this.name = name;
+        this.maxWeight = Math.max(1, maxWeight);
+        this.windowMaxWeight = Math.max(1, this.maxWeight / 100);
+        this.protectedMaxWeight = (this.maxWeight - windowMaxWeight) * 8 / 10;
+        this.weigher = weigher;
+        this.sketch = new FrequencySketch(expectedEntries);
+    }
+
+    /**
+     * Returns the value of the given key and counts the use
+     *
+     * @param key
+     * @return the value or null if it is not in the cache
+     */
+    public synchronized V get(K key) {
+        sketch.increment(key);
+        Node<K, V> node = entries.get(key);
+        if (node == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        onAccess(node);
+        return node.value;
+    }
+
+    /**
+     * Checks if the given key is in the cache, the use is counted as for get
+     *
+     * @param key
+     * @return
+     */
+    public boolean containsKey(K key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Adds or replaces the value of the given key, entries heavier than the whole cache are not added
+     *
+     * @param key
+     * @param value
+     */
+    public synchronized void put(K key, V value) {
+        int weight = weigher.applyAsInt(key, value);
+        Node<K, V> node = entries.get(key);
+        if (node != null) {
+            if (weight > maxWeight) {
+                remove(key);
+                evictions++;
+                return;
+            }
+            addWeight(node.segment, weight - node.weight);
+            node.value = value;
+            node.weight = weight;
+            onAccess(node);
+            // a heavier value may overflow the main space as well as the window
+            evictMain();
+            evict();
+            return;
+        }
+        sketch.increment(key);
+        if (weight > maxWeight) {
+            evictions++;
+            return;
+        }
+        node = new Node<>(key, value, weight);
+        entries.put(key, node);
+        addToSegment(node, WINDOW);
+        evict();
+    }
+
+    /**
+     * Removes the entry of the given key
+     *
+     * @param key
+     */
+    public synchronized void remove(K key) {
+        Node<K, V> node = entries.remove(key);
+        if (node != null) {
+            removeFromSegment(node);
+        }
+    }
+
+    /**
+     * Removes all entries, the statistics are kept
+     */
+    public synchronized void clear() {
+        entries.clear();
+        window.clear();
+        probation.clear();
+        protectedSegment.clear();
+        windowWeight = 0;
+        probationWeight = 0;
+        protectedWeight = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getWeight() {
+        return windowWeight + probationWeight + protectedWeight;
+    }
+
+    /**
+     * Returns the size, weight, hit rate and evictions of this cache for the diagnostics
+     *
+     * @return
+     */
+    public synchronized String getStatistics() {
+        long requests = hits + misses;
+        return name + ": size=" + entries.size() +
+                ", weight=" + getWeight() + "/" + maxWeight +
+                ", hitRate=" + (requests == 0 ? "-" : String.format("%.1f%%", 100.0 * hits / requests)) +
+                ", evictions=" + evictions;
+    }
+
+    private void onAccess(Node<K, V> node) {
+        if (node.segment == PROBATION) {
+            // used again on probation, the entry is protected from now on
+            removeFromSegment(node);
+            addToSegment(node, PROTECTED);
+            demoteProtected();
+        } else {
+            // move to the most recently used end of its segment
+            Map<K, Node<K, V>> segment = getSegment(node.segment);
+            segment.remove(node.key);
+            segment.put(node.key, node);
+        }
+    }
+
+    /**
+     * Moves the entries leaving the window to the main space if they are used more often than its victims
+     */
+    private void evict() {
+        long mainMaxWeight = maxWeight - windowMaxWeight;
+        while (windowWeight > windowMaxWeight) {
+            Node<K, V> candidate = first(window);
+            removeFromSegment(candidate);
+            if (candidate.weight > mainMaxWeight) {
+                // the candidate would not fit even if the whole main space was evicted
+                entries.remove(candidate.key);
+                evictions++;
+                continue;
+            }
+            while (probationWeight + protectedWeight + candidate.weight > mainMaxWeight) {
+                Node<K, V> victim = !probation.isEmpty() ? first(probation) : first(protectedSegment);
+                if (victim == null) {
+                    break;
+                }
+                if (sketch.frequency(candidate.key) <= sketch.frequency(victim.key)) {
+                    // the candidate is used less often than the entries already cached
+                    entries.remove(candidate.key);
+                    evictions++;
+                    candidate = null;
+                    break;
+                }
+                removeFromSegment(victim);
+                entries.remove(victim.key);
+                evictions++;
+            }
+            if (candidate != null) {
+                addToSegment(candidate, PROBATION);
+            }
+        }
+    }
+
+    /**
+     * Evicts the least recently used entries of the main space until it is within its weight, probation first
+     */
+    private void evictMain() {
+        demoteProtected();
+        long mainMaxWeight = maxWeight - windowMaxWeight;
+        while (probationWeight + protectedWeight > mainMaxWeight) {
+            Node<K, V> victim = !probation.isEmpty() ? first(probation) : first(protectedSegment);
+            if (victim == null) {
+                break;
+            }
+            removeFromSegment(victim);
+            entries.remove(victim.key);
+            evictions++;
+        }
+    }
+
+    /**
+     * Moves the least recently used protected entries back to probation until the protected segment is within its weight
+     */
+    private void demoteProtected() {
+        while (protectedWeight > protectedMaxWeight) {
+            Node<K, V> demoted = first(protectedSegment);
+            removeFromSegment(demoted);
+            addToSegment(demoted, PROBATION);
+        }
+    }
+
+    private Map<K, Node<K, V>> getSegment(int segment) {
+        return segment == WINDOW ? window : segment == PROBATION ? probation : protectedSegment;
+    }
+
+    private void addToSegment(Node<K, V> node, int segment) {
+        node.segment = segment;
+        getSegment(segment).put(node.key, node);
+        addWeight(segment, node.weight);
+    }
+
+    private void removeFromSegment(Node<K, V> node) {
+        getSegment(node.segment).remove(node.key);
+        addWeight(node.segment, -node.weight);
+    }
+
+    private void addWeight(int segment, long weight) {
+        if (segment == WINDOW) {
+            windowWeight += weight;
+        } else if (segment == PROBATION) {
+            probationWeight += weight;
+        } else {
+            protectedWeight += weight;
+        }
+    }
+
+    private static <K, V> Node<K, V> first(Map<K, Node<K, V>> segment) {
+        Iterator<Node<K, V>> iterator = segment.values().iterator();
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+    /**
+     * A count-min sketch of small counters, all counters are halved after a number of increments
+     * so the frequencies follow the recent uses
+     */
+    private static class FrequencySketch {
+        private static final int MAX_COUNT = 15;
+        private final byte[] counters;
+        private final int mask;
+        private final int sampleSize;
+        private int additions = 0;
+
+        FrequencySketch(int expectedEntries) {
+            int size = Integer.highestOneBit(Math.max(64, expectedEntries) - 1) << 1;
+            counters = new byte[size];
+            mask = size - 1;
+            sampleSize = 10 * size;
+        }
+
+        void increment(Object key) {
+            int hash = spread(key.hashCode());
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                int index = indexOf(hash, i);
+                if (counters[index] < MAX_COUNT) {
+                    counters[index]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                for (int i = 0; i < counters.length; i++) {
+                    counters[i] = (byte) (counters[i] >>> 1);
+                }
+                additions /= 2;
+            }
+        }
+
+        int frequency(Object key) {
+            int hash = spread(key.hashCode());
+            int frequency = MAX_COUNT;
+            for (int i = 0; i < 4; i++) {
+                frequency = Math.min(frequency, counters[indexOf(hash, i)]);
+            }
+            return frequency;
+        }
+
+        private int indexOf(int hash, int i) {
+            int h = hash * (0x9E3779B9 + 2 * i + 1);
+            return (h ^ (h >>> 16)) & mask;
+        }
+
+        private static int spread(int hash) {
+            hash ^= hash >>> 17;
+            hash *= 0xed5ad4bb;
+            hash ^= hash >>> 11;
+            return hash;
+        }
+    }
+}
@@ -1,16 +1,18 @@
 package com.github.fiadleh.codesmellsplugin.util;
 
 import com.intellij.ide.highlighter.JavaFileType;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleUtilCore;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiClass;
 import com.intellij.psi.PsiClassType;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiManager;
-import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.psi.util.PsiTreeUtil;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The cache manager contains meta-information about the whole project. The information is created when the project
@@ -20,18 +22,23 @@ import java.util.*;
  */
 public class CacheManager {
     /**
-     * A list of classes names with their PSI representation
+     * The memory budget of the derived caches in megabytes, can be changed with a system property
      */
-    private static final HashMap<String, PsiClass> searchedClasses = new HashMap<>();
+    public static final String CACHE_BUDGET_PROPERTY = "codesmells.cache.budgetMb";
 
-    public static List<String> getAllClassesQualifiedNames() {
-        return allClassesQualifiedNames;
-    }
+    private static final long CACHE_BUDGET = Integer.getInteger(CACHE_BUDGET_PROPERTY, 16) * 1024L * 1024L;
+
+    /**
+     * A list of classes names with their PSI representation
+     */
+    private static final BoundedCache<String, PsiClass> searchedClasses = new BoundedCache<>("searchedClasses",
+            CACHE_BUDGET / 4, 10000, (name, c) -> 56 + 2 * name.length());
 
     /**
-     * A list of classes names with their full path
+     * The qualified names of the classes already added to the classes list, an exact membership set which is never
+     * evicted because it tells which classes are in the list
      */
-    private static List<String> allClassesQualifiedNames = new ArrayList<>();
+    private static final Set<String> allClassesQualifiedNames = ConcurrentHashMap.newKeySet();
 
     /**
      * A list of basic class types that could be ignored when searching for a common hierarchy
@@ -43,10 +50,16 @@ public class CacheManager {
      */
     private static List<PsiClass> allClasses = new ArrayList<>();
 
+    /**
+     * The classes of every module by the module name, classes outside modules are in the partition of the empty name
+     */
+    private static Map<String, List<PsiClass>> classesPerModule = new HashMap<>();
+
     /**
      * A list of classes names with their hierarchy
      */
-    private static HashMap<String, List<String>> allSuperClasses = new HashMap<>();
+    private static final BoundedCache<String, List<String>> allSuperClasses = new BoundedCache<>("allSuperClasses",
+            CACHE_BUDGET / 2, 100000, CacheManager::weighSuperClasses);
 
     /**
      * A flag for creating cache
@@ -61,6 +74,37 @@ public class CacheManager {
     private CacheManager() {
     }
 
+    /**
+     * Checks if a class with the given qualified name has been added to the classes list
+     *
+     * @param qualifiedName
+     * @return
+     */
+    public static boolean isClassCached(String qualifiedName) {
+        return allClassesQualifiedNames.contains(qualifiedName);
+    }
+
+    /**
+     * Returns the size, hit rate and evictions of every derived cache
+     *
+     * @return
+     */
+    public static String getDiagnostics() {
+        return searchedClasses.getStatistics() + "; " + allSuperClasses.getStatistics() + "; " +
+                "allClassesQualifiedNames: size=" + allClassesQualifiedNames.size();
+    }
+
+    /**
+     * The estimated size in bytes of the super class names of a class
+     */
+    private static int weighSuperClasses(String qualifiedName, List<String> superClasses) {
+        int weight = 56 + 2 * qualifiedName.length();
+        for (String superClass : superClasses) {
+            weight += 40 + 2 * superClass.length();
+        }
+        return weight;
+    }
+
     /**
      * Returns a list of all classes names or start creating this list if it does not exist
      *
@@ -74,6 +118,30 @@ public class CacheManager {
         return allClasses;
     }
 
+    /**
+     * Returns the classes of the given modules
+     *
+     * @param currentProject
+     * @param moduleNames   the module names, or null for the classes of all modules
+     * @return
+     */
+    public static List<PsiClass> getClasses(Project currentProject, Set<String> moduleNames) {
+        if (moduleNames == null) {
+            return getAllClasses(currentProject);
+        }
+        getAllClasses(currentProject);
+        List<PsiClass> results = new ArrayList<>();
+        for (String moduleName : moduleNames) {
+            results.addAll(classesPerModule.getOrDefault(moduleName, Collections.emptyList()));
+        }
+        return results;
+    }
+
+    private static String getModuleName(PsiClass theClass) {
+        Module module = ModuleUtilCore.findModuleForPsiElement(theClass);
+        return module == null ? "" : module.getName();
+    }
+
     /**
      * Start creating a list of all classes names
      *
@@ -82,18 +150,21 @@ public class CacheManager {
     public static void createClassesListCache(Project currentProject) {
         long startTime = System.currentTimeMillis();
         allClasses = new ArrayList<>();
+        classesPerModule = new HashMap<>();
         Collection<VirtualFile> virtualFiles = com.intellij.psi.search.FileTypeIndex.getFiles(JavaFileType.INSTANCE,
-                GlobalSearchScope.projectScope(currentProject));
+                DetectionExclusions.getDetectionScope(currentProject));
 
+        Set<String> addedNames = new HashSet<>();
         for (VirtualFile virtualFile : virtualFiles) {
             PsiFile currentFile = PsiManager.getInstance(currentProject).findFile(virtualFile);
 
             Collection<PsiClass> classesInFile = PsiTreeUtil.findChildrenOfType(currentFile, PsiClass.class);
             for (PsiClass c : classesInFile) {
-                if (c.getQualifiedName() != null && !allClassesQualifiedNames.contains(c.getQualifiedName())) {
+                if (c.getQualifiedName() != null && addedNames.add(c.getQualifiedName())) {
 
                     allClassesQualifiedNames.add(c.getQualifiedName());
                     allClasses.add(c);
+                    classesPerModule.computeIfAbsent(getModuleName(c), k -> new ArrayList<>()).add(c);
                 }
             }
         }
@@ -106,8 +177,14 @@ public class CacheManager {
      * @param theClass
      */
     public static void removeClassFromCache(PsiClass theClass) {
-        allClassesQualifiedNames.remove(theClass.getQualifiedName());
+        if (theClass.getQualifiedName() != null) {
+            allClassesQualifiedNames.remove(theClass.getQualifiedName());
+        }
         allClasses.remove(theClass);
+        for (List<PsiClass> moduleClasses : classesPerModule.values()) {
+            moduleClasses.remove(theClass);
+        }
+        ParameterObjectIndex.removeClass(theClass);
     }
 
     /**
@@ -115,10 +192,14 @@ public class CacheManager {
      * @param theClass
      */
     public static void addClassToCache(PsiClass theClass) {
-        if (!allClasses.contains(theClass)) {
+        VirtualFile virtualFile = theClass.getContainingFile().getVirtualFile();
+        if (virtualFile != null && DetectionExclusions.isExcluded(theClass.getProject(), virtualFile)) {
+            return;
+        }
+        if (theClass.getQualifiedName() != null && allClassesQualifiedNames.add(theClass.getQualifiedName())) {
             PsiUtils.log(LOGGER_NAME, " + + + addClassToCache , time=" + theClass.getQualifiedName());
             allClasses.add(theClass);
-            allClassesQualifiedNames.add(theClass.getQualifiedName());
+            classesPerModule.computeIfAbsent(getModuleName(theClass), k -> new ArrayList<>()).add(theClass);
             allSuperClasses.put(theClass.getQualifiedName(), getAllSupperClassesAsString(theClass));
         }
     }
@@ -135,11 +216,13 @@ public class CacheManager {
         }
 
         // if this class is not the list find his super classes and add them
-        if (!allSuperClasses.containsKey(currentClass.getQualifiedName())) {
-            allSuperClasses.put(currentClass.getQualifiedName(), getAllSupperClassesAsString(currentClass));
+        List<String> superClasses = allSuperClasses.get(currentClass.getQualifiedName());
+        if (superClasses == null) {
+            superClasses = getAllSupperClassesAsString(currentClass);
+            allSuperClasses.put(currentClass.getQualifiedName(), superClasses);
             PsiUtils.log(LOGGER_NAME, "getSuperClasses add one super class , allSuperClasses = " + allSuperClasses.size() + "/" + allClasses.size() + ", currentClass = " + currentClass.getQualifiedName());
         }
-        return allSuperClasses.get(currentClass.getQualifiedName());
+        return superClasses;
     }
 
     /**
@@ -214,19 +297,18 @@ public class CacheManager {
      */
     private static void addSuperTypes(PsiClass currentClass, Deque<PsiClass> supersList, ArrayList<String> doneList, PsiClass currentSupper) {
         for (PsiClassType superType : currentSupper.getSuperTypes()) {
-            if (!doneList.contains(superType.getName()) && searchedClasses.get(superType.getName()) == null) {
-                for (PsiClass cl : PsiUtils.getClassFromType(currentClass.getProject(), superType.getName())) {
+            PsiClass searchedClass = doneList.contains(superType.getName()) ? null : searchedClasses.get(superType.getName());
+            if (!doneList.contains(superType.getName()) && (searchedClass == null || !searchedClass.isValid())) {
+                for (PsiClass cl : PsiUtils.getClassFromType(currentSupper, superType.getName())) {
                     if (!supersList.contains(cl) && !basicClassNames.contains(cl.getName())) {
                         supersList.add(cl);
                         doneList.add(cl.getName());
                         searchedClasses.put(superType.getName(), cl);
                     }
                 }
-            }
-
-            if (!doneList.contains(superType.getName()) && searchedClasses.get(superType.getName()) != null) {
-                supersList.add(searchedClasses.get(superType.getName()));
-                doneList.add(searchedClasses.get(superType.getName()).getName());
+            } else if (!doneList.contains(superType.getName())) {
+                supersList.add(searchedClass);
+                doneList.add(searchedClass.getName());
             }
         }
     }
@@ -251,9 +333,16 @@ public class CacheManager {
      */
     public static void resetIsCacheReady() {
         allClasses = new ArrayList<>();
-        allSuperClasses = new HashMap<>();
-        allClassesQualifiedNames = new ArrayList<>();
+        classesPerModule = new HashMap<>();
+        allSuperClasses.clear();
+        allClassesQualifiedNames.clear();
+        searchedClasses.clear();
         isCreatingCache = false;
+        ParameterObjectIndex.reset();
+        GlobalDataUsageIndex.reset();
+        SignatureIndex.reset();
+        FieldClumpMiner.reset();
+        OverlapCache.reset();
         PsiUtils.log(LOGGER_NAME, "     $$$$$    reset Cache    $$$$$        allSuperClasses:" + allSuperClasses.size());
 
     }
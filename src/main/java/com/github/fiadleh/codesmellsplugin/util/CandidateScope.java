@@ -0,0 +1,54 @@
+package com.github.fiadleh.codesmellsplugin.util;
+
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleUtilCore;
+import com.intellij.psi.PsiElement;
+
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * The modules whose classes are compared with a class when searching for data clumps
+ *
+ * @author Firas Adleh
+ */
+public enum CandidateScope {
+    MODULE("Same module"),
+    MODULE_WITH_DEPENDENCIES("Module with dependencies"),
+    PROJECT("Whole project");
+
+    private final String displayName;
+
+    CandidateScope(String displayName) {
+        this.displayName = displayName;
+    }
+
+    /**
+     * Returns the names of the modules to be searched for the given element
+     *
+     * @param context
+     * @return the module names, or null if all modules are searched
+     */
+    public Set<String> getModuleNames(PsiElement context) {
+        Module module = this == PROJECT ? null : ModuleUtilCore.findModuleForPsiElement(context);
+        if (module == null) {
+            return null;
+        }
+        Set<String> moduleNames = new HashSet<>();
+        moduleNames.add(module.getName());
+        if (this == MODULE_WITH_DEPENDENCIES) {
+            Set<Module> dependencies = new LinkedHashSet<>();
+            ModuleUtilCore.getDependencies(module, dependencies);
+            for (Module dependency : dependencies) {
+                moduleNames.add(dependency.getName());
+            }
+        }
+        return moduleNames;
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
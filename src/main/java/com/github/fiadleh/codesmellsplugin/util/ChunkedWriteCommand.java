@@ -0,0 +1,136 @@
+package com.github.fiadleh.codesmellsplugin.util;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.command.CommandProcessor;
+import com.intellij.openapi.command.UndoConfirmationPolicy;
+import com.intellij.openapi.command.undo.UndoManager;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Applies many PSI edits as one undoable command without freezing the UI. The edits are applied in short write
+ * actions, each one in a command of the same group, a background thread with a progress bar hands them to the EDT
+ * batch by batch, so the UI is repainted between two batches. The commands are global and merged by the undo manager
+ * into one undoable action. If the user cancels or an edit fails, this action is undone.
+ *
+ * @author Firas Adleh
+ */
+public class ChunkedWriteCommand {
+    /**
+     * The maximum time of one write action in milliseconds, a batch has at least one edit
+     */
+    private static final long MAX_BATCH_MILLIS = 100;
+
+    private static final String LOGGER_NAME = ChunkedWriteCommand.class.getSimpleName();
+
+    private final Project project;
+    private final String commandName;
+    private final Queue<Runnable> edits = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The group of all commands of this run, only commands with the same group object are merged
+     */
+    private final Object commandGroupId = new Object();
+
+    private int appliedEdits = 0;
+
+    /**
+     * A flag set once the first batch command has been started, nothing is undone before
+     */
+    private volatile boolean hasStartedCommand = false;
+
+    /**
+     * @param project
+     * @param commandName the name of the undoable command
+     */
+    public ChunkedWriteCommand(@NotNull Project project, @NotNull String commandName) {
+        this.project = project;
+        this.commandName = commandName;
+    }
+
+    /**
+     * Adds an edit at the end of the command, may also be called by a running edit to add further edits
+     *
+     * @param edit
+     */
+    public void add(@NotNull Runnable edit) {
+        edits.add(edit);
+    }
+
+    /**
+     * Applies all edits with a cancelable progress bar. Must be called on the EDT.
+     *
+     * @return true if all edits have been applied, false if the command has been canceled and rolled back
+     */
+    public boolean run() {
+        try {
+            ProgressManager.getInstance().runProcessWithProgressSynchronously(() -> {
+                applyInBatches(ProgressManager.getInstance().getProgressIndicator());
+                return null;
+            }, commandName, true, project);
+            return true;
+        } catch (ProcessCanceledException e) {
+            PsiUtils.log(LOGGER_NAME, commandName + " canceled after " + appliedEdits + " edits, rolling back");
+            rollBack();
+            return false;
+        } catch (RuntimeException e) {
+            PsiUtils.log(LOGGER_NAME, commandName + " failed after " + appliedEdits + " edits, rolling back: " + e.getMessage());
+            rollBack();
+            throw e;
+        }
+    }
+
+    /**
+     * Hands the edits to the EDT in batches, runs in the background thread of the progress
+     */
+    private void applyInBatches(ProgressIndicator indicator) {
+        indicator.setIndeterminate(false);
+        while (!edits.isEmpty()) {
+            indicator.checkCanceled();
+            indicator.setText2(appliedEdits + " changes applied");
+            indicator.setFraction((double) appliedEdits / (appliedEdits + edits.size()));
+            ApplicationManager.getApplication().invokeAndWait(() ->
+                    CommandProcessor.getInstance().executeCommand(project, () -> {
+                        hasStartedCommand = true;
+                        // a global command is undone at once, not per changed file
+                        CommandProcessor.getInstance().markCurrentCommandAsGlobal(project);
+                        ApplicationManager.getApplication().runWriteAction(this::applyBatch);
+                    }, commandName, commandGroupId, UndoConfirmationPolicy.DO_NOT_REQUEST_CONFIRMATION));
+        }
+    }
+
+    private void applyBatch() {
+        long startTime = System.currentTimeMillis();
+        Runnable edit;
+        while ((edit = edits.poll()) != null) {
+            edit.run();
+            appliedEdits++;
+            if (System.currentTimeMillis() - startTime >= MAX_BATCH_MILLIS) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Undoes the merged commands of this run, the created files are deleted and the changed files are restored
+     * by the undo manager. The progress is modal, so no other command has been added in between.
+     */
+    private void rollBack() {
+        edits.clear();
+        if (!hasStartedCommand) {
+            return;
+        }
+        UndoManager undoManager = UndoManager.getInstance(project);
+        if (undoManager.isUndoAvailable(null)) {
+            undoManager.undo(null);
+        } else {
+            PsiUtils.log(LOGGER_NAME, commandName + " could not be undone");
+        }
+    }
+}
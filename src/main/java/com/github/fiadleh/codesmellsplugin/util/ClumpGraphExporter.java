@@ -0,0 +1,150 @@
+package com.github.fiadleh.codesmellsplugin.util;
+
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.project.Project;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.concurrency.CancellablePromise;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the graph of the field data clumps of the project for external tools, the classes are the nodes and every
+ * pair of classes sharing at least MIN_STORED_COUNT fields is an edge weighted with the number of common fields.
+ * The edges are streamed class by class out of the signature index, only the common fields counts of the current
+ * class are held in memory. The graph is written as GraphML, or as a CSV list of edges if the file ends with .csv.
+ *
+ * @author Firas Adleh
+ */
+public class ClumpGraphExporter {
+    /**
+     * Name of the system property holding the path of a graph to be exported once the project has been indexed,
+     * used to export the graph without the user interface
+     */
+    public static final String EXPORT_PROPERTY = "codesmells.graphExport";
+
+    private static final String LOGGER_NAME = ClumpGraphExporter.class.getSimpleName();
+
+    private ClumpGraphExporter() {
+    }
+
+    /**
+     * Exports the graph to the path of the export property when the given warm up of the signature index is done,
+     * nothing is done if the property is not set
+     *
+     * @param project
+     * @param warmUp  the warm up of the signature index
+     */
+    public static void exportWhenIndexed(Project project, CancellablePromise<Void> warmUp) {
+        String path = System.getProperty(EXPORT_PROPERTY);
+        if (path == null || path.isEmpty()) {
+            return;
+        }
+        warmUp.onSuccess(result -> AppExecutorUtil.getAppExecutorService().execute(() -> {
+            try {
+                export(project, Paths.get(path), new EmptyProgressIndicator());
+            } catch (IOException e) {
+                PsiUtils.log(LOGGER_NAME, "graph could not be exported: " + e.getMessage());
+            }
+        }));
+    }
+
+    /**
+     * Writes the graph of the current index to the given file
+     *
+     * @param project
+     * @param path
+     * @param indicator
+     * @return the number of written edges, or -1 if the index is not ready
+     * @throws IOException
+     */
+    public static int export(Project project, Path path, ProgressIndicator indicator) throws IOException {
+        if (!SignatureIndex.isIndexReady()) {
+            return -1;
+        }
+        // the exported signatures stay readable until the export is done, even if the index is reset meanwhile
+        SignatureIndex.StoreGeneration store = SignatureIndex.acquireStore();
+        try {
+            return writeGraph(project, path, indicator);
+        } finally {
+            store.release();
+        }
+    }
+
+    private static int writeGraph(Project project, Path path, ProgressIndicator indicator) throws IOException {
+        long startTime = System.currentTimeMillis();
+        boolean isCsv = path.getFileName().toString().toLowerCase().endsWith(".csv");
+        List<SignatureIndex.ClassSignatures> classes = SignatureIndex.getAllClassSignatures();
+
+        // only the node ids are kept for the whole graph
+        Map<SignatureIndex.ClassSignatures, Integer> nodeIds = new HashMap<>();
+        for (SignatureIndex.ClassSignatures c : classes) {
+            nodeIds.put(c, nodeIds.size());
+        }
+
+        int edgesCount = 0;
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            if (isCsv) {
+                writer.write("source,target,weight\n");
+            } else {
+                writeGraphMLHeader(writer, project);
+                for (SignatureIndex.ClassSignatures c : classes) {
+                    writer.write("    <node id=\"n" + nodeIds.get(c) + "\"><data key=\"name\">" + escapeXml(c.qualifiedName) +
+                            "</data><data key=\"file\">" + escapeXml(c.fileUrl) + "</data></node>\n");
+                }
+            }
+
+            indicator.setIndeterminate(false);
+            for (int i = 0; i < classes.size(); i++) {
+                indicator.checkCanceled();
+                indicator.setFraction((double) i / classes.size());
+                SignatureIndex.ClassSignatures c = classes.get(i);
+                for (Map.Entry<SignatureIndex.ClassSignatures, Integer> entry : SignatureIndex.countCommonFields(c).entrySet()) {
+                    Integer partnerId = nodeIds.get(entry.getKey());
+                    // every edge is written once from its class with the lower id
+                    if (partnerId == null || partnerId <= i || entry.getValue() < OverlapCache.MIN_STORED_COUNT) {
+                        continue;
+                    }
+                    if (isCsv) {
+                        writer.write(escapeCsv(c.qualifiedName) + "," + escapeCsv(entry.getKey().qualifiedName) + "," + entry.getValue() + "\n");
+                    } else {
+                        writer.write("    <edge source=\"n" + i + "\" target=\"n" + partnerId + "\"><data key=\"weight\">" +
+                                entry.getValue() + "</data></edge>\n");
+                    }
+                    edgesCount++;
+                }
+            }
+
+            if (!isCsv) {
+                writer.write("  </graph>\n</graphml>\n");
+            }
+        }
+        PsiUtils.log(LOGGER_NAME, classes.size() + " nodes, " + edgesCount + " edges exported to " + path + ", time=" + (System.currentTimeMillis() - startTime));
+        return edgesCount;
+    }
+
+    private static void writeGraphMLHeader(Writer writer, Project project) throws IOException {
+        writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        writer.write("<graphml xmlns=\"http://graphml.graphdrawing.org/xmlns\">\n");
+        writer.write("  <key id=\"name\" for=\"node\" attr.name=\"name\" attr.type=\"string\"/>\n");
+        writer.write("  <key id=\"file\" for=\"node\" attr.name=\"file\" attr.type=\"string\"/>\n");
+        writer.write("  <key id=\"weight\" for=\"edge\" attr.name=\"weight\" attr.type=\"int\"/>\n");
+        writer.write("  <graph id=\"" + escapeXml(project.getName()) + "\" edgedefault=\"undirected\">\n");
+    }
+
+    private static String escapeXml(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    private static String escapeCsv(String text) {
+        return text.contains(",") || text.contains("\"") ? "\"" + text.replace("\"", "\"\"") + "\"" : text;
+    }
+}
@@ -0,0 +1,143 @@
+package com.github.fiadleh.codesmellsplugin.util;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.project.ProjectUtil;
+import com.intellij.openapi.roots.GeneratedSourcesFilter;
+import com.intellij.openapi.roots.JavaProjectRootsUtil;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.search.DelegatingGlobalSearchScope;
+import com.intellij.psi.search.GlobalSearchScope;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The source files left out of data clumps detection, test sources, generated sources and files matching glob
+ * patterns. Excluded files are never added to the classes cache or the signature index, so they are never compared.
+ *
+ * @author Firas Adleh
+ */
+public class DetectionExclusions {
+    /**
+     * The default patterns of vendored sources, at the project root and in any sub directory
+     */
+    public static final String DEFAULT_EXCLUDED_GLOBS = "vendor/**, third_party/**, **/vendor/**, **/third_party/**";
+
+    /**
+     * The applied options, they are saved with the inspection profile and applied once the settings are committed
+     */
+    private static volatile boolean excludeTestSources = true;
+
+    private static volatile boolean excludeGeneratedSources = true;
+
+    private static volatile String excludedGlobs = DEFAULT_EXCLUDED_GLOBS;
+
+    private static volatile List<PathMatcher> excludedPathMatchers = createPathMatchers(DEFAULT_EXCLUDED_GLOBS);
+
+    private static final String LOGGER_NAME = DetectionExclusions.class.getSimpleName();
+
+    private DetectionExclusions() {
+    }
+
+    /**
+     * Applies the exclusion options, the caches must be built again if they have changed
+     *
+     * @param excludeTestSources      exclude files in test source roots
+     * @param excludeGeneratedSources exclude files in generated source roots or marked as generated by a plugin
+     * @param excludedGlobs           comma separated glob patterns matched against the file path relative to the project directory
+     * @return true if the exclusions have changed
+     */
+    public static synchronized boolean apply(boolean excludeTestSources, boolean excludeGeneratedSources, String excludedGlobs) {
+        if (excludedGlobs == null) {
+            excludedGlobs = "";
+        }
+        List<PathMatcher> pathMatchers = createPathMatchers(excludedGlobs);
+        if (pathMatchers == null) {
+            PsiUtils.log(LOGGER_NAME, "invalid excluded patterns are ignored: " + excludedGlobs);
+            pathMatchers = excludedPathMatchers;
+            excludedGlobs = DetectionExclusions.excludedGlobs;
+        }
+        if (excludeTestSources == DetectionExclusions.excludeTestSources
+                && excludeGeneratedSources == DetectionExclusions.excludeGeneratedSources
+                && excludedGlobs.equals(DetectionExclusions.excludedGlobs)) {
+            return false;
+        }
+        DetectionExclusions.excludeTestSources = excludeTestSources;
+        DetectionExclusions.excludeGeneratedSources = excludeGeneratedSources;
+        DetectionExclusions.excludedGlobs = excludedGlobs;
+        excludedPathMatchers = pathMatchers;
+        return true;
+    }
+
+    /**
+     * Returns the project scope without the excluded files
+     *
+     * @param project
+     * @return
+     */
+    public static GlobalSearchScope getDetectionScope(Project project) {
+        return new DelegatingGlobalSearchScope(GlobalSearchScope.projectScope(project)) {
+            @Override
+            public boolean contains(@NotNull VirtualFile file) {
+                return super.contains(file) && !isExcluded(project, file);
+            }
+        };
+    }
+
+    /**
+     * Checks if the given file is left out of detection
+     *
+     * @param project
+     * @param file
+     * @return
+     */
+    public static boolean isExcluded(Project project, VirtualFile file) {
+        if (excludeTestSources && ProjectFileIndex.getInstance(project).isInTestSourceContent(file)) {
+            return true;
+        }
+        if (excludeGeneratedSources && (JavaProjectRootsUtil.isInGeneratedCode(file, project)
+                || GeneratedSourcesFilter.isGeneratedSourceByAnyFilter(file, project))) {
+            return true;
+        }
+        if (excludedPathMatchers.isEmpty()) {
+            return false;
+        }
+        VirtualFile projectDir = ProjectUtil.guessProjectDir(project);
+        String relativePath = projectDir == null ? null : VfsUtilCore.getRelativePath(file, projectDir);
+        Path path = Paths.get(relativePath != null ? relativePath : file.getPath());
+        for (PathMatcher pathMatcher : excludedPathMatchers) {
+            if (pathMatcher.matches(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Creates the matchers of comma separated glob patterns
+     *
+     * @param globs
+     * @return the matchers, or null if a pattern is invalid
+     */
+    private static List<PathMatcher> createPathMatchers(String globs) {
+        List<PathMatcher> pathMatchers = new ArrayList<>();
+        for (String glob : globs.split(",")) {
+            if (glob.trim().isEmpty()) {
+                continue;
+            }
+            try {
+                pathMatchers.add(FileSystems.getDefault().getPathMatcher("glob:" + glob.trim()));
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+        return pathMatchers;
+    }
+}
@@ -0,0 +1,424 @@
+package com.github.fiadleh.codesmellsplugin.util;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiField;
+import com.intellij.util.concurrency.AppExecutorUtil;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Mines the groups of fields shared by several classes out of the field signatures of all classes in one pass.
+ * Every mined clump is closed, no other field is shared by all of its classes, so a group of fields recurring in
+ * many classes is found once with all its classes instead of once per pair of classes.
+ * The clumps are mined in the background whenever the fields of the project change, highlighting only looks them up.
+ * All clumps of the lowest possible minimum are mined, a higher minimum only filters them.
+ *
+ * @author Firas Adleh
+ */
+public class FieldClumpMiner {
+    /**
+     * Mining stops after this number of clumps to keep the memory bounded on pathological projects
+     */
+    private static final int MAX_CLUMPS = 100000;
+
+    /**
+     * The clumps of the last mining
+     */
+    private static volatile MiningResult lastResult = null;
+
+    /**
+     * Increased with every new mining result
+     */
+    private static volatile int resultVersion = 0;
+
+    /**
+     * A flag set while a mining is running
+     */
+    private static final AtomicBoolean isMining = new AtomicBoolean(false);
+
+    /**
+     * An identifier for mining messages in log
+     */
+    private static final String LOGGER_NAME = FieldClumpMiner.class.getSimpleName();
+
+    private FieldClumpMiner() {
+    }
+
+    /**
+     * A group of fields shared by at least two classes
+     */
+    public static class FieldClump {
+        private final int[] fieldIds;
+        private final List<SignatureIndex.ClassSignatures> classes;
+
+        FieldClump(int[] fieldIds, List<SignatureIndex.ClassSignatures> classes) {
+            this.fieldIds = fieldIds;
+            this.classes = classes;
+        }
+
+        public int getFieldsCount() {
+            return fieldIds.length;
+        }
+
+        public int getClassesCount() {
+            return classes.size();
+        }
+
+        /**
+         * Returns the fields of the given class belonging to this clump in declaration order
+         *
+         * @param currentClass
+         * @return
+         */
+        public List<PsiField> getFields(PsiClass currentClass) {
+            List<PsiField> fields = new ArrayList<>();
+            for (PsiField field : currentClass.getFields()) {
+                if (Arrays.binarySearch(fieldIds, SignatureIndex.findFieldId(field)) >= 0) {
+                    fields.add(field);
+                }
+            }
+            return fields;
+        }
+
+        /**
+         * Returns the other classes of this clump
+         *
+         * @param currentClass
+         * @param moduleNames  the modules of the returned classes, or null for all modules
+         * @return
+         */
+        public List<PsiClass> getPartners(PsiClass currentClass, Set<String> moduleNames) {
+            List<PsiClass> partners = new ArrayList<>();
+            for (SignatureIndex.ClassSignatures c : classes) {
+                if (c.qualifiedName.equals(currentClass.getQualifiedName())
+                        || (moduleNames != null && !moduleNames.contains(SignatureIndex.getModuleName(c)))) {
+                    continue;
+                }
+                PsiClass partner = SignatureIndex.findClass(currentClass.getProject(), c);
+                if (partner != null) {
+                    partners.add(partner);
+                }
+            }
+            return partners;
+        }
+
+        /**
+         * Returns the keys of the fields of this clump
+         *
+         * @return
+         */
+        public List<String> getFieldKeys() {
+            List<String> keys = new ArrayList<>();
+            for (int id : fieldIds) {
+                keys.add(SignatureIndex.getSignature(id));
+            }
+            return keys;
+        }
+
+        /**
+         * Returns the qualified names of all classes of this clump
+         *
+         * @return
+         */
+        public List<String> getClassNames() {
+            List<String> names = new ArrayList<>();
+            for (SignatureIndex.ClassSignatures c : classes) {
+                names.add(c.qualifiedName);
+            }
+            return names;
+        }
+
+        /**
+         * Returns the first class of this clump found in the project
+         *
+         * @param project
+         * @return the class or null if none of the classes exists anymore
+         */
+        public PsiClass findFirstClass(Project project) {
+            for (SignatureIndex.ClassSignatures c : classes) {
+                PsiClass found = SignatureIndex.findClass(project, c);
+                if (found != null) {
+                    return found;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Returns the qualified names of the other classes of this clump without resolving them
+         *
+         * @param currentClass
+         * @param moduleNames  the modules of the returned classes, or null for all modules
+         * @return
+         */
+        public List<String> getPartnerNames(PsiClass currentClass, Set<String> moduleNames) {
+            List<String> names = new ArrayList<>();
+            for (SignatureIndex.ClassSignatures c : classes) {
+                if (!c.qualifiedName.equals(currentClass.getQualifiedName())
+                        && (moduleNames == null || moduleNames.contains(SignatureIndex.getModuleName(c)))) {
+                    names.add(c.qualifiedName);
+                }
+            }
+            return names;
+        }
+    }
+
+    /**
+     * The clumps of one mining and the index state they were mined from
+     */
+    static class MiningResult {
+        private final int fieldsVersion;
+        final Collection<FieldClump> clumps;
+        private final Map<SignatureIndex.ClassSignatures, List<FieldClump>> clumpsPerClass;
+
+        MiningResult(int fieldsVersion, Collection<FieldClump> clumps, Map<SignatureIndex.ClassSignatures, List<FieldClump>> clumpsPerClass) {
+            this.fieldsVersion = fieldsVersion;
+            this.clumps = clumps;
+            this.clumpsPerClass = clumpsPerClass;
+        }
+    }
+
+    /**
+     * Returns all clumps of the last mining, a new mining is started if the fields have changed since
+     *
+     * @param project
+     * @return the clumps, or null if no clumps have been mined yet
+     */
+    public static Collection<FieldClump> getAllClumps(Project project) {
+        if (!SignatureIndex.isIndexReady()) {
+            return null;
+        }
+        MiningResult result = lastResult;
+        if (result == null || result.fieldsVersion != SignatureIndex.getFieldsVersion()) {
+            startMining(project);
+        }
+        return result == null ? null : Collections.unmodifiableCollection(result.clumps);
+    }
+
+    /**
+     * Returns a number changing with every new mining result
+     *
+     * @return
+     */
+    public static int getResultVersion() {
+        return resultVersion;
+    }
+
+    /**
+     * Returns the mined clumps containing the given class. A new mining is started if the fields have changed,
+     * the last clumps are returned meanwhile.
+     *
+     * @param currentClass
+     * @param minCount     the minimum number of fields of a clump
+     * @return the clumps, or null if no clumps have been mined yet
+     */
+    public static List<FieldClump> findClumps(PsiClass currentClass, int minCount) {
+        if (!SignatureIndex.isIndexReady()) {
+            return null;
+        }
+        SignatureIndex.ClassSignatures classSignatures = SignatureIndex.getClassSignatures(currentClass);
+        MiningResult result = lastResult;
+        if (result == null || result.fieldsVersion != SignatureIndex.getFieldsVersion()) {
+            startMining(currentClass.getProject());
+        }
+        if (result == null || classSignatures == null) {
+            return null;
+        }
+
+        // a clump of an older version of this class is no longer valid
+        int[] fieldIds = classSignatures.getFieldIds();
+        Arrays.sort(fieldIds);
+        List<FieldClump> clumps = new ArrayList<>();
+        for (FieldClump clump : findClassClumps(result, classSignatures, currentClass)) {
+            if (clump.fieldIds.length >= minCount && containsAll(fieldIds, clump.fieldIds)) {
+                clumps.add(clump);
+            }
+        }
+        return clumps;
+    }
+
+    /**
+     * Finds the clumps of a class, the entry of the class may have been replaced since the mining
+     */
+    private static List<FieldClump> findClassClumps(MiningResult result, SignatureIndex.ClassSignatures classSignatures, PsiClass currentClass) {
+        List<FieldClump> clumps = result.clumpsPerClass.get(classSignatures);
+        if (clumps != null) {
+            return clumps;
+        }
+        for (Map.Entry<SignatureIndex.ClassSignatures, List<FieldClump>> entry : result.clumpsPerClass.entrySet()) {
+            if (entry.getKey().qualifiedName.equals(currentClass.getQualifiedName()) && entry.getKey().fileUrl.equals(classSignatures.fileUrl)) {
+                return entry.getValue();
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Starts mining the clumps in a background read action unless a mining is already running
+     *
+     * @param project
+     */
+    private static void startMining(Project project) {
+        if (ApplicationManager.getApplication().isUnitTestMode() || !isMining.compareAndSet(false, true)) {
+            return;
+        }
+        ReadAction.nonBlocking(() -> {
+            // the store of the mined signatures is kept until the mining is done, even if the index is reset meanwhile
+            SignatureIndex.StoreGeneration store = SignatureIndex.acquireStore();
+            try {
+                lastResult = mine(OverlapCache.MIN_STORED_COUNT);
+                resultVersion++;
+                SignatureIndex.restartMinedPartners(project);
+            } finally {
+                store.release();
+                isMining.set(false);
+            }
+        }).expireWith(project).submit(AppExecutorUtil.getAppExecutorService());
+    }
+
+    /**
+     * Mines all closed field clumps with at least two classes and the given number of fields.
+     * Every clump is the intersection of the fields of its classes, so all clumps are found by intersecting
+     * the classes with each other and with the found clumps until no new clump appears.
+     *
+     * @param minCount
+     * @return
+     */
+    static MiningResult mine(int minCount) {
+        long startTime = System.currentTimeMillis();
+        int fieldsVersion = SignatureIndex.getFieldsVersion();
+
+        // the sorted fields of every class and the classes of every field
+        Map<SignatureIndex.ClassSignatures, int[]> fieldsPerClass = new HashMap<>();
+        Map<Integer, List<SignatureIndex.ClassSignatures>> classesPerField = new HashMap<>();
+        for (SignatureIndex.ClassSignatures c : SignatureIndex.getAllClassSignatures()) {
+            int[] fieldIds = c.getFieldIds();
+            if (fieldIds.length < minCount) {
+                continue;
+            }
+            Arrays.sort(fieldIds);
+            fieldsPerClass.put(c, fieldIds);
+            for (int id : fieldIds) {
+                classesPerField.computeIfAbsent(id, k -> new ArrayList<>()).add(c);
+            }
+        }
+
+        Map<FieldsKey, FieldClump> clumps = new HashMap<>();
+        Deque<int[]> queue = new ArrayDeque<>(fieldsPerClass.values());
+        while (!queue.isEmpty() && clumps.size() < MAX_CLUMPS) {
+            ProgressManager.checkCanceled();
+            int[] itemSet = queue.poll();
+
+            // count the common fields of every class sharing at least one field with this set
+            Map<SignatureIndex.ClassSignatures, Integer> counts = new HashMap<>();
+            for (int id : itemSet) {
+                for (SignatureIndex.ClassSignatures c : classesPerField.getOrDefault(id, Collections.emptyList())) {
+                    counts.merge(c, 1, Integer::sum);
+                }
+            }
+            for (Map.Entry<SignatureIndex.ClassSignatures, Integer> entry : counts.entrySet()) {
+                if (entry.getValue() < minCount) {
+                    continue;
+                }
+                FieldClump clump = createClosedClump(intersect(itemSet, fieldsPerClass.get(entry.getKey())), fieldsPerClass, classesPerField);
+                if (clump.classes.size() >= 2 && clump.fieldIds.length >= minCount
+                        && clumps.putIfAbsent(new FieldsKey(clump.fieldIds), clump) == null) {
+                    queue.add(clump.fieldIds);
+                }
+            }
+        }
+
+        Map<SignatureIndex.ClassSignatures, List<FieldClump>> clumpsPerClass = new HashMap<>();
+        for (FieldClump clump : clumps.values()) {
+            for (SignatureIndex.ClassSignatures c : clump.classes) {
+                clumpsPerClass.computeIfAbsent(c, k -> new ArrayList<>()).add(clump);
+            }
+        }
+        PsiUtils.log(LOGGER_NAME, clumps.size() + " clumps of " + fieldsPerClass.size() + " classes, time=" + (System.currentTimeMillis() - startTime));
+        return new MiningResult(fieldsVersion, new ArrayList<>(clumps.values()), clumpsPerClass);
+    }
+
+    /**
+     * Finds all classes having the given fields and extends the fields to all fields these classes have in common
+     */
+    private static FieldClump createClosedClump(int[] fieldIds, Map<SignatureIndex.ClassSignatures, int[]> fieldsPerClass,
+                                                Map<Integer, List<SignatureIndex.ClassSignatures>> classesPerField) {
+        // start with the rarest field to keep the candidates small
+        List<SignatureIndex.ClassSignatures> classes = null;
+        for (int id : fieldIds) {
+            List<SignatureIndex.ClassSignatures> fieldClasses = classesPerField.getOrDefault(id, Collections.emptyList());
+            if (classes == null || fieldClasses.size() < classes.size()) {
+                classes = fieldClasses;
+            }
+        }
+        List<SignatureIndex.ClassSignatures> supportingClasses = new ArrayList<>();
+        int[] closedIds = null;
+        for (SignatureIndex.ClassSignatures c : classes == null ? Collections.<SignatureIndex.ClassSignatures>emptyList() : classes) {
+            int[] classFields = fieldsPerClass.get(c);
+            if (containsAll(classFields, fieldIds)) {
+                supportingClasses.add(c);
+                closedIds = closedIds == null ? classFields : intersect(closedIds, classFields);
+            }
+        }
+        return new FieldClump(closedIds == null ? fieldIds : closedIds, supportingClasses);
+    }
+
+    private static int[] intersect(int[] sorted1, int[] sorted2) {
+        int[] results = new int[Math.min(sorted1.length, sorted2.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < sorted1.length && j < sorted2.length) {
+            if (sorted1[i] < sorted2[j]) {
+                i++;
+            } else if (sorted1[i] > sorted2[j]) {
+                j++;
+            } else {
+                results[count++] = sorted1[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(results, count);
+    }
+
+    private static boolean containsAll(int[] sortedSet, int[] sortedSubset) {
+        return intersect(sortedSet, sortedSubset).length == sortedSubset.length;
+    }
+
+    /**
+     * Removes the mined clumps
+     */
+    public static void reset() {
+        lastResult = null;
+        resultVersion++;
+    }
+
+    /**
+     * Hash key of a sorted array of field ids
+     */
+    private static class FieldsKey {
+        private final int[] fieldIds;
+        private final int hash;
+
+        FieldsKey(int[] fieldIds) {
+            this.fieldIds = fieldIds;
+            this.hash = Arrays.hashCode(fieldIds);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof FieldsKey && Arrays.equals(fieldIds, ((FieldsKey) o).fieldIds);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
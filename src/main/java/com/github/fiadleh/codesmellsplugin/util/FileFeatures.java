@@ -0,0 +1,150 @@
+package com.github.fiadleh.codesmellsplugin.util;
+
+import com.intellij.psi.*;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
+import com.intellij.psi.util.PsiTreeUtil;
+
+import java.util.*;
+
+/**
+ * The classes, fields and methods of one Java file extracted in one traversal and kept until the file changes.
+ * All code smell inspections and the signature index read the file through it, so a new detector does not
+ * traverse the file again. Resolving whether a method overrides another one is done once on demand.
+ *
+ * @author Firas Adleh
+ */
+public class FileFeatures {
+    private final List<PsiClass> classes = new ArrayList<>();
+    private final List<PsiField> fields = new ArrayList<>();
+    private final List<PsiField> globalFields = new ArrayList<>();
+    private final List<MethodFeatures> methods = new ArrayList<>();
+    private final Map<PsiMethod, MethodFeatures> featuresPerMethod = new HashMap<>();
+
+    /**
+     * One method of the file with its flags
+     */
+    public static class MethodFeatures {
+        private final PsiMethod method;
+        private final boolean hasOverrideAnnotation;
+        private final boolean isConstructor;
+        private volatile Boolean hasSuperMethods = null;
+
+        MethodFeatures(PsiMethod method) {
+            this.method = method;
+            this.hasOverrideAnnotation = method.hasAnnotation("java.lang.Override");
+            this.isConstructor = method.isConstructor();
+        }
+
+        public PsiMethod getMethod() {
+            return method;
+        }
+
+        public PsiParameterList getParameterList() {
+            return method.getParameterList();
+        }
+
+        public boolean hasOverrideAnnotation() {
+            return hasOverrideAnnotation;
+        }
+
+        public boolean isConstructor() {
+            return isConstructor;
+        }
+
+        /**
+         * Checks if the method overrides or implements another method, resolved once per version of the features
+         *
+         * @return
+         */
+        public boolean hasSuperMethods() {
+            Boolean result = hasSuperMethods;
+            if (result == null) {
+                result = method.findSuperMethods().length != 0;
+                hasSuperMethods = result;
+            }
+            return result;
+        }
+    }
+
+    private FileFeatures(PsiJavaFile file) {
+        for (PsiClass c : PsiTreeUtil.findChildrenOfType(file, PsiClass.class)) {
+            classes.add(c);
+            for (PsiField field : c.getFields()) {
+                fields.add(field);
+                if (PsiUtils.isGlobalData(field)) {
+                    globalFields.add(field);
+                }
+            }
+            for (PsiMethod method : c.getMethods()) {
+                MethodFeatures features = new MethodFeatures(method);
+                methods.add(features);
+                featuresPerMethod.put(method, features);
+            }
+        }
+    }
+
+    /**
+     * Returns the features of the given file, extracted again if the file or the structure of the Java code
+     * has changed, the structure may change the super methods of this file
+     *
+     * @param file
+     * @return
+     */
+    public static FileFeatures getInstance(PsiJavaFile file) {
+        return CachedValuesManager.getCachedValue(file, () -> CachedValueProvider.Result.create(new FileFeatures(file),
+                file, PsiModificationTracker.SERVICE.getInstance(file.getProject()).getJavaStructureModificationTracker()));
+    }
+
+    /**
+     * Returns the features of the given method out of the features of its file
+     *
+     * @param method
+     * @return the features, or null if the method is not in a Java source file
+     */
+    public static MethodFeatures getMethodFeatures(PsiMethod method) {
+        PsiFile file = method.getContainingFile();
+        if (!(file instanceof PsiJavaFile)) {
+            return null;
+        }
+        return getInstance((PsiJavaFile) file).featuresPerMethod.get(method);
+    }
+
+    /**
+     * Checks if the given method overrides or implements another method, the result is shared by all inspections
+     *
+     * @param method
+     * @return
+     */
+    public static boolean hasSuperMethods(PsiMethod method) {
+        MethodFeatures features = getMethodFeatures(method);
+        return features != null ? features.hasSuperMethods() : method.findSuperMethods().length != 0;
+    }
+
+    /**
+     * Returns all classes of the file including inner, local and anonymous classes
+     *
+     * @return
+     */
+    public List<PsiClass> getClasses() {
+        return Collections.unmodifiableList(classes);
+    }
+
+    public List<PsiField> getFields() {
+        return Collections.unmodifiableList(fields);
+    }
+
+    /**
+     * Returns the public static non-final fields of the file
+     *
+     * @return
+     */
+    public List<PsiField> getGlobalFields() {
+        return Collections.unmodifiableList(globalFields);
+    }
+
+    public List<MethodFeatures> getMethods() {
+        return Collections.unmodifiableList(methods);
+    }
+}
@@ -0,0 +1,351 @@
+package com.github.fiadleh.codesmellsplugin.util;
+
+import com.intellij.ide.highlighter.JavaFileType;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.*;
+import com.intellij.psi.search.FileTypeIndex;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.search.searches.ReferencesSearch;
+import com.intellij.psi.util.PsiUtil;
+import com.intellij.util.concurrency.AppExecutorUtil;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Counts the read and write sites of every public static non-final field and the number of files using it.
+ * Every file adds its own counts, a changed file removes its old counts and adds the new ones,
+ * so the totals are always available without running a usages search. The files changed outside the highlighted
+ * editors are indexed again by the SourceChangesListener, deleted files are removed by it.
+ *
+ * @author Firas Adleh
+ */
+public class GlobalDataUsageIndex {
+    /**
+     * The total usages of every global field by its key
+     */
+    private static final Map<String, FieldUsage> usagesPerField = new ConcurrentHashMap<>();
+
+    /**
+     * The usages counted in every file and the file version they were counted for
+     */
+    private static final Map<VirtualFile, FileUsages> usagesPerFile = new ConcurrentHashMap<>();
+
+    /**
+     * Names of all known global fields, references with other names are not resolved
+     */
+    private static final Set<String> globalFieldNames = ConcurrentHashMap.newKeySet();
+
+    /**
+     * A flag set once all project files have been counted
+     */
+    private static volatile boolean isIndexReady = false;
+
+    /**
+     * Increased every time the counts change
+     */
+    private static volatile int modificationCount = 0;
+
+    /**
+     * A flag set once a warm up has been started, cleared when the index is reset
+     */
+    private static final AtomicBoolean isWarmUpStarted = new AtomicBoolean(false);
+
+    /**
+     * An identifier for index messages in log
+     */
+    private static final String LOGGER_NAME = GlobalDataUsageIndex.class.getSimpleName();
+
+    private GlobalDataUsageIndex() {
+    }
+
+    /**
+     * The usages of one global field
+     */
+    public static class FieldUsage {
+        private int reads;
+        private int writes;
+        private int files;
+
+        public int getReads() {
+            return reads;
+        }
+
+        public int getWrites() {
+            return writes;
+        }
+
+        public int getFiles() {
+            return files;
+        }
+
+        private void add(int[] counts, int sign) {
+            reads += sign * counts[0];
+            writes += sign * counts[1];
+            files += sign;
+        }
+    }
+
+    /**
+     * The usages counted in one file
+     */
+    private static class FileUsages {
+        private final long modificationStamp;
+        private final Map<String, int[]> countsPerField;
+
+        FileUsages(long modificationStamp, Map<String, int[]> countsPerField) {
+            this.modificationStamp = modificationStamp;
+            this.countsPerField = countsPerField;
+        }
+    }
+
+    /**
+     * Returns the usages of the given field, or null if the index is not ready yet
+     *
+     * @param field
+     * @return
+     */
+    public static FieldUsage getUsage(PsiField field) {
+        if (!isIndexReady) {
+            // build the index again after a reset, tests use the index only when it is warmed up explicitly
+            if (!ApplicationManager.getApplication().isUnitTestMode() && !isWarmUpStarted.get()) {
+                warmUp(field.getProject());
+            }
+            return null;
+        }
+        FieldUsage usage = usagesPerField.get(createKey(field));
+        return usage == null ? new FieldUsage() : usage;
+    }
+
+    /**
+     * Returns the usages of all used global fields by their qualified names
+     *
+     * @return the usages, or null if the index is not ready yet
+     */
+    public static synchronized Map<String, FieldUsage> getAllUsages() {
+        if (!isIndexReady) {
+            return null;
+        }
+        Map<String, FieldUsage> results = new HashMap<>();
+        for (Map.Entry<String, FieldUsage> entry : usagesPerField.entrySet()) {
+            if (entry.getValue().files > 0) {
+                FieldUsage usage = new FieldUsage();
+                usage.reads = entry.getValue().reads;
+                usage.writes = entry.getValue().writes;
+                usage.files = entry.getValue().files;
+                results.put(entry.getKey(), usage);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Returns a number increased every time the counts change
+     *
+     * @return
+     */
+    public static int getModificationCount() {
+        return modificationCount;
+    }
+
+    /**
+     * Starts counting the usages of all project files in a background read action
+     *
+     * @param project
+     */
+    public static void warmUp(Project project) {
+        isWarmUpStarted.set(true);
+        ReadAction.nonBlocking(() -> ensureIndex(project))
+                .inSmartMode(project)
+                .expireWith(project)
+                .submit(AppExecutorUtil.getAppExecutorService());
+    }
+
+    /**
+     * Counts the usages of all project files that have not been counted yet.
+     * Must be called in a read action, files already counted are skipped when it is restarted.
+     *
+     * @param project
+     */
+    private static void ensureIndex(Project project) {
+        long startTime = System.currentTimeMillis();
+        // collect the names first, so the references to all global fields are recognized
+        for (PsiClass c : new ArrayList<>(CacheManager.getAllClasses(project))) {
+            ProgressManager.checkCanceled();
+            if (c.isValid()) {
+                for (PsiField field : c.getFields()) {
+                    registerField(field);
+                }
+            }
+        }
+
+        PsiManager psiManager = PsiManager.getInstance(project);
+        for (VirtualFile virtualFile : FileTypeIndex.getFiles(JavaFileType.INSTANCE, GlobalSearchScope.projectScope(project))) {
+            ProgressManager.checkCanceled();
+            PsiFile file = psiManager.findFile(virtualFile);
+            if (file != null) {
+                indexFile(file);
+            }
+        }
+        isIndexReady = true;
+        modificationCount++;
+        PsiUtils.log(LOGGER_NAME, usagesPerField.size() + " global fields, " + usagesPerFile.size() + " files, time=" + (System.currentTimeMillis() - startTime));
+    }
+
+    /**
+     * Remembers the name of a field if it is global data.
+     * The files counted before skipped the references to a new name, they are searched for the new field in the
+     * background and only its counts are added to them.
+     *
+     * @param field
+     */
+    public static void registerField(PsiField field) {
+        if (PsiUtils.isGlobalData(field) && globalFieldNames.add(field.getName()) && isIndexReady) {
+            Project project = field.getProject();
+            SmartPsiElementPointer<PsiField> fieldPointer = SmartPointerManager.getInstance(project).createSmartPsiElementPointer(field);
+            ReadAction.nonBlocking(() -> indexNewField(fieldPointer.getElement()))
+                    .inSmartMode(project)
+                    .expireWith(project)
+                    .submit(AppExecutorUtil.getAppExecutorService());
+        }
+    }
+
+    /**
+     * Adds the counts of a new global field to the files counted before its name was known.
+     * Files counted again after it already contain the field and are skipped.
+     *
+     * @param field
+     */
+    private static void indexNewField(PsiField field) {
+        if (field == null || !PsiUtils.isGlobalData(field)) {
+            return;
+        }
+        String key = createKey(field);
+        Map<VirtualFile, int[]> countsPerFile = new HashMap<>();
+        for (PsiReference reference : ReferencesSearch.search(field, GlobalSearchScope.projectScope(field.getProject()))) {
+            ProgressManager.checkCanceled();
+            PsiElement element = reference.getElement();
+            VirtualFile virtualFile = element.getContainingFile().getVirtualFile();
+            if (virtualFile != null && element instanceof PsiReferenceExpression) {
+                countAccess((PsiReferenceExpression) element, countsPerFile.computeIfAbsent(virtualFile, k -> new int[2]));
+            }
+        }
+
+        synchronized (GlobalDataUsageIndex.class) {
+            for (Map.Entry<VirtualFile, int[]> entry : countsPerFile.entrySet()) {
+                FileUsages oldUsages = usagesPerFile.get(entry.getKey());
+                if (oldUsages == null || oldUsages.countsPerField.containsKey(key)) {
+                    continue;
+                }
+                Map<String, int[]> countsPerField = new HashMap<>(oldUsages.countsPerField);
+                countsPerField.put(key, entry.getValue());
+                addToTotals(Collections.singletonMap(key, entry.getValue()), 1);
+                usagesPerFile.put(entry.getKey(), new FileUsages(oldUsages.modificationStamp, countsPerField));
+            }
+            modificationCount++;
+        }
+    }
+
+    /**
+     * Counts the global fields usages in one file and replaces the old counts of this file.
+     * Nothing is done if the file has not changed since it was counted. The references are resolved without
+     * holding the lock, only the totals are updated under it.
+     *
+     * @param file
+     */
+    public static void indexFile(PsiFile file) {
+        VirtualFile virtualFile = file.getVirtualFile();
+        if (virtualFile == null) {
+            return;
+        }
+        long modificationStamp = file.getModificationStamp();
+        FileUsages currentUsages = usagesPerFile.get(virtualFile);
+        if (currentUsages != null && currentUsages.modificationStamp == modificationStamp) {
+            return;
+        }
+
+        Map<String, int[]> countsPerField = new HashMap<>();
+        file.accept(new JavaRecursiveElementWalkingVisitor() {
+            @Override
+            public void visitReferenceExpression(PsiReferenceExpression expression) {
+                super.visitReferenceExpression(expression);
+                if (!globalFieldNames.contains(expression.getReferenceName())) {
+                    return;
+                }
+                PsiElement target = expression.resolve();
+                if (target instanceof PsiField && PsiUtils.isGlobalData((PsiField) target)) {
+                    countAccess(expression, countsPerField.computeIfAbsent(createKey((PsiField) target), k -> new int[2]));
+                }
+            }
+        });
+
+        synchronized (GlobalDataUsageIndex.class) {
+            FileUsages oldUsages = usagesPerFile.get(virtualFile);
+            // another thread may have counted the same version meanwhile
+            if (oldUsages != null && oldUsages.modificationStamp == modificationStamp) {
+                return;
+            }
+            if (oldUsages != null) {
+                addToTotals(oldUsages.countsPerField, -1);
+            }
+            addToTotals(countsPerField, 1);
+            usagesPerFile.put(virtualFile, new FileUsages(modificationStamp, countsPerField));
+            modificationCount++;
+        }
+    }
+
+    /**
+     * Removes the counts of a deleted file or of all files in a deleted directory
+     *
+     * @param fileOrDirectory
+     */
+    public static synchronized void removeFiles(VirtualFile fileOrDirectory) {
+        for (VirtualFile virtualFile : new ArrayList<>(usagesPerFile.keySet())) {
+            if (VfsUtilCore.isAncestor(fileOrDirectory, virtualFile, false)) {
+                addToTotals(usagesPerFile.remove(virtualFile).countsPerField, -1);
+                modificationCount++;
+            }
+        }
+    }
+
+    /**
+     * Adds one read and/or one write of a reference to the given counts
+     */
+    private static void countAccess(PsiReferenceExpression expression, int[] counts) {
+        if (PsiUtil.isAccessedForReading(expression)) {
+            counts[0]++;
+        }
+        if (PsiUtil.isAccessedForWriting(expression)) {
+            counts[1]++;
+        }
+    }
+
+    private static void addToTotals(Map<String, int[]> countsPerField, int sign) {
+        for (Map.Entry<String, int[]> entry : countsPerField.entrySet()) {
+            usagesPerField.computeIfAbsent(entry.getKey(), k -> new FieldUsage()).add(entry.getValue(), sign);
+        }
+    }
+
+    private static String createKey(PsiField field) {
+        PsiClass containingClass = field.getContainingClass();
+        return (containingClass == null ? "" : containingClass.getQualifiedName()) + "." + field.getName();
+    }
+
+    /**
+     * Removes all counts to build the index from scratch
+     */
+    public static synchronized void reset() {
+        usagesPerField.clear();
+        usagesPerFile.clear();
+        globalFieldNames.clear();
+        isIndexReady = false;
+        modificationCount++;
+        isWarmUpStarted.set(false);
+    }
+}
@@ -0,0 +1,53 @@
+package com.github.fiadleh.codesmellsplugin.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The default signature store keeping all signatures on the heap
+ *
+ * @author Firas Adleh
+ */
+class HeapSignatureStore implements SignatureStore {
+    private final Map<String, Integer> idsPerSignature = new HashMap<>();
+    private final List<String> signatures = new ArrayList<>();
+    private final List<int[]> arrays = new ArrayList<>();
+
+    @Override
+    public synchronized int intern(String signature) {
+        return idsPerSignature.computeIfAbsent(signature, s -> {
+            signatures.add(s);
+            return signatures.size() - 1;
+        });
+    }
+
+    @Override
+    public synchronized int find(String signature) {
+        return idsPerSignature.getOrDefault(signature, -1);
+    }
+
+    @Override
+    public synchronized String getSignature(int id) {
+        return signatures.get(id);
+    }
+
+    @Override
+    public synchronized int storeIds(int[] ids) {
+        arrays.add(ids);
+        return arrays.size() - 1;
+    }
+
+    @Override
+    public synchronized int[] loadIds(int handle) {
+        return arrays.get(handle);
+    }
+
+    @Override
+    public synchronized void dispose() {
+        idsPerSignature.clear();
+        signatures.clear();
+        arrays.clear();
+    }
+}
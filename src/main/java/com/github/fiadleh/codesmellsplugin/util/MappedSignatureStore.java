@@ -0,0 +1,203 @@
+package com.github.fiadleh.codesmellsplugin.util;
+
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.util.io.FileUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A signature store keeping the signature strings and arrays in a memory mapped arena file outside the heap.
+ * Ids and handles are positions in the arena, only an open addressing table of ids is kept on the heap
+ * to find the id of a signature. The arena only grows, it is deleted when the index is reset.
+ *
+ * @author Firas Adleh
+ */
+class MappedSignatureStore implements SignatureStore {
+    /**
+     * Size of one mapped segment, records never cross two segments
+     */
+    private static final int SEGMENT_BITS = 26;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+
+    /**
+     * Maximum number of segments, so that every position fits in a positive int
+     */
+    private static final int MAX_SEGMENTS = 1 << (31 - SEGMENT_BITS);
+
+    private final File arenaFile;
+    private final RandomAccessFile randomAccessFile;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+
+    /**
+     * The position of the next record in the last segment
+     */
+    private int segmentOffset = 0;
+
+    /**
+     * Ids of the stored signatures plus one by their hash, zero means an empty slot
+     */
+    private int[] idsTable = new int[1 << 12];
+    private int signaturesCount = 0;
+
+    MappedSignatureStore() throws IOException {
+        arenaFile = FileUtil.createTempFile(new File(PathManager.getTempPath()), "signatures", ".arena", true, true);
+        randomAccessFile = new RandomAccessFile(arenaFile, "rw");
+        addSegment();
+    }
+
+    @Override
+    public synchronized int intern(String signature) {
+        byte[] bytes = signature.getBytes(StandardCharsets.UTF_8);
+        int hash = signature.hashCode();
+        int slot = findSlot(bytes, hash);
+        if (idsTable[slot] != 0) {
+            return idsTable[slot] - 1;
+        }
+
+        int id = allocate(8 + bytes.length);
+        MappedByteBuffer segment = segments.get(id >>> SEGMENT_BITS);
+        int offset = id & (SEGMENT_SIZE - 1);
+        segment.putInt(offset, hash);
+        segment.putInt(offset + 4, bytes.length);
+        for (int i = 0; i < bytes.length; i++) {
+            segment.put(offset + 8 + i, bytes[i]);
+        }
+
+        idsTable[slot] = id + 1;
+        if (++signaturesCount * 2 > idsTable.length) {
+            growTable();
+        }
+        return id;
+    }
+
+    @Override
+    public synchronized int find(String signature) {
+        return idsTable[findSlot(signature.getBytes(StandardCharsets.UTF_8), signature.hashCode())] - 1;
+    }
+
+    @Override
+    public synchronized String getSignature(int id) {
+        MappedByteBuffer segment = segments.get(id >>> SEGMENT_BITS);
+        int offset = id & (SEGMENT_SIZE - 1);
+        byte[] bytes = new byte[segment.getInt(offset + 4)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = segment.get(offset + 8 + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public synchronized int storeIds(int[] ids) {
+        int handle = allocate(4 + 4 * ids.length);
+        MappedByteBuffer segment = segments.get(handle >>> SEGMENT_BITS);
+        int offset = handle & (SEGMENT_SIZE - 1);
+        segment.putInt(offset, ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            segment.putInt(offset + 4 + 4 * i, ids[i]);
+        }
+        return handle;
+    }
+
+    @Override
+    public synchronized int[] loadIds(int handle) {
+        MappedByteBuffer segment = segments.get(handle >>> SEGMENT_BITS);
+        int offset = handle & (SEGMENT_SIZE - 1);
+        int[] ids = new int[segment.getInt(offset)];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = segment.getInt(offset + 4 + 4 * i);
+        }
+        return ids;
+    }
+
+    @Override
+    public synchronized void dispose() {
+        segments.clear();
+        idsTable = new int[0];
+        try {
+            randomAccessFile.close();
+        } catch (IOException e) {
+            PsiUtils.log(SignatureIndex.class.getSimpleName(), "arena could not be closed: " + e.getMessage());
+        }
+        FileUtil.delete(arenaFile);
+    }
+
+    /**
+     * Returns the slot of the given signature in the ids table, or the empty slot where it should be added
+     */
+    private int findSlot(byte[] bytes, int hash) {
+        int mask = idsTable.length - 1;
+        int slot = mix(hash) & mask;
+        while (idsTable[slot] != 0 && !isSameSignature(idsTable[slot] - 1, bytes, hash)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private boolean isSameSignature(int id, byte[] bytes, int hash) {
+        MappedByteBuffer segment = segments.get(id >>> SEGMENT_BITS);
+        int offset = id & (SEGMENT_SIZE - 1);
+        if (segment.getInt(offset) != hash || segment.getInt(offset + 4) != bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (segment.get(offset + 8 + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void growTable() {
+        int[] oldTable = idsTable;
+        idsTable = new int[oldTable.length * 2];
+        int mask = idsTable.length - 1;
+        for (int entry : oldTable) {
+            if (entry != 0) {
+                int offset = (entry - 1) & (SEGMENT_SIZE - 1);
+                int slot = mix(segments.get((entry - 1) >>> SEGMENT_BITS).getInt(offset)) & mask;
+                while (idsTable[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                idsTable[slot] = entry;
+            }
+        }
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Reserves space for one record and returns its position
+     */
+    private int allocate(int size) {
+        if (size > SEGMENT_SIZE) {
+            throw new IllegalArgumentException("Signature record too large: " + size);
+        }
+        if (segmentOffset + size > SEGMENT_SIZE) {
+            addSegment();
+        }
+        int position = ((segments.size() - 1) << SEGMENT_BITS) | segmentOffset;
+        segmentOffset += size;
+        return position;
+    }
+
+    private void addSegment() {
+        if (segments.size() == MAX_SEGMENTS) {
+            throw new IllegalStateException("Signature arena is full");
+        }
+        try {
+            segments.add(randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, (long) segments.size() * SEGMENT_SIZE, SEGMENT_SIZE));
+        } catch (IOException e) {
+            throw new IllegalStateException("Signature arena could not be mapped", e);
+        }
+        segmentOffset = 0;
+    }
+}
@@ -0,0 +1,114 @@
+package com.github.fiadleh.codesmellsplugin.util;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.*;
+import com.intellij.psi.util.PsiModificationTracker;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * A cache of the raw number of common variables between a class or a parameter list and every element sharing
+ * at least two variables with it. The counts do not depend on the inspection thresholds or options, so changing
+ * them only filters the stored counts again instead of comparing the elements again.
+ * All counts are dropped when the structure of the Java code changes.
+ *
+ * @author Firas Adleh
+ */
+public class OverlapCache {
+    /**
+     * The lowest number of common variables stored, the lowest possible minimum of the inspection
+     */
+    public static final int MIN_STORED_COUNT = 2;
+
+    /**
+     * The common variables count of every partner by the key of the compared element
+     */
+    private static final Map<String, Map<? extends PsiElement, Integer>> overlapsPerElement = new ConcurrentHashMap<>();
+
+    /**
+     * The Java structure modification count the stored counts belong to
+     */
+    private static volatile long modificationCount = -1;
+
+    private OverlapCache() {
+    }
+
+    /**
+     * Returns the stored common fields counts of the given class or computes and stores them
+     *
+     * @param currentClass
+     * @param moduleNames  the modules the partners are searched in, or null for all modules
+     * @param computation  counts the common fields of all partners sharing at least MIN_STORED_COUNT fields
+     * @return the common fields count by partner class
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<PsiClass, Integer> getFieldsOverlaps(PsiClass currentClass, Set<String> moduleNames,
+                                                           Supplier<Map<PsiClass, Integer>> computation) {
+        String key = "F:" + currentClass.getQualifiedName() + createModulesKey(moduleNames);
+        return (Map<PsiClass, Integer>) getOverlaps(currentClass.getProject(), key, computation);
+    }
+
+    /**
+     * Returns the stored common parameters counts of the given method or computes and stores them
+     *
+     * @param currentMethod
+     * @param moduleNames   the modules the partners are searched in, or null for all modules
+     * @param computation   counts the common parameters of all methods sharing at least MIN_STORED_COUNT parameters
+     * @return the common parameters count by partner method
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<PsiMethod, Integer> getParametersOverlaps(PsiMethod currentMethod, Set<String> moduleNames,
+                                                                Supplier<Map<PsiMethod, Integer>> computation) {
+        PsiClass containingClass = currentMethod.getContainingClass();
+        String key = "P:" + (containingClass == null ? "" : containingClass.getQualifiedName()) + "#" +
+                currentMethod.getName() + currentMethod.getParameterList().getText() + createModulesKey(moduleNames);
+        return (Map<PsiMethod, Integer>) getOverlaps(currentMethod.getProject(), key, computation);
+    }
+
+    private static Map<? extends PsiElement, Integer> getOverlaps(Project project, String key,
+                                                                  Supplier<? extends Map<? extends PsiElement, Integer>> computation) {
+        long currentCount = PsiModificationTracker.SERVICE.getInstance(project).getJavaStructureModificationCount();
+        if (currentCount != modificationCount) {
+            overlapsPerElement.clear();
+            modificationCount = currentCount;
+        }
+
+        Map<? extends PsiElement, Integer> overlaps = overlapsPerElement.get(key);
+        if (overlaps == null || !isValid(overlaps)) {
+            overlaps = Collections.unmodifiableMap(computation.get());
+            overlapsPerElement.put(key, overlaps);
+        }
+        return overlaps;
+    }
+
+    /**
+     * The counts of different candidate scopes are stored separately
+     */
+    private static String createModulesKey(Set<String> moduleNames) {
+        if (moduleNames == null) {
+            return "";
+        }
+        List<String> sortedNames = new ArrayList<>(moduleNames);
+        Collections.sort(sortedNames);
+        return "@" + String.join(",", sortedNames);
+    }
+
+    private static boolean isValid(Map<? extends PsiElement, Integer> overlaps) {
+        for (PsiElement partner : overlaps.keySet()) {
+            if (!partner.isValid()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes all stored counts
+     */
+    public static void reset() {
+        overlapsPerElement.clear();
+        modificationCount = -1;
+    }
+}
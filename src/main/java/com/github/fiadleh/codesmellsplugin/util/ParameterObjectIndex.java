@@ -0,0 +1,366 @@
+package com.github.fiadleh.codesmellsplugin.util;
+
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleUtilCore;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.*;
+import com.intellij.psi.util.PsiTreeUtil;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An index of the project classes by their fields. It answers whether there is already a parameter object for a
+ * group of variables with a hashed lookup instead of checking every class of the project.
+ * The index is built from the classes cache and updated every time a class is visited by the inspection or its file
+ * is changed or deleted. Classes are kept by their file url and qualified name with a smart pointer, so changed or
+ * deleted classes are not held by the index.
+ *
+ * @author Firas Adleh
+ */
+public class ParameterObjectIndex {
+    /**
+     * Keys of the classes whose fields all have getters and setters, by the sorted signatures of all their fields
+     */
+    private static final Map<String, Set<String>> classesPerFieldsSet = new ConcurrentHashMap<>();
+
+    /**
+     * Keys of the classes by the signature of each one of their fields partitioned by module name,
+     * used to count common fields
+     */
+    private static final Map<String, Map<String, Set<String>>> classesPerField = new ConcurrentHashMap<>();
+
+    /**
+     * Every indexed class by its key, used to find the class and to remove it before indexing it again
+     */
+    private static final Map<String, IndexedClass> indexedClasses = new ConcurrentHashMap<>();
+
+    /**
+     * The keys of the indexed classes of every file by the file url
+     */
+    private static final Map<String, Set<String>> classesPerFile = new ConcurrentHashMap<>();
+
+    /**
+     * A flag set once the index contains all cached classes
+     */
+    private static volatile boolean isIndexReady = false;
+
+    /**
+     * An identifier for index messages in log
+     */
+    private static final String LOGGER_NAME = ParameterObjectIndex.class.getSimpleName();
+
+    private ParameterObjectIndex() {
+    }
+
+    /**
+     * One indexed class and its keys
+     */
+    private static class IndexedClass {
+        private final SmartPsiElementPointer<PsiClass> pointer;
+        private final String fileUrl;
+        private final String fieldsSetKey;
+        private final List<String> fieldKeys;
+        private final String moduleName;
+
+        IndexedClass(SmartPsiElementPointer<PsiClass> pointer, String fileUrl, String fieldsSetKey, List<String> fieldKeys, String moduleName) {
+            this.pointer = pointer;
+            this.fileUrl = fileUrl;
+            this.fieldsSetKey = fieldsSetKey;
+            this.fieldKeys = fieldKeys;
+            this.moduleName = moduleName;
+        }
+
+        PsiClass getElement() {
+            PsiClass c = pointer.getElement();
+            return c != null && c.isValid() ? c : null;
+        }
+    }
+
+    /**
+     * Returns a class that has only the given variables as fields with setters and getters
+     *
+     * @param currentProject
+     * @param requiredFields a list of the required parameters
+     * @return psi class if a proper class is found otherwise null
+     */
+    public static PsiClass findParameterObject(Project currentProject, List<PsiElement> requiredFields) {
+        ensureIndex(currentProject);
+
+        List<String> keys = new ArrayList<>();
+        for (PsiElement requiredField : requiredFields) {
+            // only parameters can be replaced by an existing parameter object
+            if (!(requiredField instanceof PsiParameter)) {
+                return null;
+            }
+            keys.add(createExactKey((PsiParameter) requiredField));
+        }
+
+        for (String classKey : classesPerFieldsSet.getOrDefault(createSetKey(keys), Collections.emptySet())) {
+            PsiClass c = findClass(classKey);
+            if (c != null) {
+                return c;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Counts the common fields of every class sharing at least one field with the given parameter list
+     *
+     * @param currentProject
+     * @param parameterList
+     * @param moduleNames    the modules to be searched, or null to search all modules
+     * @return the number of common fields of every class having at least one
+     */
+    public static Map<PsiClass, Integer> countCommonFields(Project currentProject, PsiParameterList parameterList, Set<String> moduleNames) {
+        ensureIndex(currentProject);
+
+        Map<String, Integer> countsPerKey = new HashMap<>();
+        Set<String> parameterKeys = new HashSet<>();
+        for (PsiParameter parameter : parameterList.getParameters()) {
+            parameterKeys.add(createLooseKey(parameter));
+        }
+        for (Map<String, Set<String>> postings : getPartitions(moduleNames)) {
+            for (String key : parameterKeys) {
+                for (String classKey : postings.getOrDefault(key, Collections.emptySet())) {
+                    countsPerKey.merge(classKey, 1, Integer::sum);
+                }
+            }
+        }
+
+        Map<PsiClass, Integer> counts = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : countsPerKey.entrySet()) {
+            PsiClass c = findClass(entry.getKey());
+            if (c != null) {
+                counts.put(c, entry.getValue());
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Returns the field postings of the given modules
+     *
+     * @param moduleNames the module names, or null for all modules
+     * @return
+     */
+    private static List<Map<String, Set<String>>> getPartitions(Set<String> moduleNames) {
+        if (moduleNames == null) {
+            return new ArrayList<>(classesPerField.values());
+        }
+        List<Map<String, Set<String>>> partitions = new ArrayList<>();
+        for (String moduleName : moduleNames) {
+            Map<String, Set<String>> postings = classesPerField.get(moduleName);
+            if (postings != null) {
+                partitions.add(postings);
+            }
+        }
+        return partitions;
+    }
+
+    private static PsiClass findClass(String classKey) {
+        IndexedClass indexedClass = indexedClasses.get(classKey);
+        return indexedClass == null ? null : indexedClass.getElement();
+    }
+
+    /**
+     * Builds the index out of the classes cache if it is not ready yet, only one thread builds it
+     *
+     * @param currentProject
+     */
+    private static void ensureIndex(Project currentProject) {
+        if (isIndexReady) {
+            return;
+        }
+        synchronized (ParameterObjectIndex.class) {
+            if (isIndexReady) {
+                return;
+            }
+            long startTime = System.currentTimeMillis();
+            for (PsiClass c : new ArrayList<>(CacheManager.getAllClasses(currentProject))) {
+                if (c.isValid()) {
+                    indexClass(c);
+                }
+            }
+            isIndexReady = true;
+            PsiUtils.log(LOGGER_NAME, indexedClasses.size() + ", create parameter object index, time=" + (System.currentTimeMillis() - startTime));
+        }
+    }
+
+    /**
+     * Adds a class to the index or updates its entries if it has been indexed before.
+     * Classes without a qualified name or a file are not indexed.
+     *
+     * @param currentClass
+     */
+    public static void indexClass(PsiClass currentClass) {
+        String classKey = createClassKey(currentClass);
+        if (classKey == null) {
+            return;
+        }
+
+        // the keys are created before locking the index, only the postings are changed under the lock
+        List<String> exactKeys = new ArrayList<>();
+        List<String> fieldKeys = new ArrayList<>();
+        boolean hasAllAccessors = true;
+        for (PsiField field : currentClass.getFields()) {
+            exactKeys.add(createExactKey(field));
+            fieldKeys.add(createLooseKey(field));
+            hasAllAccessors = hasAllAccessors
+                    && currentClass.findMethodsByName("get" + field.getName(), true).length > 0
+                    && currentClass.findMethodsByName("set" + field.getName(), true).length > 0;
+        }
+        String fieldsSetKey = hasAllAccessors && !exactKeys.isEmpty() ? createSetKey(exactKeys) : null;
+        Module module = ModuleUtilCore.findModuleForPsiElement(currentClass);
+        IndexedClass indexedClass = new IndexedClass(
+                SmartPointerManager.getInstance(currentClass.getProject()).createSmartPsiElementPointer(currentClass),
+                currentClass.getContainingFile().getVirtualFile().getUrl(),
+                fieldsSetKey, fieldKeys, module == null ? "" : module.getName());
+
+        addClass(classKey, indexedClass);
+    }
+
+    private static synchronized void addClass(String classKey, IndexedClass indexedClass) {
+        removeClass(classKey);
+
+        if (indexedClass.fieldsSetKey != null) {
+            classesPerFieldsSet.computeIfAbsent(indexedClass.fieldsSetKey, k -> ConcurrentHashMap.newKeySet()).add(classKey);
+        }
+        Map<String, Set<String>> modulePostings = classesPerField.computeIfAbsent(indexedClass.moduleName, k -> new ConcurrentHashMap<>());
+        for (String key : indexedClass.fieldKeys) {
+            modulePostings.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(classKey);
+        }
+        classesPerFile.computeIfAbsent(indexedClass.fileUrl, k -> ConcurrentHashMap.newKeySet()).add(classKey);
+        indexedClasses.put(classKey, indexedClass);
+    }
+
+    /**
+     * Indexes the classes of a changed file again, the classes removed from the file are removed from the index
+     *
+     * @param file
+     */
+    public static void indexFile(PsiFile file) {
+        VirtualFile virtualFile = file.getVirtualFile();
+        if (!isIndexReady || !(file instanceof PsiJavaFile) || virtualFile == null) {
+            return;
+        }
+        Collection<PsiClass> classes = PsiTreeUtil.findChildrenOfType(file, PsiClass.class);
+        synchronized (ParameterObjectIndex.class) {
+            removeFileClasses(virtualFile.getUrl());
+            for (PsiClass c : classes) {
+                indexClass(c);
+            }
+        }
+    }
+
+    /**
+     * Removes the classes of a deleted, moved or renamed file or of all files of a directory
+     *
+     * @param fileOrDirectory
+     */
+    public static synchronized void removeFiles(VirtualFile fileOrDirectory) {
+        String url = fileOrDirectory.getUrl();
+        for (String indexedUrl : new ArrayList<>(classesPerFile.keySet())) {
+            if (indexedUrl.equals(url) || indexedUrl.startsWith(url + "/")) {
+                removeFileClasses(indexedUrl);
+            }
+        }
+    }
+
+    private static synchronized void removeFileClasses(String url) {
+        Set<String> classKeys = classesPerFile.get(url);
+        if (classKeys != null) {
+            for (String classKey : new ArrayList<>(classKeys)) {
+                removeClass(classKey);
+            }
+        }
+    }
+
+    /**
+     * Removes a class from the index
+     *
+     * @param currentClass
+     */
+    public static void removeClass(PsiClass currentClass) {
+        String classKey = createClassKey(currentClass);
+        if (classKey != null) {
+            removeClass(classKey);
+        }
+    }
+
+    private static synchronized void removeClass(String classKey) {
+        IndexedClass indexedClass = indexedClasses.remove(classKey);
+        if (indexedClass == null) {
+            return;
+        }
+        if (indexedClass.fieldsSetKey != null) {
+            removeFromPostings(classesPerFieldsSet, indexedClass.fieldsSetKey, classKey);
+        }
+        Map<String, Set<String>> modulePostings = classesPerField.get(indexedClass.moduleName);
+        if (modulePostings != null) {
+            for (String key : indexedClass.fieldKeys) {
+                removeFromPostings(modulePostings, key, classKey);
+            }
+        }
+        removeFromPostings(classesPerFile, indexedClass.fileUrl, classKey);
+    }
+
+    private static void removeFromPostings(Map<String, Set<String>> postings, String key, String classKey) {
+        Set<String> classKeys = postings.get(key);
+        if (classKeys != null) {
+            classKeys.remove(classKey);
+            if (classKeys.isEmpty()) {
+                postings.remove(key, classKeys);
+            }
+        }
+    }
+
+    /**
+     * Key of an indexed class, the url of its file and its qualified name
+     *
+     * @param currentClass
+     * @return the key or null if the class has no qualified name or no file
+     */
+    private static String createClassKey(PsiClass currentClass) {
+        String qualifiedName = currentClass.getQualifiedName();
+        PsiFile file = currentClass.getContainingFile();
+        VirtualFile virtualFile = file == null ? null : file.getVirtualFile();
+        if (qualifiedName == null || virtualFile == null) {
+            return null;
+        }
+        return virtualFile.getUrl() + "#" + qualifiedName;
+    }
+
+    /**
+     * Key used to match the fields of a parameter object, same type and same name ignoring the case
+     */
+    private static String createExactKey(PsiVariable variable) {
+        return variable.getType().getCanonicalText() + " " + Objects.requireNonNull(variable.getName()).toLowerCase();
+    }
+
+    /**
+     * Key used to count common fields, same type text and same name both ignoring the case
+     */
+    private static String createLooseKey(PsiVariable variable) {
+        return variable.getType().getPresentableText().toLowerCase() + " " + Objects.requireNonNull(variable.getName()).toLowerCase();
+    }
+
+    private static String createSetKey(List<String> keys) {
+        List<String> sortedKeys = new ArrayList<>(keys);
+        Collections.sort(sortedKeys);
+        return String.join(",", sortedKeys);
+    }
+
+    /**
+     * Removes all entries to build the index from scratch
+     */
+    public static synchronized void reset() {
+        classesPerFieldsSet.clear();
+        classesPerField.clear();
+        indexedClasses.clear();
+        classesPerFile.clear();
+        isIndexReady = false;
+    }
+}
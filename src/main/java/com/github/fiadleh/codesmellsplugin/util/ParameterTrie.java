@@ -0,0 +1,164 @@
+package com.github.fiadleh.codesmellsplugin.util;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * A trie of the sorted parameter ids of methods. Methods sharing the first parameters of their sorted lists share
+ * the same path, so a query walks the common prefixes once. A branch is left as soon as the query parameters
+ * greater than its id can not complete the required number of common parameters anymore, so the branches of
+ * methods sharing too few parameters are skipped instead of counting every method.
+ *
+ * @author Firas Adleh
+ */
+class ParameterTrie {
+    private final Node root = new Node(-1);
+
+    /**
+     * One parameter id on the path of one or more methods
+     */
+    private static class Node {
+        private final int id;
+        private int[] childIds = new int[0];
+        private Node[] children = new Node[0];
+
+        /**
+         * The methods whose sorted parameter list ends at this node
+         */
+        private SignatureIndex.MethodSignatures[] methods = new SignatureIndex.MethodSignatures[0];
+
+        Node(int id) {
+            this.id = id;
+        }
+
+        Node getChild(int childId) {
+            int index = Arrays.binarySearch(childIds, childId);
+            return index >= 0 ? children[index] : null;
+        }
+
+        Node getOrAddChild(int childId) {
+            int index = Arrays.binarySearch(childIds, childId);
+            if (index >= 0) {
+                return children[index];
+            }
+            int insertion = -index - 1;
+            Node child = new Node(childId);
+            childIds = insert(childIds, insertion, childId);
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(children, 0, newChildren, 0, insertion);
+            newChildren[insertion] = child;
+            System.arraycopy(children, insertion, newChildren, insertion + 1, children.length - insertion);
+            children = newChildren;
+            return child;
+        }
+
+        void removeChild(int childId) {
+            int index = Arrays.binarySearch(childIds, childId);
+            if (index < 0) {
+                return;
+            }
+            int[] newIds = new int[childIds.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(childIds, 0, newIds, 0, index);
+            System.arraycopy(childIds, index + 1, newIds, index, childIds.length - index - 1);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+            childIds = newIds;
+            children = newChildren;
+        }
+
+        boolean isEmpty() {
+            return children.length == 0 && methods.length == 0;
+        }
+    }
+
+    /**
+     * Adds a method with the given parameter ids
+     *
+     * @param parameterIds
+     * @param method
+     */
+    synchronized void add(int[] parameterIds, SignatureIndex.MethodSignatures method) {
+        Node node = root;
+        for (int id : toSortedSet(parameterIds)) {
+            node = node.getOrAddChild(id);
+        }
+        node.methods = Arrays.copyOf(node.methods, node.methods.length + 1);
+        node.methods[node.methods.length - 1] = method;
+    }
+
+    /**
+     * Removes a method added with the given parameter ids, the nodes left without methods are removed too
+     *
+     * @param parameterIds
+     * @param method
+     */
+    synchronized void remove(int[] parameterIds, SignatureIndex.MethodSignatures method) {
+        int[] sortedIds = toSortedSet(parameterIds);
+        Node[] path = new Node[sortedIds.length + 1];
+        path[0] = root;
+        for (int i = 0; i < sortedIds.length; i++) {
+            path[i + 1] = path[i].getChild(sortedIds[i]);
+            if (path[i + 1] == null) {
+                return;
+            }
+        }
+
+        Node last = path[sortedIds.length];
+        for (int i = 0; i < last.methods.length; i++) {
+            if (last.methods[i] == method) {
+                SignatureIndex.MethodSignatures[] newMethods = new SignatureIndex.MethodSignatures[last.methods.length - 1];
+                System.arraycopy(last.methods, 0, newMethods, 0, i);
+                System.arraycopy(last.methods, i + 1, newMethods, i, last.methods.length - i - 1);
+                last.methods = newMethods;
+                break;
+            }
+        }
+        for (int i = sortedIds.length; i > 0 && path[i].isEmpty(); i--) {
+            path[i - 1].removeChild(sortedIds[i - 1]);
+        }
+    }
+
+    /**
+     * Adds every method having at least the given number of the query parameters to the results with its count
+     *
+     * @param parameterIds the parameter ids of the query
+     * @param minCount
+     * @param results      receives the matching methods and their number of common parameters
+     */
+    synchronized void collect(int[] parameterIds, int minCount, Map<SignatureIndex.MethodSignatures, Integer> results) {
+        collect(root, toSortedSet(parameterIds), 0, minCount, results);
+    }
+
+    private static void collect(Node node, int[] query, int matched, int minCount, Map<SignatureIndex.MethodSignatures, Integer> results) {
+        if (matched >= minCount) {
+            for (SignatureIndex.MethodSignatures method : node.methods) {
+                results.put(method, matched);
+            }
+        }
+        for (int i = 0; i < node.children.length; i++) {
+            Node child = node.children[i];
+            int position = Arrays.binarySearch(query, child.id);
+            // the query parameters greater than this id are the only ones left to be matched below it
+            int remaining = query.length - (position >= 0 ? position + 1 : -position - 1);
+            int childMatched = matched + (position >= 0 ? 1 : 0);
+            if (childMatched + remaining < minCount) {
+                // the next children have greater ids, they can not match more query parameters either
+                return;
+            }
+            collect(child, query, childMatched, minCount, results);
+        }
+    }
+
+    private static int[] toSortedSet(int[] ids) {
+        return Arrays.stream(ids).filter(id -> id >= 0).distinct().sorted().toArray();
+    }
+
+    private static int[] insert(int[] array, int index, int value) {
+        int[] result = new int[array.length + 1];
+        System.arraycopy(array, 0, result, 0, index);
+        result[index] = value;
+        System.arraycopy(array, index, result, index + 1, array.length - index);
+        return result;
+    }
+}
@@ -1,12 +1,16 @@
 package com.github.fiadleh.codesmellsplugin.util;
 
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.CommonDataKeys;
+import com.intellij.openapi.actionSystem.LangDataKeys;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleUtilCore;
 import com.intellij.openapi.project.Project;
 import com.intellij.psi.*;
 import com.intellij.psi.codeStyle.CodeStyleManager;
 import com.intellij.psi.search.GlobalSearchScope;
-import com.intellij.psi.util.PsiTreeUtil;
-import com.intellij.psi.util.PsiUtil;
+import com.intellij.psi.search.GlobalSearchScopesCore;
 import com.intellij.util.IncorrectOperationException;
 
 import java.util.*;
@@ -60,23 +64,6 @@ public class PsiUtils {
         }
     }
 
-    /**
-     * Searches for an element in a list matching only the text and not the actual object
-     * returns element index if found otherwise -1
-     *
-     * @param elementsList  a list of elements to search in
-     * @param element       the wanted element
-     * @return              element index if found otherwise -1
-     */
-    public static int getElementIndex(List<PsiElement> elementsList, PsiElement element) {
-        for (int i = 0; i < elementsList.size(); i++) {
-            if (elementsList.get(i).getText().equals(element.getText())) {
-                return i;
-            }
-        }
-        return -1;
-    }
-
     /**
      * Extracts variables to a new class and return its full qualified name (with package)
      *
@@ -185,6 +172,19 @@ public class PsiUtils {
         return classNameBuilder.toString();
     }
 
+    /**
+     * Makes a "type name" text out of a parameter or a field
+     *
+     * @param variable
+     * @return          the signature text or an empty string for other elements
+     */
+    public static String getVariableSignature(PsiElement variable) {
+        if (variable instanceof PsiVariable) {
+            return ((PsiVariable) variable).getType().getCanonicalText() + " " + ((PsiVariable) variable).getName();
+        }
+        return "";
+    }
+
     /**
      * Create a setter or a getter PSI method for a given variable name
      *
@@ -300,25 +300,36 @@ public class PsiUtils {
      * @return
      */
     public static int countCommonFields(PsiClass class1, PsiParameterList methodParameterList) {
-        int countCommonFields = 0;
-        if (class1 != null && class1.isValid()) {
-            for (PsiField field1 : class1.getFields()) {
-                String type1 = field1.getType().toString();
+        if (class1 == null || !class1.isValid()) {
+            return 0;
+        }
+        return getParametersMatchingFields(class1, methodParameterList).size();
+    }
 
-                for (PsiParameter param : methodParameterList.getParameters()) {
-                    String type2 = param.getType().toString();
+    /**
+     * Collects the parameters having a field with the same type and name in the given class, ignoring the case
+     *
+     * @param class1
+     * @param methodParameterList
+     * @return the matching parameters in the order of the fields
+     */
+    public static List<PsiParameter> getParametersMatchingFields(PsiClass class1, PsiParameterList methodParameterList) {
+        List<PsiParameter> results = new ArrayList<>();
+        for (PsiField field1 : class1.getFields()) {
+            String type1 = field1.getType().toString();
 
-                    if (type1.equalsIgnoreCase(type2) &&
-                            field1.getName().equalsIgnoreCase(param.getName())
-                    ) {
+            for (PsiParameter param : methodParameterList.getParameters()) {
+                String type2 = param.getType().toString();
 
-                        countCommonFields++;
-                        break;
-                    }
+                if (type1.equalsIgnoreCase(type2) &&
+                        field1.getName().equalsIgnoreCase(param.getName())
+                ) {
+                    results.add(param);
+                    break;
                 }
             }
         }
-        return countCommonFields;
+        return results;
     }
 
     /**
@@ -377,18 +388,54 @@ public class PsiUtils {
     }
 
     /**
-     * Find the PSI class using string contains the class type
+     * Find the PSI class using string contains the class type.
+     * Only the module of the context class and its dependencies are searched, other modules can not declare its super types.
      *
-     * @param project
+     * @param context   the class using the type
      * @param classType
      * @return
      */
-    public static Collection<PsiClass> getClassFromType(Project project, String classType) {
-        return com.intellij.psi.search.searches.AllClassesSearch.search(GlobalSearchScope.projectScope(project),
+    public static Collection<PsiClass> getClassFromType(PsiClass context, String classType) {
+        Project project = context.getProject();
+        Module module = ModuleUtilCore.findModuleForPsiElement(context);
+        GlobalSearchScope scope = module == null ? GlobalSearchScope.projectScope(project) : GlobalSearchScope.moduleWithDependenciesScope(module);
+        return com.intellij.psi.search.searches.AllClassesSearch.search(scope,
                 project,
                 classType::equals).findAll();
     }
 
+    /**
+     * Checks if the given field is global data, a public static field that is not final
+     *
+     * @param field
+     * @return
+     */
+    public static boolean isGlobalData(PsiField field) {
+        PsiModifierList modifierList = field.getModifierList();
+        return modifierList != null && modifierList.hasExplicitModifier(PsiModifier.PUBLIC) && modifierList.hasExplicitModifier(PsiModifier.STATIC)
+                && !modifierList.hasExplicitModifier(PsiModifier.FINAL);
+    }
+
+    /**
+     * Returns the scope of the directory or module selected when an action is invoked,
+     * or the whole project if nothing is selected
+     *
+     * @param e         the action event
+     * @param project
+     * @return
+     */
+    public static GlobalSearchScope getSelectedScope(AnActionEvent e, Project project) {
+        PsiElement selectedElement = e.getData(CommonDataKeys.PSI_ELEMENT);
+        if (selectedElement instanceof PsiDirectory) {
+            return GlobalSearchScopesCore.directoryScope((PsiDirectory) selectedElement, true);
+        }
+        Module selectedModule = e.getData(LangDataKeys.MODULE_CONTEXT);
+        if (selectedModule != null) {
+            return GlobalSearchScope.moduleScope(selectedModule);
+        }
+        return GlobalSearchScope.projectScope(project);
+    }
+
     public static String getDefaultValue(String type) {
         String[] primitiveNumbers = {"byte", "short", "int", "long", "float", "double"};
         if (Arrays.asList(primitiveNumbers).contains(type)) {
@@ -411,113 +458,6 @@ public class PsiUtils {
      * @return psi class if a proper class is found otherwise null
      */
     public static PsiClass findParameterObject(Project currentProject, List<PsiElement> requiredFields) {
-        for (PsiClass c : CacheManager.getAllClasses(currentProject)) {
-            if (c.isValid() && hasClassAllFields(requiredFields, c)) {
-                return c;
-            }
-        }
-        return null;
+        return ParameterObjectIndex.findParameterObject(currentProject, requiredFields);
     }
-
-    /**
-     * Checks if the given class has all the required fields
-     *
-     * @param requiredFields
-     * @param currentClass
-     * @return
-     */
-    private static boolean hasClassAllFields(List<PsiElement> requiredFields, PsiClass currentClass) {
-        if (currentClass.getFields().length < requiredFields.size()) {
-            return false;
-        }
-
-        boolean allFieldsFound = true;
-        for (PsiField field : currentClass.getFields()) {
-            boolean currentFieldsFound = false;
-            for (PsiElement reqField : requiredFields) {
-                if (reqField instanceof PsiParameter &&
-                        ((PsiParameter) reqField).getName().equalsIgnoreCase(field.getName())
-                        && ((PsiParameter) reqField).getType().getCanonicalText().equals(field.getType().getCanonicalText())
-                        // check getter and setter
-                        && currentClass.findMethodsByName("get" + field.getName(), true).length > 0
-                        && currentClass.findMethodsByName("set" + field.getName(), true).length > 0
-                ) {
-                    currentFieldsFound = true;
-                    break;
-
-                }
-            }
-            if (!currentFieldsFound) {
-                allFieldsFound = false;
-                break;
-            }
-        }
-        if (allFieldsFound) {
-            log(currentClass.getName() + " ALl Found !!!!! " + requiredFields.toString().toLowerCase());
-
-            return true;
-        }
-
-        return false;
-    }
-
-    /***
-     * Replaces the giving reference with either a getter or setter method according to its parent expression
-     *
-     * @param project           current project
-     * @param reference         reference to be replaced
-     * @param className         the class that contains the reference as a field
-     * @param variableName      name of the field in the class
-     */
-    public static void refactorReferenceToSetterGetter(Project project, PsiReference reference, String className, String variableName) {
-        PsiElementFactory factory = JavaPsiFacade.getInstance(project).getElementFactory();
-        PsiExpression getterExpression = factory.createExpressionFromText(className +
-                ".get" + variableName + "()", null);
-
-        if (reference.getElement().getParent() instanceof com.intellij.psi.impl.source.tree.java.PsiReferenceExpressionImpl) {
-            PsiUtils.log("Reference Expression, class = " + Objects.requireNonNull(PsiUtil.getTopLevelClass(reference.getElement())).getQualifiedName());
-
-            reference.getElement().replace(getterExpression);
-        } else if (reference.getElement().getParent() instanceof com.intellij.psi.impl.source.tree.java.PsiAssignmentExpressionImpl) {
-            PsiUtils.log("Assignment Expression, class = " + Objects.requireNonNull(PsiUtil.getTopLevelClass(reference.getElement())).getQualifiedName());
-            PsiAssignmentExpression exp = (PsiAssignmentExpression) reference.getElement().getParent();
-            // check if the reference on the left side of assignment expression
-            if (PsiTreeUtil.isAncestor(exp.getLExpression(), reference.getElement(), false)) {
-                // on the left side means a new value is assigned and this requires a setter call
-                PsiUtils.log("Setter: " + exp);
-                PsiUtils.log("result: " + className + ".set" + variableName + "(" + Objects.requireNonNull(exp.getRExpression()).getText() + ")");
-                PsiExpression setterExp = factory.createExpressionFromText(className +
-                        ".set" + variableName + "(" + exp.getRExpression().getText() + ")", null);
-                PsiUtils.log("newExp: " + setterExp.getText());
-                // updating setter
-                exp.replace(setterExp);
-
-            } else {
-                PsiUtils.log("Getter: " + exp);
-                // on the right side is just a reference call
-                reference.getElement().replace(getterExpression);
-            }
-        } else if (reference.getElement().getParent() instanceof com.intellij.psi.impl.source.tree.java.PsiBinaryExpressionImpl) {
-            PsiUtils.log("Binary: " + reference);
-            // on the right side is just a reference call
-            reference.getElement().replace(getterExpression);
-        } else {
-            PsiUtils.log("Unknown !!!!,reference= " + reference + ", Text = (" + reference.getElement().getText() + "), parent = " + reference.getElement().getParent().getClass().getName());
-
-            String refName = reference.toString().substring(reference.toString().lastIndexOf(':') + 1);
-            String newExprText = refName.replaceAll(variableName, className + ".get" + variableName + "()");
-            PsiUtils.log("newExprText = " + newExprText);
-            try {
-                PsiExpression newExp = factory.createExpressionFromText(newExprText, null);
-                reference.getElement().replace(newExp);
-            } catch (IncorrectOperationException e) {
-                PsiUtils.log("IncorrectOperationException = " + e);
-            } catch (PsiInvalidElementAccessException e) {
-                PsiUtils.log("PsiInvalidElementAccessException = " + e);
-            }
-
-        }
-    }
-
-
 }
@@ -0,0 +1,170 @@
+package com.github.fiadleh.codesmellsplugin.util;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.*;
+import com.intellij.psi.tree.IElementType;
+import com.intellij.psi.util.PsiUtil;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Rewrites references to a variable into getter and setter calls on the object now holding the variable.
+ * Every reference is classified once by its position in the expression tree, a read becomes a getter call,
+ * an assignment becomes a setter call and a compound assignment or an increment becomes a setter call of the
+ * computed value. The replacements are built from templates, the text of the reference itself is never searched.
+ * Assignments are only rewritten when they are statements of their own, an assignment used as a value is skipped.
+ * References should be rewritten from the end of the file, so the inner references of an assigned value are
+ * rewritten before the assignment.
+ *
+ * @author Firas Adleh
+ */
+public class ReferenceRewriter {
+    /**
+     * How a reference uses its variable
+     */
+    public enum Access {
+        READ,
+        WRITE,
+        COMPOUND
+    }
+
+    private static final String GETTER_TEMPLATE = "%s.get%s()";
+    private static final String SETTER_TEMPLATE = "%s.set%s(%s)";
+
+    private static final String LOGGER_NAME = ReferenceRewriter.class.getSimpleName();
+
+    private final PsiElementFactory factory;
+
+    /**
+     * The expression of the object or the class holding the variable, like "mPoint" or "com.example.Globals"
+     */
+    private final String holder;
+
+    /**
+     * Keeps the qualifier of a qualified reference in front of the holder, for fields moved into a field of the
+     * same object. The qualifier is replaced for static holders.
+     */
+    private final boolean keepQualifier;
+
+    /**
+     * @param project
+     * @param holder        the expression of the object or the class holding the variable
+     * @param keepQualifier true to rewrite "obj.x" to "obj.holder.getx()", false to rewrite it to "holder.getx()"
+     */
+    public ReferenceRewriter(@NotNull Project project, @NotNull String holder, boolean keepQualifier) {
+        this.factory = JavaPsiFacade.getInstance(project).getElementFactory();
+        this.holder = holder;
+        this.keepQualifier = keepQualifier;
+    }
+
+    /**
+     * Classifies a reference by its position in the expression tree
+     *
+     * @param reference
+     * @return
+     */
+    public static Access classify(@NotNull PsiReferenceExpression reference) {
+        if (!PsiUtil.isAccessedForWriting(reference)) {
+            return Access.READ;
+        }
+        return PsiUtil.isAccessedForReading(reference) ? Access.COMPOUND : Access.WRITE;
+    }
+
+    /**
+     * Checks if a reference can be rewritten, a setter call has no value, so an assignment or an increment is only
+     * rewritten if its value is not used
+     *
+     * @param reference
+     * @return
+     */
+    public static boolean canRewrite(@NotNull PsiReferenceExpression reference) {
+        return classify(reference) == Access.READ || isStandaloneStatement(PsiUtil.skipParenthesizedExprUp(reference.getParent()));
+    }
+
+    /**
+     * Rewrites one reference to the given variable, other references like method references or javadoc links
+     * are skipped
+     *
+     * @param reference
+     * @param variableName the name used in the getter and setter names
+     * @return true if the reference has been rewritten
+     */
+    public boolean rewrite(@NotNull PsiReference reference, @NotNull String variableName) {
+        PsiElement element = reference.getElement();
+        if (!(element instanceof PsiReferenceExpression) || element instanceof PsiMethodReferenceExpression) {
+            PsiUtils.log(LOGGER_NAME, "skip unsupported reference: " + element.getText() + " in file " + element.getContainingFile().getName());
+            return false;
+        }
+        PsiReferenceExpression referenceExpression = (PsiReferenceExpression) element;
+        String target = getTarget(referenceExpression);
+        String getter = String.format(GETTER_TEMPLATE, target, variableName);
+        PsiElement parent = PsiUtil.skipParenthesizedExprUp(referenceExpression.getParent());
+
+        if (!canRewrite(referenceExpression)) {
+            PsiUtils.log(LOGGER_NAME, "skip assignment used as a value: " + parent.getText() + " in file " + element.getContainingFile().getName());
+            return false;
+        }
+
+        switch (classify(referenceExpression)) {
+            case WRITE: {
+                PsiExpression value = ((PsiAssignmentExpression) parent).getRExpression();
+                if (value == null) {
+                    return false;
+                }
+                parent.replace(createSetter(target, variableName, value.getText()));
+                return true;
+            }
+            case COMPOUND: {
+                String value;
+                if (parent instanceof PsiAssignmentExpression) {
+                    PsiAssignmentExpression assignment = (PsiAssignmentExpression) parent;
+                    if (assignment.getRExpression() == null) {
+                        return false;
+                    }
+                    String operator = assignment.getOperationSign().getText();
+                    value = getter + " " + operator.substring(0, operator.length() - 1) + " (" + assignment.getRExpression().getText() + ")";
+                } else {
+                    IElementType operation = ((PsiUnaryExpression) parent).getOperationTokenType();
+                    value = getter + (JavaTokenType.PLUSPLUS.equals(operation) ? " + 1" : " - 1");
+                }
+                // compound operations on narrow types contain an implicit cast
+                PsiType type = referenceExpression.getType();
+                if (PsiType.BYTE.equals(type) || PsiType.SHORT.equals(type) || PsiType.CHAR.equals(type)) {
+                    value = "(" + type.getCanonicalText() + ") (" + value + ")";
+                }
+                parent.replace(createSetter(target, variableName, value));
+                return true;
+            }
+            default:
+                referenceExpression.replace(factory.createExpressionFromText(getter, referenceExpression));
+                return true;
+        }
+    }
+
+    /**
+     * Checks if the value of an assignment or increment is not used, like in "x = 1;" or in the update of a for loop
+     */
+    private static boolean isStandaloneStatement(PsiElement expression) {
+        PsiElement parent = expression.getParent();
+        // "x = 1;" and the update of a for loop like "i++"
+        if (parent instanceof PsiExpressionStatement) {
+            return true;
+        }
+        // the updates of a for loop like "i++, j++"
+        return parent instanceof PsiExpressionList && parent.getParent() instanceof PsiExpressionListStatement;
+    }
+
+    private PsiExpression createSetter(String target, String variableName, String value) {
+        return factory.createExpressionFromText(String.format(SETTER_TEMPLATE, target, variableName, value), null);
+    }
+
+    /**
+     * Returns the expression of the holder as seen from the given reference
+     */
+    private String getTarget(PsiReferenceExpression reference) {
+        PsiExpression qualifier = reference.getQualifierExpression();
+        if (keepQualifier && qualifier != null && !(qualifier instanceof PsiThisExpression)) {
+            return qualifier.getText() + "." + holder;
+        }
+        return holder;
+    }
+}
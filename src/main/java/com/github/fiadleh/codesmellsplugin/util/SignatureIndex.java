@@ -0,0 +1,1311 @@
+package com.github.fiadleh.codesmellsplugin.util;
+
+import com.intellij.ide.highlighter.JavaFileType;
+import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.fileEditor.impl.LoadTextUtil;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleUtilCore;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.psi.*;
+import com.intellij.psi.search.FileTypeIndex;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.InheritanceUtil;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.concurrency.CancellablePromise;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The signatures of all fields and parameter lists of the project, stored per file with a hash of the file content.
+ * The data clumps inspection uses it to find the classes and methods sharing enough variables with the current one
+ * instead of comparing it with every class of the project.
+ * The index is saved in the IDE system directory when the project is closed, on the next start only the files
+ * whose content hash has changed are parsed again. The index holds the files of all open projects, every project
+ * loads, saves and forgets only the files of its own content.
+ *
+ * @author Firas Adleh
+ */
+public class SignatureIndex {
+    /**
+     * The signatures of every indexed file by its url
+     */
+    private static final Map<String, FileSignatures> signaturesPerFile = new ConcurrentHashMap<>();
+
+    /**
+     * Signatures loaded from disk which have not been checked against the current file content yet
+     */
+    private static final Map<String, FileSignatures> storedSignatures = new ConcurrentHashMap<>();
+
+    /**
+     * Classes by the id of each one of their field keys, partitioned by module name
+     */
+    private static final Map<String, Map<Integer, Set<ClassSignatures>>> classesPerField = new ConcurrentHashMap<>();
+
+    /**
+     * Methods by their sorted parameter ids, partitioned by module name
+     */
+    private static final Map<String, ParameterTrie> methodsPerParameters = new ConcurrentHashMap<>();
+
+    /**
+     * The urls of the files containing each field or parameter id, in all modules
+     */
+    private static final Map<Integer, Set<String>> filesPerSignature = new ConcurrentHashMap<>();
+
+    /**
+     * Partner files whose common fields have changed, highlighted again once the field clumps have been mined again
+     */
+    private static final Set<String> pendingFieldPartners = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The indexed classes by the qualified names of their super classes and interfaces, used to reset the
+     * super methods flags of the subclasses when the methods of a class change
+     */
+    private static final Map<String, Set<ClassSignatures>> subclassesPerSuper = new ConcurrentHashMap<>();
+
+    /**
+     * Name of the system property enabling the memory mapped signature store, for projects too large for the heap
+     */
+    public static final String OFF_HEAP_PROPERTY = "codesmells.signatures.offHeap";
+
+    /**
+     * The store of the signature keys and arrays, the index keeps only their ids and handles
+     */
+    private static StoreGeneration storeGeneration = new StoreGeneration(createStore());
+
+    /**
+     * A flag set once all project files have been indexed
+     */
+    private static volatile boolean isIndexReady = false;
+
+    /**
+     * Increased every time the fields of a class change, the mined field clumps are outdated then
+     */
+    private static volatile int fieldsVersion = 0;
+
+    /**
+     * A flag set once a warm up has been started, cleared when the index is reset
+     */
+    private static final AtomicBoolean isWarmUpStarted = new AtomicBoolean(false);
+
+    /**
+     * Increased by every reset, a warm up started before a reset stops without marking the index ready
+     */
+    private static volatile int generation = 0;
+
+    /**
+     * The location hashes of the projects whose stored signatures have been loaded from disk
+     */
+    private static final Set<String> loadedProjects = ConcurrentHashMap.newKeySet();
+
+    /**
+     * An identifier for index messages in log
+     */
+    private static final String LOGGER_NAME = SignatureIndex.class.getSimpleName();
+
+    private SignatureIndex() {
+    }
+
+    /**
+     * A signature store with the number of readers using it. Every entry keeps the generation it has been stored in,
+     * so the ids of two stores are never mixed, and a store replaced by a reset is disposed only after its last
+     * reader has released it. A disposed store returns empty results.
+     */
+    static final class StoreGeneration {
+        private final SignatureStore store;
+        private int readers = 0;
+        private boolean isRetired = false;
+        private boolean isDisposed = false;
+
+        private StoreGeneration(SignatureStore store) {
+            this.store = store;
+        }
+
+        private synchronized StoreGeneration acquire() {
+            readers++;
+            return this;
+        }
+
+        /**
+         * Ends a read started with SignatureIndex.acquireStore()
+         */
+        synchronized void release() {
+            readers--;
+            disposeIfUnused();
+        }
+
+        private synchronized void retire() {
+            isRetired = true;
+            disposeIfUnused();
+        }
+
+        private void disposeIfUnused() {
+            if (isRetired && readers <= 0 && !isDisposed) {
+                isDisposed = true;
+                store.dispose();
+            }
+        }
+
+        synchronized int intern(String signature) {
+            return isDisposed ? -1 : store.intern(signature);
+        }
+
+        synchronized int find(String signature) {
+            return isDisposed ? -1 : store.find(signature);
+        }
+
+        synchronized String getSignature(int id) {
+            return isDisposed || id < 0 ? null : store.getSignature(id);
+        }
+
+        synchronized int storeIds(int[] ids) {
+            return isDisposed ? -1 : store.storeIds(ids);
+        }
+
+        synchronized int[] loadIds(int handle) {
+            return isDisposed || handle < 0 ? new int[0] : store.loadIds(handle);
+        }
+    }
+
+    /**
+     * The signatures of one file and the hash of the content they were extracted from
+     */
+    static class FileSignatures {
+        final String url;
+        final long contentHash;
+        final List<ClassSignatures> classes;
+        final List<MethodSignatures> methods;
+
+        /**
+         * The store the entries of this file have been stored in
+         */
+        final StoreGeneration store;
+
+        /**
+         * The PSI modification stamp the hash was computed for, not stored on disk
+         */
+        volatile long modificationStamp = -1;
+
+        /**
+         * The module of the file, not stored on disk because modules may change between two starts
+         */
+        volatile String moduleName = "";
+
+        /**
+         * The module partition the entries of this file have been added to
+         */
+        String postedModuleName = null;
+
+        FileSignatures(StoreGeneration store, String url, long contentHash, List<ClassSignatures> classes, List<MethodSignatures> methods) {
+            this.store = store;
+            this.url = url;
+            this.contentHash = contentHash;
+            this.classes = classes;
+            this.methods = methods;
+        }
+    }
+
+    /**
+     * The field keys of one class
+     */
+    static class ClassSignatures {
+        final String fileUrl;
+        final String qualifiedName;
+
+        /**
+         * The qualified names of all super classes and interfaces except java.lang.Object
+         */
+        final List<String> superNames;
+        final StoreGeneration store;
+        private final int fieldsHandle;
+
+        ClassSignatures(StoreGeneration store, String fileUrl, String qualifiedName, List<String> fieldKeys, List<String> superNames) {
+            this.store = store;
+            this.fileUrl = fileUrl;
+            this.qualifiedName = qualifiedName;
+            this.superNames = superNames;
+            this.fieldsHandle = storeKeys(store, fieldKeys);
+        }
+
+        int[] getFieldIds() {
+            return store.loadIds(fieldsHandle);
+        }
+
+        List<String> getFieldKeys() {
+            return loadKeys(store, fieldsHandle);
+        }
+    }
+
+    /**
+     * The parameter keys of one method
+     */
+    static class MethodSignatures {
+        final ClassSignatures containingClass;
+        final String name;
+        final boolean hasOverrideAnnotation;
+
+        /**
+         * If the method overrides or implements another method, resolved when the file is parsed, null until it is
+         * resolved again for stored signatures or after a super class has changed
+         */
+        volatile Boolean hasSuperMethods;
+        private final int parametersHandle;
+
+        MethodSignatures(ClassSignatures containingClass, String name, List<String> parameterKeys, boolean hasOverrideAnnotation, Boolean hasSuperMethods) {
+            this.containingClass = containingClass;
+            this.name = name;
+            this.hasOverrideAnnotation = hasOverrideAnnotation;
+            this.hasSuperMethods = hasSuperMethods;
+            this.parametersHandle = storeKeys(containingClass.store, parameterKeys);
+        }
+
+        int[] getParameterIds() {
+            return containingClass.store.loadIds(parametersHandle);
+        }
+
+        List<String> getParameterKeys() {
+            return loadKeys(containingClass.store, parametersHandle);
+        }
+    }
+
+    private static SignatureStore createStore() {
+        if (Boolean.getBoolean(OFF_HEAP_PROPERTY)) {
+            try {
+                return new MappedSignatureStore();
+            } catch (IOException e) {
+                PsiUtils.log(LOGGER_NAME, "off heap signature store could not be created: " + e.getMessage());
+            }
+        }
+        return new HeapSignatureStore();
+    }
+
+    private static synchronized StoreGeneration getStore() {
+        return storeGeneration;
+    }
+
+    /**
+     * Returns the current store, it is not disposed by a reset until it is released
+     *
+     * @return
+     */
+    static synchronized StoreGeneration acquireStore() {
+        return storeGeneration.acquire();
+    }
+
+    private static int storeKeys(StoreGeneration store, List<String> keys) {
+        int[] ids = new int[keys.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = store.intern(keys.get(i));
+        }
+        return store.storeIds(ids);
+    }
+
+    private static List<String> loadKeys(StoreGeneration store, int handle) {
+        List<String> keys = new ArrayList<>();
+        for (int id : store.loadIds(handle)) {
+            String key = store.getSignature(id);
+            if (key != null) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+    public static boolean isIndexReady() {
+        return isIndexReady;
+    }
+
+    /**
+     * Returns the classes having at least the given number of fields in common with the given class,
+     * the given class itself is included if it has enough fields
+     *
+     * @param currentClass
+     * @param minCount
+     * @param moduleNames   the modules to be searched, or null to search all modules
+     * @return the candidate classes, or null if the index is not ready yet
+     */
+    public static List<PsiClass> findFieldsCandidates(PsiClass currentClass, int minCount, Set<String> moduleNames) {
+        if (!isIndexReady) {
+            startWarmUpIfNeeded(currentClass.getProject());
+            return null;
+        }
+        indexFile(currentClass.getContainingFile());
+
+        StoreGeneration store = acquireStore();
+        try {
+            Map<ClassSignatures, Integer> counts = new HashMap<>();
+            for (Map<Integer, Set<ClassSignatures>> postings : getPartitions(classesPerField, moduleNames)) {
+                for (PsiField field : currentClass.getFields()) {
+                    for (ClassSignatures c : postings.getOrDefault(store.find(createFieldKey(field)), Collections.emptySet())) {
+                        if (c.store == store) {
+                            counts.merge(c, 1, Integer::sum);
+                        }
+                    }
+                }
+            }
+
+            List<PsiClass> results = new ArrayList<>();
+            for (Map.Entry<ClassSignatures, Integer> entry : counts.entrySet()) {
+                if (entry.getValue() >= minCount) {
+                    PsiClass c = findClass(currentClass.getProject(), entry.getKey());
+                    if (c != null) {
+                        results.add(c);
+                    }
+                }
+            }
+            return results;
+        } finally {
+            store.release();
+        }
+    }
+
+    /**
+     * Returns the methods having at least the given number of parameters in common with the given parameter list,
+     * the method of the given list itself is included
+     *
+     * @param parameterList
+     * @param minCount
+     * @param moduleNames   the modules to be searched, or null to search all modules
+     * @return the candidate methods, or null if the index is not ready yet
+     */
+    public static List<PsiMethod> findParametersCandidates(PsiParameterList parameterList, int minCount, Set<String> moduleNames) {
+        if (!isIndexReady) {
+            startWarmUpIfNeeded(parameterList.getProject());
+            return null;
+        }
+        indexFile(parameterList.getContainingFile());
+
+        StoreGeneration store = acquireStore();
+        try {
+            PsiParameter[] parameters = parameterList.getParameters();
+            int[] parameterIds = new int[parameters.length];
+            for (int i = 0; i < parameters.length; i++) {
+                parameterIds[i] = store.find(createParameterKey(parameters[i]));
+            }
+            Map<MethodSignatures, Integer> counts = new HashMap<>();
+            for (ParameterTrie trie : getPartitions(methodsPerParameters, moduleNames)) {
+                trie.collect(parameterIds, minCount, counts);
+            }
+
+            List<PsiMethod> results = new ArrayList<>();
+            for (Map.Entry<MethodSignatures, Integer> entry : counts.entrySet()) {
+                if (entry.getValue() >= minCount && entry.getKey().containingClass.store == store) {
+                    PsiMethod method = findMethod(parameterList.getProject(), entry.getKey());
+                    if (method != null) {
+                        results.add(method);
+                    }
+                }
+            }
+            return results;
+        } finally {
+            store.release();
+        }
+    }
+
+    /**
+     * Returns the postings of the given modules
+     *
+     * @param postingsPerModule
+     * @param moduleNames       the module names, or null for all modules
+     * @return
+     */
+    private static <T> List<T> getPartitions(Map<String, T> postingsPerModule, Set<String> moduleNames) {
+        if (moduleNames == null) {
+            return new ArrayList<>(postingsPerModule.values());
+        }
+        List<T> partitions = new ArrayList<>();
+        for (String moduleName : moduleNames) {
+            T postings = postingsPerModule.get(moduleName);
+            if (postings != null) {
+                partitions.add(postings);
+            }
+        }
+        return partitions;
+    }
+
+    /**
+     * Starts loading the stored signatures and indexing the changed files in a background read action
+     *
+     * @param project
+     * @return the promise of the warm up, the index may still not be ready if it has been reset meanwhile
+     */
+    public static CancellablePromise<Void> warmUp(Project project) {
+        isWarmUpStarted.set(true);
+        int startGeneration = generation;
+        return ReadAction.nonBlocking(() -> ensureIndex(project, startGeneration))
+                .inSmartMode(project)
+                .expireWith(project)
+                .submit(AppExecutorUtil.getAppExecutorService());
+    }
+
+    /**
+     * Starts building the index again after it has been reset, tests use the index only when it is warmed up explicitly
+     *
+     * @param project
+     */
+    private static void startWarmUpIfNeeded(Project project) {
+        if (!ApplicationManager.getApplication().isUnitTestMode() && !isWarmUpStarted.get()) {
+            warmUp(project);
+        }
+    }
+
+    /**
+     * Indexes all project files, files whose content hash equals the stored one are not parsed.
+     * The files of the open editors are indexed first, if there are stored signatures the index is ready
+     * right after them and the stored signatures of the other files are used until these files are checked.
+     * Must be called in a read action.
+     *
+     * @param project
+     * @param startGeneration   the generation of the index when the warm up was started
+     */
+    private static void ensureIndex(Project project, int startGeneration) {
+        StoreGeneration store = acquireStore();
+        try {
+            ensureIndex(project, startGeneration, store);
+        } finally {
+            store.release();
+        }
+    }
+
+    private static void ensureIndex(Project project, int startGeneration, StoreGeneration store) {
+        long startTime = System.currentTimeMillis();
+        if (!loadedProjects.contains(project.getLocationHash())) {
+            Map<String, FileSignatures> loadedSignatures = SignatureIndexStorage.load(getStoragePath(project), store);
+            if (generation != startGeneration) {
+                return;
+            }
+            storedSignatures.putAll(loadedSignatures);
+            loadedProjects.add(project.getLocationHash());
+        }
+
+        int parsedFiles = 0;
+        boolean hasStoredSignatures = !storedSignatures.isEmpty();
+        Set<String> projectFiles = new HashSet<>();
+        PsiManager psiManager = PsiManager.getInstance(project);
+        WarmUpScheduler scheduler = new WarmUpScheduler(project,
+                FileTypeIndex.getFiles(JavaFileType.INSTANCE, DetectionExclusions.getDetectionScope(project)));
+        VirtualFile virtualFile;
+        while ((virtualFile = scheduler.poll()) != null) {
+            ProgressManager.checkCanceled();
+            if (generation != startGeneration) {
+                return;
+            }
+            // the files are returned by priority, so all open and recently edited files have been indexed
+            if (hasStoredSignatures && !isIndexReady && !scheduler.isPriorityFile(virtualFile)) {
+                addStoredSignatures(project);
+                isIndexReady = true;
+                PsiUtils.log(LOGGER_NAME, "ready with stored signatures, time=" + (System.currentTimeMillis() - startTime));
+            }
+            projectFiles.add(virtualFile.getUrl());
+            FileSignatures current = getFileSignatures(virtualFile.getUrl());
+            // only the signatures restored from disk are checked against the file content, the files indexed since
+            // the start are compared by their modification stamp
+            boolean isRestored = current != null && current.modificationStamp == -1;
+            if (isRestored && current.contentHash == hashText(loadText(virtualFile))) {
+                current.moduleName = getModuleName(project, virtualFile);
+                addFile(current);
+                continue;
+            }
+            PsiFile file = psiManager.findFile(virtualFile);
+            if (file != null) {
+                if (current == null || isRestored || current.modificationStamp != file.getModificationStamp()) {
+                    parsedFiles++;
+                }
+                indexFile(file);
+            }
+        }
+        // forget the files of this project deleted since the last index, the files of other projects are kept
+        storedSignatures.keySet().removeIf(url -> projectFiles.contains(url) || isDeletedOrInProject(project, url));
+        for (String url : new ArrayList<>(signaturesPerFile.keySet())) {
+            if (!projectFiles.contains(url) && isDeletedOrInProject(project, url)) {
+                removeFile(url);
+            }
+        }
+        if (generation != startGeneration) {
+            return;
+        }
+        isIndexReady = true;
+        PsiUtils.log(LOGGER_NAME, signaturesPerFile.size() + " files, " + parsedFiles + " parsed, time=" + (System.currentTimeMillis() - startTime));
+
+        save(project);
+    }
+
+    /**
+     * Adds the stored signatures of all files not indexed yet, they are replaced when their files are checked
+     *
+     * @param project
+     */
+    private static void addStoredSignatures(Project project) {
+        for (FileSignatures stored : new ArrayList<>(storedSignatures.values())) {
+            VirtualFile virtualFile = VirtualFileManager.getInstance().findFileByUrl(stored.url);
+            if (isInProject(project, virtualFile)) {
+                stored.moduleName = getModuleName(project, virtualFile);
+                addFile(stored);
+            }
+        }
+    }
+
+    /**
+     * Extracts the signatures of one file and replaces its old entries.
+     * Nothing is done if the file content has not changed since it was indexed.
+     *
+     * @param file
+     */
+    public static void indexFile(PsiFile file) {
+        VirtualFile virtualFile = file.getVirtualFile();
+        if (!(file instanceof PsiJavaFile) || virtualFile == null) {
+            return;
+        }
+        String url = virtualFile.getUrl();
+        if (DetectionExclusions.isExcluded(file.getProject(), virtualFile)) {
+            removeFile(url);
+            return;
+        }
+        FileSignatures current = getFileSignatures(url);
+        if (current != null && current.modificationStamp == file.getModificationStamp()) {
+            return;
+        }
+
+        long contentHash = hashText(file.getViewProvider().getContents());
+        if (current != null && current.contentHash == contentHash) {
+            current.modificationStamp = file.getModificationStamp();
+            current.moduleName = getModuleName(file.getProject(), virtualFile);
+            addFile(current);
+            return;
+        }
+
+        StoreGeneration store = acquireStore();
+        try {
+            indexFile(file, url, contentHash, current, store);
+        } finally {
+            store.release();
+        }
+    }
+
+    /**
+     * Extracts the signatures of a changed file into the given store
+     */
+    private static void indexFile(PsiFile file, String url, long contentHash, FileSignatures current, StoreGeneration store) {
+        VirtualFile virtualFile = file.getVirtualFile();
+        List<ClassSignatures> classes = new ArrayList<>();
+        List<MethodSignatures> methods = new ArrayList<>();
+        for (PsiClass c : FileFeatures.getInstance((PsiJavaFile) file).getClasses()) {
+            if (c.getQualifiedName() == null) {
+                continue;
+            }
+            List<String> fieldKeys = new ArrayList<>();
+            for (PsiField field : c.getFields()) {
+                fieldKeys.add(createFieldKey(field));
+            }
+            List<String> superNames = new ArrayList<>();
+            for (PsiClass superClass : InheritanceUtil.getSuperClasses(c)) {
+                if (superClass.getQualifiedName() != null && !CommonClassNames.JAVA_LANG_OBJECT.equals(superClass.getQualifiedName())) {
+                    superNames.add(superClass.getQualifiedName());
+                }
+            }
+            ClassSignatures classSignatures = new ClassSignatures(store, url, c.getQualifiedName(), fieldKeys, superNames);
+            classes.add(classSignatures);
+
+            for (PsiMethod method : c.getMethods()) {
+                List<String> parameterKeys = new ArrayList<>();
+                for (PsiParameter parameter : method.getParameterList().getParameters()) {
+                    parameterKeys.add(createParameterKey(parameter));
+                }
+                // the hierarchy is resolved once here instead of every time the method is a candidate
+                FileFeatures.MethodFeatures features = FileFeatures.getMethodFeatures(method);
+                methods.add(features != null
+                        ? new MethodSignatures(classSignatures, method.getName(), parameterKeys, features.hasOverrideAnnotation(), features.hasSuperMethods())
+                        : new MethodSignatures(classSignatures, method.getName(), parameterKeys,
+                        method.hasAnnotation(CommonClassNames.JAVA_LANG_OVERRIDE), method.findSuperMethods().length != 0));
+            }
+        }
+
+        FileSignatures signatures = new FileSignatures(store, url, contentHash, classes, methods);
+        signatures.modificationStamp = file.getModificationStamp();
+        signatures.moduleName = getModuleName(file.getProject(), virtualFile);
+        FileSignatures oldSignatures = signaturesPerFile.get(url);
+        if (!addFile(signatures)) {
+            return;
+        }
+        if (current != null) {
+            resetSubclassesFlags(current, signatures);
+        }
+        if (isIndexReady) {
+            restartChangedPartners(file.getProject(), oldSignatures, signatures);
+        }
+    }
+
+    /**
+     * The super methods of the subclasses of a class may change when the methods or the super classes of the class
+     * change, their flags are resolved again when they are used next time
+     *
+     * @param oldSignatures
+     * @param newSignatures
+     */
+    private static void resetSubclassesFlags(FileSignatures oldSignatures, FileSignatures newSignatures) {
+        Map<String, Long> oldFingerprints = getMethodsFingerprints(oldSignatures);
+        Map<String, Long> newFingerprints = getMethodsFingerprints(newSignatures);
+        Set<String> changedClasses = new HashSet<>(oldFingerprints.keySet());
+        changedClasses.addAll(newFingerprints.keySet());
+        changedClasses.removeIf(name -> Objects.equals(oldFingerprints.get(name), newFingerprints.get(name)));
+
+        for (String name : changedClasses) {
+            for (ClassSignatures subclass : subclassesPerSuper.getOrDefault(name, Collections.emptySet())) {
+                FileSignatures subclassSignatures = getFileSignatures(subclass.fileUrl);
+                if (subclassSignatures == null) {
+                    continue;
+                }
+                for (MethodSignatures m : subclassSignatures.methods) {
+                    if (m.containingClass == subclass) {
+                        m.hasSuperMethods = null;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * A hash of the super classes and the method signatures of every class of a file
+     */
+    private static Map<String, Long> getMethodsFingerprints(FileSignatures signatures) {
+        Map<String, Long> fingerprints = new HashMap<>();
+        for (ClassSignatures c : signatures.classes) {
+            fingerprints.put(c.qualifiedName, (long) c.superNames.hashCode());
+        }
+        for (MethodSignatures m : signatures.methods) {
+            long fingerprint = fingerprints.getOrDefault(m.containingClass.qualifiedName, 1L);
+            fingerprint = 31 * fingerprint + m.name.hashCode();
+            fingerprint = 31 * fingerprint + Arrays.hashCode(m.getParameterIds());
+            fingerprints.put(m.containingClass.qualifiedName, fingerprint);
+        }
+        return fingerprints;
+    }
+
+    /**
+     * Checks if the given method is marked with @Override or, if checkSuperMethods is true, overrides or implements
+     * another method. The flags are read from the index, so the hierarchy is not resolved again for every check.
+     *
+     * @param method
+     * @param checkSuperMethods
+     * @return
+     */
+    public static boolean isOverriding(PsiMethod method, boolean checkSuperMethods) {
+        MethodSignatures signatures = findMethodSignatures(method);
+        if (signatures == null) {
+            return method.hasAnnotation(CommonClassNames.JAVA_LANG_OVERRIDE) || (checkSuperMethods && FileFeatures.hasSuperMethods(method));
+        }
+        if (signatures.hasOverrideAnnotation || !checkSuperMethods) {
+            return signatures.hasOverrideAnnotation;
+        }
+        Boolean result = signatures.hasSuperMethods;
+        if (result == null) {
+            result = FileFeatures.hasSuperMethods(method);
+            signatures.hasSuperMethods = result;
+        }
+        return result;
+    }
+
+    /**
+     * Finds the index entry of a method by its class, name and parameters, after indexing its file if it has changed
+     *
+     * @param method
+     * @return the entry, or null if the index is not ready or the method is not indexed
+     */
+    private static MethodSignatures findMethodSignatures(PsiMethod method) {
+        PsiClass containingClass = method.getContainingClass();
+        PsiFile file = method.getContainingFile();
+        if (!isIndexReady || containingClass == null || containingClass.getQualifiedName() == null || file == null || file.getVirtualFile() == null) {
+            return null;
+        }
+        indexFile(file);
+        FileSignatures signatures = signaturesPerFile.get(file.getVirtualFile().getUrl());
+        if (signatures == null) {
+            return null;
+        }
+        PsiParameter[] parameters = method.getParameterList().getParameters();
+        int[] parameterIds = null;
+        for (MethodSignatures m : signatures.methods) {
+            if (!m.name.equals(method.getName()) || !m.containingClass.qualifiedName.equals(containingClass.getQualifiedName())) {
+                continue;
+            }
+            int[] ids = m.getParameterIds();
+            if (ids.length != parameters.length) {
+                continue;
+            }
+            if (parameterIds == null) {
+                parameterIds = new int[parameters.length];
+                for (int i = 0; i < parameters.length; i++) {
+                    parameterIds[i] = signatures.store.find(createParameterKey(parameters[i]));
+                }
+            }
+            if (Arrays.equals(ids, parameterIds)) {
+                return m;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Highlights again the files whose number of common fields or parameters with the changed file has changed.
+     * The partners are found through the ids added or removed by the change, a partner is only highlighted again
+     * if the number of common variables of one of its classes or methods has changed and is at least
+     * MIN_STORED_COUNT before or after the change, other partners cannot have a different data clump.
+     *
+     * @param project
+     * @param oldSignatures the signatures before the change, null if the file was not indexed
+     * @param newSignatures
+     */
+    private static void restartChangedPartners(Project project, FileSignatures oldSignatures, FileSignatures newSignatures) {
+        Map<String, int[]> oldFieldIds = getFieldIdsPerClass(oldSignatures);
+        Map<String, int[]> newFieldIds = getFieldIdsPerClass(newSignatures);
+        Set<String> fieldPartners = new HashSet<>();
+        collectChangedPartners(newSignatures.url, oldFieldIds, newFieldIds, true, fieldPartners);
+        Set<String> parameterPartners = new HashSet<>();
+        collectChangedPartners(newSignatures.url, getParameterIdsPerMethod(oldSignatures), getParameterIdsPerMethod(newSignatures), false, parameterPartners);
+
+        // the mined field clumps are outdated until the next mining, the field partners are highlighted again after it too
+        pendingFieldPartners.addAll(fieldPartners);
+        if (!isSameIds(oldFieldIds, newFieldIds)) {
+            // the changed file itself has been highlighted with the old clumps, a new clump of it is found by the next mining
+            pendingFieldPartners.add(newSignatures.url);
+        }
+        parameterPartners.addAll(fieldPartners);
+        restartFiles(project, parameterPartners);
+    }
+
+    private static boolean isSameIds(Map<String, int[]> ids1, Map<String, int[]> ids2) {
+        if (!ids1.keySet().equals(ids2.keySet())) {
+            return false;
+        }
+        for (Map.Entry<String, int[]> entry : ids1.entrySet()) {
+            if (!Arrays.equals(entry.getValue(), ids2.get(entry.getKey()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Highlights again the partner files of the field changes since the last mining of field clumps
+     *
+     * @param project
+     */
+    static void restartMinedPartners(Project project) {
+        Set<String> urls = new HashSet<>(pendingFieldPartners);
+        pendingFieldPartners.removeAll(urls);
+        restartFiles(project, urls);
+    }
+
+    private static void restartFiles(Project project, Set<String> urls) {
+        if (urls.isEmpty()) {
+            return;
+        }
+        ApplicationManager.getApplication().invokeLater(() -> {
+            DaemonCodeAnalyzer daemonCodeAnalyzer = DaemonCodeAnalyzer.getInstance(project);
+            PsiManager psiManager = PsiManager.getInstance(project);
+            for (String url : urls) {
+                VirtualFile virtualFile = VirtualFileManager.getInstance().findFileByUrl(url);
+                PsiFile file = virtualFile == null || !virtualFile.isValid() ? null : psiManager.findFile(virtualFile);
+                if (file != null) {
+                    daemonCodeAnalyzer.restart(file);
+                }
+            }
+        }, project.getDisposed());
+    }
+
+    /**
+     * Adds to the results the files having a class or method whose number of common variables with the changed
+     * class or method has changed
+     *
+     * @param url      the changed file
+     * @param oldIds   the sorted ids by class or method before the change
+     * @param newIds   the sorted ids by class or method after the change
+     * @param isFields true to compare with the classes of the partner files, false for their methods
+     * @param results
+     */
+    private static void collectChangedPartners(String url, Map<String, int[]> oldIds, Map<String, int[]> newIds,
+                                               boolean isFields, Set<String> results) {
+        Set<String> keys = new HashSet<>(oldIds.keySet());
+        keys.addAll(newIds.keySet());
+        for (String key : keys) {
+            int[] oldSet = oldIds.getOrDefault(key, new int[0]);
+            int[] newSet = newIds.getOrDefault(key, new int[0]);
+            if (Arrays.equals(oldSet, newSet)) {
+                continue;
+            }
+            Set<String> candidates = new HashSet<>();
+            addFilesOfMissingIds(oldSet, newSet, candidates);
+            addFilesOfMissingIds(newSet, oldSet, candidates);
+            candidates.remove(url);
+            candidates.removeAll(results);
+            for (String candidate : candidates) {
+                FileSignatures partner = signaturesPerFile.get(candidate);
+                if (partner != null && isOverlapChanged(partner, oldSet, newSet, isFields)) {
+                    results.add(candidate);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the files of the ids of the first set missing in the second one
+     */
+    private static void addFilesOfMissingIds(int[] sortedIds, int[] otherSortedIds, Set<String> results) {
+        for (int id : sortedIds) {
+            if (Arrays.binarySearch(otherSortedIds, id) < 0) {
+                results.addAll(filesPerSignature.getOrDefault(id, Collections.emptySet()));
+            }
+        }
+    }
+
+    private static boolean isOverlapChanged(FileSignatures partner, int[] oldSet, int[] newSet, boolean isFields) {
+        if (isFields) {
+            for (ClassSignatures c : partner.classes) {
+                if (isOverlapChanged(toSortedSet(c.getFieldIds()), oldSet, newSet)) {
+                    return true;
+                }
+            }
+        } else {
+            for (MethodSignatures m : partner.methods) {
+                if (isOverlapChanged(toSortedSet(m.getParameterIds()), oldSet, newSet)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isOverlapChanged(int[] partnerSet, int[] oldSet, int[] newSet) {
+        int oldCount = countCommon(partnerSet, oldSet);
+        int newCount = countCommon(partnerSet, newSet);
+        return oldCount != newCount && Math.max(oldCount, newCount) >= OverlapCache.MIN_STORED_COUNT;
+    }
+
+    private static int countCommon(int[] sorted1, int[] sorted2) {
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < sorted1.length && j < sorted2.length) {
+            if (sorted1[i] < sorted2[j]) {
+                i++;
+            } else if (sorted1[i] > sorted2[j]) {
+                j++;
+            } else {
+                count++;
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    private static Map<String, int[]> getFieldIdsPerClass(FileSignatures signatures) {
+        Map<String, int[]> results = new HashMap<>();
+        if (signatures != null) {
+            for (ClassSignatures c : signatures.classes) {
+                results.put(c.qualifiedName, toSortedSet(c.getFieldIds()));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Returns the sorted parameter ids by method, overloaded methods are told apart by their position
+     */
+    private static Map<String, int[]> getParameterIdsPerMethod(FileSignatures signatures) {
+        Map<String, int[]> results = new HashMap<>();
+        if (signatures != null) {
+            for (MethodSignatures m : signatures.methods) {
+                String key = m.containingClass.qualifiedName + "#" + m.name + "#";
+                int position = 0;
+                while (results.containsKey(key + position)) {
+                    position++;
+                }
+                results.put(key + position, toSortedSet(m.getParameterIds()));
+            }
+        }
+        return results;
+    }
+
+    private static int[] toSortedSet(int[] ids) {
+        return Arrays.stream(ids).filter(id -> id >= 0).distinct().sorted().toArray();
+    }
+
+    /**
+     * Puts the signatures of a file in the index and replaces the entries of its previous version
+     *
+     * @param signatures
+     * @return false if the signatures have been stored before the last reset and are ignored
+     */
+    private static synchronized boolean addFile(FileSignatures signatures) {
+        if (signatures.store != storeGeneration) {
+            return false;
+        }
+        storedSignatures.remove(signatures.url);
+        FileSignatures oldSignatures = signaturesPerFile.put(signatures.url, signatures);
+        if (oldSignatures == signatures && signatures.moduleName.equals(signatures.postedModuleName)) {
+            return true;
+        }
+        if (oldSignatures != null) {
+            removeFromPostings(oldSignatures);
+        }
+        if (oldSignatures == null || getFieldsFingerprint(oldSignatures) != getFieldsFingerprint(signatures)) {
+            fieldsVersion++;
+        }
+        signatures.postedModuleName = signatures.moduleName;
+
+        Map<Integer, Set<ClassSignatures>> classPostings = classesPerField.computeIfAbsent(signatures.moduleName, k -> new ConcurrentHashMap<>());
+        for (ClassSignatures c : signatures.classes) {
+            for (int id : c.getFieldIds()) {
+                classPostings.computeIfAbsent(id, k -> ConcurrentHashMap.newKeySet()).add(c);
+                filesPerSignature.computeIfAbsent(id, k -> ConcurrentHashMap.newKeySet()).add(signatures.url);
+            }
+            for (String superName : c.superNames) {
+                subclassesPerSuper.computeIfAbsent(superName, k -> ConcurrentHashMap.newKeySet()).add(c);
+            }
+        }
+        ParameterTrie methodsTrie = methodsPerParameters.computeIfAbsent(signatures.moduleName, k -> new ParameterTrie());
+        for (MethodSignatures m : signatures.methods) {
+            int[] parameterIds = m.getParameterIds();
+            methodsTrie.add(parameterIds, m);
+            for (int id : parameterIds) {
+                filesPerSignature.computeIfAbsent(id, k -> ConcurrentHashMap.newKeySet()).add(signatures.url);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes a deleted or moved file, or all files of a deleted or moved directory, from the index
+     *
+     * @param fileOrDirectory
+     */
+    public static synchronized void removeFiles(VirtualFile fileOrDirectory) {
+        String url = fileOrDirectory.getUrl();
+        for (String indexedUrl : new ArrayList<>(signaturesPerFile.keySet())) {
+            if (indexedUrl.equals(url) || indexedUrl.startsWith(url + "/")) {
+                removeFile(indexedUrl);
+            }
+        }
+        storedSignatures.keySet().removeIf(storedUrl -> storedUrl.equals(url) || storedUrl.startsWith(url + "/"));
+    }
+
+    /**
+     * Removes a file and its entries from the index
+     *
+     * @param url
+     */
+    private static synchronized void removeFile(String url) {
+        FileSignatures oldSignatures = signaturesPerFile.remove(url);
+        if (oldSignatures != null) {
+            removeFromPostings(oldSignatures);
+            fieldsVersion++;
+        }
+    }
+
+    /**
+     * A hash of the classes and field keys of a file, used to know if the fields have changed
+     */
+    private static long getFieldsFingerprint(FileSignatures signatures) {
+        long fingerprint = 1;
+        for (ClassSignatures c : signatures.classes) {
+            fingerprint = 31 * fingerprint + c.qualifiedName.hashCode();
+            fingerprint = 31 * fingerprint + Arrays.hashCode(c.getFieldIds());
+        }
+        return fingerprint;
+    }
+
+    static int getFieldsVersion() {
+        return fieldsVersion;
+    }
+
+    /**
+     * Returns the classes of all indexed files
+     *
+     * @return
+     */
+    static List<ClassSignatures> getAllClassSignatures() {
+        List<ClassSignatures> results = new ArrayList<>();
+        for (FileSignatures signatures : signaturesPerFile.values()) {
+            results.addAll(signatures.classes);
+        }
+        return results;
+    }
+
+    /**
+     * Returns the index entry of the given class, after indexing its file if it has changed
+     *
+     * @param currentClass
+     * @return the entry or null if the class is not indexed
+     */
+    static ClassSignatures getClassSignatures(PsiClass currentClass) {
+        VirtualFile virtualFile = currentClass.getContainingFile().getVirtualFile();
+        if (virtualFile == null) {
+            return null;
+        }
+        indexFile(currentClass.getContainingFile());
+        FileSignatures signatures = signaturesPerFile.get(virtualFile.getUrl());
+        if (signatures != null) {
+            for (ClassSignatures c : signatures.classes) {
+                if (c.qualifiedName.equals(currentClass.getQualifiedName())) {
+                    return c;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the module name of the file declaring the given class
+     *
+     * @param classSignatures
+     * @return
+     */
+    static String getModuleName(ClassSignatures classSignatures) {
+        FileSignatures signatures = signaturesPerFile.get(classSignatures.fileUrl);
+        return signatures == null ? "" : signatures.moduleName;
+    }
+
+    /**
+     * Returns the id of a field key, or -1 if no indexed field has this key
+     *
+     * @param field
+     * @return
+     */
+    static int findFieldId(PsiField field) {
+        return getStore().find(createFieldKey(field));
+    }
+
+    /**
+     * Counts the common fields of the given class with every other class sharing a field with it, in all modules
+     *
+     * @param classSignatures
+     * @return the common fields count by class
+     */
+    static Map<ClassSignatures, Integer> countCommonFields(ClassSignatures classSignatures) {
+        Map<ClassSignatures, Integer> counts = new HashMap<>();
+        int[] fieldIds = toSortedSet(classSignatures.getFieldIds());
+        for (Map<Integer, Set<ClassSignatures>> postings : classesPerField.values()) {
+            for (int id : fieldIds) {
+                for (ClassSignatures c : postings.getOrDefault(id, Collections.emptySet())) {
+                    if (c != classSignatures) {
+                        counts.merge(c, 1, Integer::sum);
+                    }
+                }
+            }
+        }
+        return counts;
+    }
+
+    static String getSignature(int id) {
+        return getStore().getSignature(id);
+    }
+
+    private static void removeFromPostings(FileSignatures signatures) {
+        if (signatures.postedModuleName == null) {
+            return;
+        }
+        Map<Integer, Set<ClassSignatures>> classPostings = classesPerField.getOrDefault(signatures.postedModuleName, Collections.emptyMap());
+        for (ClassSignatures c : signatures.classes) {
+            for (int id : c.getFieldIds()) {
+                removeFromPostings(classPostings, id, c);
+                removeFromPostings(filesPerSignature, id, signatures.url);
+            }
+            for (String superName : c.superNames) {
+                removeFromPostings(subclassesPerSuper, superName, c);
+            }
+        }
+        ParameterTrie methodsTrie = methodsPerParameters.get(signatures.postedModuleName);
+        for (MethodSignatures m : signatures.methods) {
+            int[] parameterIds = m.getParameterIds();
+            if (methodsTrie != null) {
+                methodsTrie.remove(parameterIds, m);
+            }
+            for (int id : parameterIds) {
+                removeFromPostings(filesPerSignature, id, signatures.url);
+            }
+        }
+    }
+
+    private static <K, T> void removeFromPostings(Map<K, Set<T>> postings, K key, T value) {
+        Set<T> values = postings.get(key);
+        if (values != null) {
+            values.remove(value);
+            if (values.isEmpty()) {
+                postings.remove(key, values);
+            }
+        }
+    }
+
+    private static String getModuleName(Project project, VirtualFile virtualFile) {
+        Module module = ModuleUtilCore.findModuleForFile(virtualFile, project);
+        return module == null ? "" : module.getName();
+    }
+
+    private static FileSignatures getFileSignatures(String url) {
+        FileSignatures signatures = signaturesPerFile.get(url);
+        return signatures != null ? signatures : storedSignatures.get(url);
+    }
+
+    /**
+     * Finds the class of an index entry, the qualified name is checked with the file to support duplicated names
+     *
+     * @param project
+     * @param classSignatures
+     * @return
+     */
+    static PsiClass findClass(Project project, ClassSignatures classSignatures) {
+        for (PsiClass c : JavaPsiFacade.getInstance(project).findClasses(classSignatures.qualifiedName, GlobalSearchScope.projectScope(project))) {
+            VirtualFile virtualFile = c.getContainingFile().getVirtualFile();
+            if (c.isValid() && virtualFile != null && virtualFile.getUrl().equals(classSignatures.fileUrl)) {
+                return c;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the method of an index entry by its name and parameters
+     *
+     * @param project
+     * @param methodSignatures
+     * @return
+     */
+    private static PsiMethod findMethod(Project project, MethodSignatures methodSignatures) {
+        PsiClass c = findClass(project, methodSignatures.containingClass);
+        if (c == null) {
+            return null;
+        }
+        for (PsiMethod method : c.findMethodsByName(methodSignatures.name, false)) {
+            PsiParameter[] parameters = method.getParameterList().getParameters();
+            int[] parameterIds = methodSignatures.getParameterIds();
+            if (parameters.length != parameterIds.length) {
+                continue;
+            }
+            boolean isSameMethod = true;
+            for (int i = 0; i < parameters.length && isSameMethod; i++) {
+                isSameMethod = methodSignatures.containingClass.store.find(createParameterKey(parameters[i])) == parameterIds[i];
+            }
+            if (isSameMethod) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Key of a field, fields are equal when modifiers, type and name are equal ignoring the case
+     *
+     * @param field
+     * @return
+     */
+    public static String createFieldKey(PsiField field) {
+        PsiModifierList modifierList = field.getModifierList();
+        return ((modifierList == null ? "" : modifierList.getText()) + " " + field.getType() + " " + field.getName()).toLowerCase();
+    }
+
+    /**
+     * Key of a parameter, parameters are equal when their texts are equal ignoring the case
+     *
+     * @param parameter
+     * @return
+     */
+    public static String createParameterKey(PsiParameter parameter) {
+        return parameter.getText().toLowerCase();
+    }
+
+    private static CharSequence loadText(VirtualFile virtualFile) {
+        // unsaved changes are part of the content the PSI is built from
+        Document document = FileDocumentManager.getInstance().getCachedDocument(virtualFile);
+        return document != null ? document.getImmutableCharSequence() : LoadTextUtil.loadText(virtualFile);
+    }
+
+    /**
+     * 64 bit FNV-1a hash of a file content
+     *
+     * @param text
+     * @return
+     */
+    static long hashText(CharSequence text) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < text.length(); i++) {
+            hash ^= text.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static boolean isInProject(Project project, VirtualFile virtualFile) {
+        return virtualFile != null && ProjectFileIndex.getInstance(project).isInContent(virtualFile);
+    }
+
+    private static boolean isDeletedOrInProject(Project project, String url) {
+        VirtualFile virtualFile = VirtualFileManager.getInstance().findFileByUrl(url);
+        return virtualFile == null || isInProject(project, virtualFile);
+    }
+
+    private static Path getStoragePath(Project project) {
+        return Paths.get(PathManager.getSystemPath(), "codesmells", project.getLocationHash(), "signatures.dat");
+    }
+
+    /**
+     * Writes the signatures of all indexed files of the given project to its directory in the IDE system directory
+     *
+     * @param project
+     */
+    public static void save(Project project) {
+        if (!isIndexReady) {
+            return;
+        }
+        StoreGeneration store = acquireStore();
+        try {
+            List<FileSignatures> projectSignatures = ReadAction.compute(() -> {
+                List<FileSignatures> results = new ArrayList<>();
+                for (FileSignatures signatures : signaturesPerFile.values()) {
+                    if (isInProject(project, VirtualFileManager.getInstance().findFileByUrl(signatures.url))) {
+                        results.add(signatures);
+                    }
+                }
+                return results;
+            });
+            SignatureIndexStorage.save(getStoragePath(project), projectSignatures);
+        } finally {
+            store.release();
+        }
+    }
+
+    /**
+     * Removes all entries to build the index from scratch, the stored signatures are loaded again.
+     * The old store is disposed once the readers still using it have released it.
+     */
+    public static synchronized void reset() {
+        signaturesPerFile.clear();
+        storedSignatures.clear();
+        classesPerField.clear();
+        methodsPerParameters.clear();
+        filesPerSignature.clear();
+        pendingFieldPartners.clear();
+        subclassesPerSuper.clear();
+        StoreGeneration oldStore = storeGeneration;
+        storeGeneration = new StoreGeneration(createStore());
+        oldStore.retire();
+        isIndexReady = false;
+        loadedProjects.clear();
+        isWarmUpStarted.set(false);
+        generation++;
+        fieldsVersion++;
+    }
+}
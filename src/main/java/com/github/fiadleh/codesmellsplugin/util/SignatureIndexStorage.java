@@ -0,0 +1,134 @@
+package com.github.fiadleh.codesmellsplugin.util;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Reads and writes the signature index file. The file starts with a format version, a file of another version
+ * is ignored and the index is built from scratch.
+ *
+ * @author Firas Adleh
+ */
+class SignatureIndexStorage {
+    /**
+     * Must be increased every time the format or the keys of the index change
+     */
+    private static final int VERSION = 2;
+
+    private static final String LOGGER_NAME = SignatureIndexStorage.class.getSimpleName();
+
+    private SignatureIndexStorage() {
+    }
+
+    /**
+     * Reads the stored signatures of all files
+     *
+     * @param path
+     * @param store the store the loaded signatures are added to
+     * @return the signatures by file url, empty if there is no valid stored index
+     */
+    static Map<String, SignatureIndex.FileSignatures> load(Path path, SignatureIndex.StoreGeneration store) {
+        Map<String, SignatureIndex.FileSignatures> results = new HashMap<>();
+        if (!Files.exists(path)) {
+            return results;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != VERSION) {
+                return results;
+            }
+            int filesCount = in.readInt();
+            for (int i = 0; i < filesCount; i++) {
+                SignatureIndex.FileSignatures signatures = readFile(in, store);
+                results.put(signatures.url, signatures);
+            }
+        } catch (IOException e) {
+            PsiUtils.log(LOGGER_NAME, "signature index could not be read: " + e.getMessage());
+            results.clear();
+        }
+        return results;
+    }
+
+    private static SignatureIndex.FileSignatures readFile(DataInputStream in, SignatureIndex.StoreGeneration store) throws IOException {
+        String url = in.readUTF();
+        long contentHash = in.readLong();
+
+        List<SignatureIndex.ClassSignatures> classes = new ArrayList<>();
+        int classesCount = in.readInt();
+        for (int i = 0; i < classesCount; i++) {
+            classes.add(new SignatureIndex.ClassSignatures(store, url, in.readUTF(), readStrings(in), readStrings(in)));
+        }
+
+        List<SignatureIndex.MethodSignatures> methods = new ArrayList<>();
+        int methodsCount = in.readInt();
+        for (int i = 0; i < methodsCount; i++) {
+            SignatureIndex.ClassSignatures containingClass = classes.get(in.readInt());
+            String name = in.readUTF();
+            boolean hasOverrideAnnotation = in.readBoolean();
+            // the super methods depend on other files, they are resolved again when they are used
+            methods.add(new SignatureIndex.MethodSignatures(containingClass, name, readStrings(in), hasOverrideAnnotation, null));
+        }
+        return new SignatureIndex.FileSignatures(store, url, contentHash, classes, methods);
+    }
+
+    /**
+     * Writes the signatures of all files, the old file is replaced only after the new one is complete
+     *
+     * @param path
+     * @param files
+     */
+    static void save(Path path, Collection<SignatureIndex.FileSignatures> files) {
+        Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(path.getParent());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+                out.writeInt(VERSION);
+                out.writeInt(files.size());
+                for (SignatureIndex.FileSignatures signatures : files) {
+                    writeFile(out, signatures);
+                }
+            }
+            Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            PsiUtils.log(LOGGER_NAME, "signature index could not be saved: " + e.getMessage());
+        }
+    }
+
+    private static void writeFile(DataOutputStream out, SignatureIndex.FileSignatures signatures) throws IOException {
+        out.writeUTF(signatures.url);
+        out.writeLong(signatures.contentHash);
+
+        out.writeInt(signatures.classes.size());
+        for (SignatureIndex.ClassSignatures c : signatures.classes) {
+            out.writeUTF(c.qualifiedName);
+            writeStrings(out, c.getFieldKeys());
+            writeStrings(out, c.superNames);
+        }
+
+        out.writeInt(signatures.methods.size());
+        for (SignatureIndex.MethodSignatures m : signatures.methods) {
+            out.writeInt(signatures.classes.indexOf(m.containingClass));
+            out.writeUTF(m.name);
+            out.writeBoolean(m.hasOverrideAnnotation);
+            writeStrings(out, m.getParameterKeys());
+        }
+    }
+
+    private static List<String> readStrings(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<String> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            results.add(in.readUTF());
+        }
+        return results;
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> strings) throws IOException {
+        out.writeInt(strings.size());
+        for (String s : strings) {
+            out.writeUTF(s);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.github.fiadleh.codesmellsplugin.util;
+
+/**
+ * Storage of the signature strings and the signature arrays of the signature index.
+ * Every distinct signature gets an integer id and every stored array an integer handle,
+ * so the index itself keeps only integers.
+ *
+ * @author Firas Adleh
+ */
+interface SignatureStore {
+    /**
+     * Returns the id of the given signature, the signature is added if it is not stored yet
+     *
+     * @param signature
+     * @return
+     */
+    int intern(String signature);
+
+    /**
+     * Returns the id of the given signature without adding it
+     *
+     * @param signature
+     * @return the id or -1 if the signature is not stored
+     */
+    int find(String signature);
+
+    /**
+     * Returns the signature of the given id
+     *
+     * @param id
+     * @return
+     */
+    String getSignature(int id);
+
+    /**
+     * Stores an array of signature ids
+     *
+     * @param ids
+     * @return a handle to load the array again
+     */
+    int storeIds(int[] ids);
+
+    /**
+     * Loads a stored array of signature ids
+     *
+     * @param handle
+     * @return
+     */
+    int[] loadIds(int handle);
+
+    /**
+     * Releases all stored data
+     */
+    void dispose();
+}
@@ -0,0 +1,77 @@
+package com.github.fiadleh.codesmellsplugin.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * The N greatest elements offered so far. The smallest kept element is at the head of a heap,
+ * so offering an element costs log(N) and the list never holds more than N elements.
+ *
+ * @author Firas Adleh
+ */
+public class TopNList<T> {
+    private final int maxSize;
+    private final Comparator<? super T> comparator;
+    private final PriorityQueue<T> heap;
+
+    /**
+     * @param maxSize    the number of kept elements
+     * @param comparator orders the elements from the smallest to the greatest
+     */
+    public TopNList(int maxSize, Comparator<? super T> comparator) {
+        this.maxSize = Math.max(1, maxSize);
+        this.comparator = comparator;
+        this.heap = new PriorityQueue<>(this.maxSize, comparator);
+    }
+
+    /**
+     * Adds the element if the list is not full or if it is greater than the smallest kept element
+     *
+     * @param element
+     * @return true if the element has been added
+     */
+    public boolean offer(T element) {
+        if (heap.size() < maxSize) {
+            heap.add(element);
+            return true;
+        }
+        if (comparator.compare(element, heap.peek()) <= 0) {
+            return false;
+        }
+        heap.poll();
+        heap.add(element);
+        return true;
+    }
+
+    /**
+     * Removes a kept element. The list then misses an element which may be greater than
+     * all elements not kept, the caller offers all elements again if it needs the exact top N.
+     *
+     * @param element
+     * @return true if the element was kept
+     */
+    public boolean remove(T element) {
+        return heap.remove(element);
+    }
+
+    public void clear() {
+        heap.clear();
+    }
+
+    public int size() {
+        return heap.size();
+    }
+
+    /**
+     * Returns the kept elements from the greatest to the smallest
+     *
+     * @return
+     */
+    public List<T> getSorted() {
+        List<T> results = new ArrayList<>(heap);
+        results.sort(comparator.reversed());
+        return results;
+    }
+}
@@ -0,0 +1,128 @@
+package com.github.fiadleh.codesmellsplugin.util;
+
+import com.intellij.openapi.fileEditor.FileEditorManager;
+import com.intellij.openapi.fileEditor.ex.IdeDocumentHistory;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.vfs.VirtualFile;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Orders the files of a warm up so that the files the developer is looking at are indexed first.
+ * The files of the open editors come first, then the recently edited files, then the other files of their
+ * modules and then all other files. The remaining files are ordered again every time the editor tabs change.
+ * Must be used in a read action.
+ *
+ * @author Firas Adleh
+ */
+public class WarmUpScheduler {
+    private static final int OPEN_EDITORS = 0;
+    private static final int RECENTLY_EDITED = 1;
+    private static final int SAME_MODULES = 2;
+    private static final int OTHERS = 3;
+
+    /**
+     * Increased every time the editor tabs change, the remaining files are ordered again when it has changed
+     */
+    private static final AtomicInteger prioritiesVersion = new AtomicInteger(0);
+
+    private final Project project;
+    private final Set<VirtualFile> remainingFiles;
+
+    /**
+     * The position of every file in the given order, it breaks the ties between files of the same priority
+     */
+    private final Map<VirtualFile, Integer> positions = new HashMap<>();
+
+    private PriorityQueue<VirtualFile> queue = null;
+    private Map<VirtualFile, Integer> priorities = Collections.emptyMap();
+    private int queueVersion = -1;
+
+    WarmUpScheduler(Project project, Collection<VirtualFile> files) {
+        this.project = project;
+        this.remainingFiles = new LinkedHashSet<>(files);
+        for (VirtualFile file : remainingFiles) {
+            positions.put(file, positions.size());
+        }
+    }
+
+    /**
+     * Called when the editor tabs change, the running warm ups order their remaining files again
+     */
+    public static void reprioritize() {
+        prioritiesVersion.incrementAndGet();
+    }
+
+    /**
+     * Returns the next file to be indexed
+     *
+     * @return the file, or null if all files have been returned
+     */
+    VirtualFile poll() {
+        if (queue == null || queueVersion != prioritiesVersion.get()) {
+            createQueue();
+        }
+        VirtualFile next = queue.poll();
+        if (next != null) {
+            remainingFiles.remove(next);
+        }
+        return next;
+    }
+
+    /**
+     * Checks if the given file is open in an editor or has been edited recently
+     *
+     * @param file
+     * @return
+     */
+    boolean isPriorityFile(VirtualFile file) {
+        return priorities.getOrDefault(file, OTHERS) <= RECENTLY_EDITED;
+    }
+
+    private void createQueue() {
+        queueVersion = prioritiesVersion.get();
+        priorities = computePriorities();
+        Map<VirtualFile, Integer> currentPriorities = priorities;
+        queue = new PriorityQueue<>(Math.max(1, remainingFiles.size()),
+                Comparator.<VirtualFile>comparingInt(file -> currentPriorities.getOrDefault(file, OTHERS))
+                        .thenComparingInt(positions::get));
+        queue.addAll(remainingFiles);
+    }
+
+    /**
+     * Computes the priority of the remaining files out of the open editors and the recently edited files
+     */
+    private Map<VirtualFile, Integer> computePriorities() {
+        Map<VirtualFile, Integer> results = new HashMap<>();
+        if (project.isDisposed()) {
+            return results;
+        }
+        FileEditorManager editorManager = FileEditorManager.getInstance(project);
+        for (VirtualFile file : editorManager.getOpenFiles()) {
+            results.put(file, OPEN_EDITORS);
+        }
+        for (VirtualFile file : IdeDocumentHistory.getInstance(project).getChangedFiles()) {
+            results.putIfAbsent(file, RECENTLY_EDITED);
+        }
+
+        ProjectFileIndex fileIndex = ProjectFileIndex.getInstance(project);
+        Set<Module> modules = new HashSet<>();
+        for (VirtualFile file : results.keySet()) {
+            Module module = fileIndex.getModuleForFile(file);
+            if (module != null) {
+                modules.add(module);
+            }
+        }
+        if (!modules.isEmpty()) {
+            for (VirtualFile file : remainingFiles) {
+                if (!results.containsKey(file) && modules.contains(fileIndex.getModuleForFile(file))) {
+                    results.put(file, SAME_MODULES);
+                }
+            }
+        }
+        return results;
+    }
+}
@@ -0,0 +1,114 @@
+package com.github.fiadleh.codesmellsplugin.util;
+
+import junit.framework.TestCase;
+
+/**
+ * Class for testing the weight bound and the eviction of BoundedCache.
+ *
+ * @author Firas Adleh
+ */
+public class BoundedCacheTest extends TestCase {
+
+    private static BoundedCache<String, String> createCache(long maxWeight) {
+        return new BoundedCache<>("test", maxWeight, 64, (key, value) -> value.length());
+    }
+
+    private static String createValue(int weight) {
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < weight; i++) {
+            value.append('v');
+        }
+        return value.toString();
+    }
+
+    public void testWeightStaysWithinBound() {
+        BoundedCache<String, String> cache = createCache(100);
+        for (int i = 0; i < 50; i++) {
+            cache.put("key" + i, createValue(10));
+            assertTrue(cache.getWeight() <= 100);
+        }
+        assertTrue(cache.size() <= 10);
+        assertEquals(cache.size() * 10L, cache.getWeight());
+    }
+
+    public void testEntryHeavierThanCacheIsNotAdded() {
+        BoundedCache<String, String> cache = createCache(100);
+        cache.put("big", createValue(101));
+        assertNull(cache.get("big"));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getWeight());
+    }
+
+    public void testReplacedValueUpdatesWeight() {
+        BoundedCache<String, String> cache = createCache(100);
+        cache.put("a", createValue(2));
+        cache.put("a", createValue(4));
+        assertEquals(1, cache.size());
+        assertEquals(4, cache.getWeight());
+        assertEquals(createValue(4), cache.get("a"));
+    }
+
+    public void testReplacedValueHeavierThanCacheIsRemoved() {
+        BoundedCache<String, String> cache = createCache(100);
+        cache.put("a", createValue(2));
+        cache.put("a", createValue(101));
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.getWeight());
+    }
+
+    public void testWeightIncreaseInMainSpaceEvicts() {
+        BoundedCache<String, String> cache = createCache(100);
+        for (int i = 0; i < 9; i++) {
+            cache.put("key" + i, createValue(10));
+        }
+        assertEquals(90, cache.getWeight());
+
+        // key0 is in the main space, its heavier value pushes the least recently used entries out
+        cache.put("key0", createValue(30));
+        assertTrue(cache.getWeight() <= 100);
+        assertEquals(createValue(30), cache.get("key0"));
+        assertTrue(cache.size() < 9);
+    }
+
+    public void testCandidateHeavierThanMainSpaceIsRejected() {
+        BoundedCache<String, String> cache = createCache(100);
+        for (int i = 0; i < 5; i++) {
+            cache.put("key" + i, createValue(10));
+        }
+        // the window is 1 and the main space 99, an entry of 100 fits the cache but none of its segments
+        cache.put("big", createValue(100));
+        assertNull(cache.get("big"));
+        assertTrue(cache.getWeight() <= 99);
+    }
+
+    public void testFrequentlyUsedEntryIsNotEvicted() {
+        BoundedCache<String, String> cache = createCache(100);
+        cache.put("hot", createValue(10));
+        for (int i = 0; i < 10; i++) {
+            assertNotNull(cache.get("hot"));
+        }
+        // entries used once are not admitted in place of an entry used more often
+        for (int i = 0; i < 200; i++) {
+            cache.put("cold" + i, createValue(10));
+        }
+        assertNotNull(cache.get("hot"));
+        assertTrue(cache.getWeight() <= 100);
+        assertTrue(cache.getStatistics().contains("evictions="));
+    }
+
+    public void testRemoveAndClear() {
+        BoundedCache<String, String> cache = createCache(100);
+        cache.put("a", createValue(5));
+        cache.put("b", createValue(5));
+
+        cache.remove("a");
+        assertNull(cache.get("a"));
+        assertEquals(1, cache.size());
+        assertEquals(5, cache.getWeight());
+
+        cache.clear();
+        assertNull(cache.get("b"));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getWeight());
+    }
+}
@@ -0,0 +1,84 @@
+package com.github.fiadleh.codesmellsplugin.util;
+
+import com.intellij.psi.PsiFile;
+import com.intellij.testFramework.fixtures.LightJavaCodeInsightFixtureTestCase;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Class for testing the field clumps mined by FieldClumpMiner from the signature index.
+ *
+ * @author Firas Adleh
+ */
+public class FieldClumpMinerTest extends LightJavaCodeInsightFixtureTestCase {
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        CacheManager.resetIsCacheReady();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        try {
+            // reset cache to be used in other tests
+            CacheManager.resetIsCacheReady();
+        } finally {
+            super.tearDown();
+        }
+    }
+
+    private void addIndexedClass(String name, String text) {
+        PsiFile file = myFixture.addFileToProject(name + ".java", text);
+        SignatureIndex.indexFile(file);
+    }
+
+    private static FieldClumpMiner.FieldClump findClump(Collection<FieldClumpMiner.FieldClump> clumps, int fieldsCount) {
+        for (FieldClumpMiner.FieldClump clump : clumps) {
+            if (clump.getFieldsCount() == fieldsCount) {
+                return clump;
+            }
+        }
+        return null;
+    }
+
+    public void testClosedClumps() {
+        addIndexedClass("A", "public class A { int x; int y; int z; String name; }");
+        addIndexedClass("B", "public class B { int x; int y; int z; double weight; }");
+        addIndexedClass("C", "public class C { int x; int y; String other; }");
+        addIndexedClass("D", "public class D { long id; int z; }");
+
+        Collection<FieldClumpMiner.FieldClump> clumps = FieldClumpMiner.mine(2).clumps;
+        assertEquals(2, clumps.size());
+
+        // every clump has all the fields its classes have in common
+        FieldClumpMiner.FieldClump xyz = findClump(clumps, 3);
+        assertNotNull(xyz);
+        assertEquals(new HashSet<>(Arrays.asList("A", "B")), new HashSet<>(xyz.getClassNames()));
+
+        FieldClumpMiner.FieldClump xy = findClump(clumps, 2);
+        assertNotNull(xy);
+        assertEquals(new HashSet<>(Arrays.asList("A", "B", "C")), new HashSet<>(xy.getClassNames()));
+    }
+
+    public void testHigherMinimumFiltersClumps() {
+        addIndexedClass("A", "public class A { int x; int y; int z; String name; }");
+        addIndexedClass("B", "public class B { int x; int y; int z; double weight; }");
+        addIndexedClass("C", "public class C { int x; int y; String other; }");
+
+        Collection<FieldClumpMiner.FieldClump> clumps = FieldClumpMiner.mine(3).clumps;
+        assertEquals(1, clumps.size());
+        Set<String> classNames = new HashSet<>(clumps.iterator().next().getClassNames());
+        assertEquals(new HashSet<>(Arrays.asList("A", "B")), classNames);
+    }
+
+    public void testSingleClassIsNoClump() {
+        addIndexedClass("A", "public class A { int x; int y; int z; }");
+        addIndexedClass("B", "public class B { long x; long y; long z; }");
+
+        assertTrue(FieldClumpMiner.mine(2).clumps.isEmpty());
+    }
+}
@@ -0,0 +1,104 @@
+package com.github.fiadleh.codesmellsplugin.util;
+
+import junit.framework.TestCase;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Class for testing the queries and the removals of ParameterTrie.
+ *
+ * @author Firas Adleh
+ */
+public class ParameterTrieTest extends TestCase {
+
+    private SignatureIndex.StoreGeneration store;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        store = SignatureIndex.acquireStore();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        try {
+            store.release();
+        } finally {
+            super.tearDown();
+        }
+    }
+
+    private SignatureIndex.MethodSignatures createMethod(String name) {
+        SignatureIndex.ClassSignatures c = new SignatureIndex.ClassSignatures(store, "temp:///src/A.java", "A",
+                Collections.emptyList(), Collections.emptyList());
+        return new SignatureIndex.MethodSignatures(c, name, Collections.emptyList(), false, false);
+    }
+
+    private static Map<SignatureIndex.MethodSignatures, Integer> collect(ParameterTrie trie, int[] parameterIds, int minCount) {
+        Map<SignatureIndex.MethodSignatures, Integer> results = new HashMap<>();
+        trie.collect(parameterIds, minCount, results);
+        return results;
+    }
+
+    public void testCollectMethodsWithEnoughCommonParameters() {
+        ParameterTrie trie = new ParameterTrie();
+        SignatureIndex.MethodSignatures m1 = createMethod("m1");
+        SignatureIndex.MethodSignatures m2 = createMethod("m2");
+        SignatureIndex.MethodSignatures m3 = createMethod("m3");
+        trie.add(new int[]{1, 2, 3}, m1);
+        trie.add(new int[]{1, 2, 4}, m2);
+        trie.add(new int[]{5, 6}, m3);
+
+        Map<SignatureIndex.MethodSignatures, Integer> results = collect(trie, new int[]{1, 2, 3}, 2);
+        assertEquals(2, results.size());
+        assertEquals(Integer.valueOf(3), results.get(m1));
+        assertEquals(Integer.valueOf(2), results.get(m2));
+
+        results = collect(trie, new int[]{1, 2, 3}, 3);
+        assertEquals(Collections.singletonMap(m1, 3), results);
+
+        assertTrue(collect(trie, new int[]{7, 8, 9}, 2).isEmpty());
+    }
+
+    public void testParameterOrderAndUnknownIdsAreIgnored() {
+        ParameterTrie trie = new ParameterTrie();
+        SignatureIndex.MethodSignatures m1 = createMethod("m1");
+        // -1 is the id of a parameter missing in the store
+        trie.add(new int[]{3, 1, -1, 2, 2}, m1);
+
+        assertEquals(Collections.singletonMap(m1, 3), collect(trie, new int[]{2, 3, 1}, 3));
+        assertEquals(Collections.singletonMap(m1, 2), collect(trie, new int[]{3, -1, 1}, 2));
+    }
+
+    public void testRemoveOneOfTwoMethodsWithSameParameters() {
+        ParameterTrie trie = new ParameterTrie();
+        SignatureIndex.MethodSignatures m1 = createMethod("m1");
+        SignatureIndex.MethodSignatures m2 = createMethod("m2");
+        trie.add(new int[]{1, 2}, m1);
+        trie.add(new int[]{1, 2}, m2);
+
+        trie.remove(new int[]{2, 1}, m1);
+        assertEquals(Collections.singletonMap(m2, 2), collect(trie, new int[]{1, 2}, 2));
+
+        trie.remove(new int[]{1, 2}, m2);
+        assertTrue(collect(trie, new int[]{1, 2}, 1).isEmpty());
+    }
+
+    public void testRemoveKeepsMethodsOnTheSamePath() {
+        ParameterTrie trie = new ParameterTrie();
+        SignatureIndex.MethodSignatures shortMethod = createMethod("shortMethod");
+        SignatureIndex.MethodSignatures longMethod = createMethod("longMethod");
+        trie.add(new int[]{1, 2}, shortMethod);
+        trie.add(new int[]{1, 2, 3}, longMethod);
+
+        trie.remove(new int[]{1, 2, 3}, longMethod);
+        assertEquals(Collections.singletonMap(shortMethod, 2), collect(trie, new int[]{1, 2, 3}, 2));
+
+        // removing a method which has not been added changes nothing
+        trie.remove(new int[]{1, 2, 3}, longMethod);
+        trie.remove(new int[]{4}, shortMethod);
+        assertEquals(Collections.singletonMap(shortMethod, 2), collect(trie, new int[]{1, 2}, 2));
+    }
+}
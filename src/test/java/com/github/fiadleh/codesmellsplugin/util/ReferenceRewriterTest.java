@@ -0,0 +1,124 @@
+package com.github.fiadleh.codesmellsplugin.util;
+
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiField;
+import com.intellij.psi.PsiJavaFile;
+import com.intellij.psi.PsiReferenceExpression;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.testFramework.fixtures.LightJavaCodeInsightFixtureTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class for testing the getter and setter calls written by ReferenceRewriter for reads, writes and compound writes.
+ *
+ * @author Firas Adleh
+ */
+public class ReferenceRewriterTest extends LightJavaCodeInsightFixtureTestCase {
+
+    private static final String TEST_CLASS = "class Test {\n" +
+            "    int x;\n" +
+            "    short s;\n" +
+            "    int y;\n" +
+            "\n" +
+            "    void read() {\n" +
+            "        int a = x + 1;\n" +
+            "    }\n" +
+            "\n" +
+            "    void write() {\n" +
+            "        x = 5;\n" +
+            "    }\n" +
+            "\n" +
+            "    void compound() {\n" +
+            "        x += 2;\n" +
+            "        x++;\n" +
+            "        s -= 1;\n" +
+            "    }\n" +
+            "\n" +
+            "    void valueUsed() {\n" +
+            "        y = x = 3;\n" +
+            "        System.out.println(x++);\n" +
+            "    }\n" +
+            "\n" +
+            "    void loop() {\n" +
+            "        for (int i = 0; i < 3; i++, x++) {\n" +
+            "        }\n" +
+            "    }\n" +
+            "}\n";
+
+    private PsiField findField(String name) {
+        PsiClass testClass = ((PsiJavaFile) myFixture.getFile()).getClasses()[0];
+        return testClass.findFieldByName(name, false);
+    }
+
+    private List<PsiReferenceExpression> findReferences(PsiField field) {
+        List<PsiReferenceExpression> references = new ArrayList<>();
+        for (PsiReferenceExpression reference : PsiTreeUtil.findChildrenOfType(myFixture.getFile(), PsiReferenceExpression.class)) {
+            if (reference.isReferenceTo(field)) {
+                references.add(reference);
+            }
+        }
+        return references;
+    }
+
+    /**
+     * Rewrites all references to the given field from the end of the file
+     *
+     * @return the number of rewritten references
+     */
+    private int rewriteReferences(String fieldName, String variableName) {
+        List<PsiReferenceExpression> references = findReferences(findField(fieldName));
+        ReferenceRewriter rewriter = new ReferenceRewriter(getProject(), "mPoint", false);
+        int[] count = {0};
+        WriteCommandAction.runWriteCommandAction(getProject(), () -> {
+            for (int i = references.size() - 1; i >= 0; i--) {
+                if (rewriter.rewrite(references.get(i), variableName)) {
+                    count[0]++;
+                }
+            }
+        });
+        return count[0];
+    }
+
+    public void testClassify() {
+        myFixture.configureByText("Test.java", TEST_CLASS);
+        List<PsiReferenceExpression> references = findReferences(findField("x"));
+        assertEquals(7, references.size());
+        assertEquals(ReferenceRewriter.Access.READ, ReferenceRewriter.classify(references.get(0)));
+        assertEquals(ReferenceRewriter.Access.WRITE, ReferenceRewriter.classify(references.get(1)));
+        assertEquals(ReferenceRewriter.Access.COMPOUND, ReferenceRewriter.classify(references.get(2)));
+        assertEquals(ReferenceRewriter.Access.COMPOUND, ReferenceRewriter.classify(references.get(3)));
+    }
+
+    public void testReadWriteAndCompoundAreRewritten() {
+        myFixture.configureByText("Test.java", TEST_CLASS);
+        assertEquals(5, rewriteReferences("x", "X"));
+        String text = myFixture.getFile().getText();
+
+        assertTrue(text.contains("int a = mPoint.getX() + 1;"));
+        assertTrue(text.contains("mPoint.setX(5);"));
+        assertTrue(text.contains("mPoint.setX(mPoint.getX() + (2));"));
+        assertTrue(text.contains("mPoint.setX(mPoint.getX() + 1);"));
+        assertTrue(text.contains("i++, mPoint.setX(mPoint.getX() + 1)"));
+    }
+
+    public void testCompoundOnNarrowTypeIsCast() {
+        myFixture.configureByText("Test.java", TEST_CLASS);
+        assertEquals(1, rewriteReferences("s", "S"));
+        assertTrue(myFixture.getFile().getText().contains("mPoint.setS((short) (mPoint.getS() - (1)));"));
+    }
+
+    public void testAssignmentUsedAsValueIsSkipped() {
+        myFixture.configureByText("Test.java", TEST_CLASS);
+        List<PsiReferenceExpression> references = findReferences(findField("x"));
+        assertFalse(ReferenceRewriter.canRewrite(references.get(4)));
+        assertFalse(ReferenceRewriter.canRewrite(references.get(5)));
+
+        rewriteReferences("x", "X");
+        String text = myFixture.getFile().getText();
+        assertTrue(text.contains("y = x = 3;"));
+        assertTrue(text.contains("System.out.println(x++);"));
+    }
+}